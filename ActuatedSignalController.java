@@ -0,0 +1,84 @@
+/**
+ * This class is a queue-length actuated signal plan. It skips roads with no waiting vehicles, sizes the left signal
+ * of each turn to the longest left lane, ends a phase as soon as its lanes are empty, and extends the green light
+ * while straight and right lanes still have vehicles, up to a maximum number of extra time steps per turn.
+ * A turn never lasts longer than the road's green time plus the maximum extension.
+*/
+
+public class ActuatedSignalController implements SignalController {
+    private final int maxExtension;
+
+    /**
+     * This is the constructor of the class.
+     * @param maxExtension
+     *  the most time steps a turn may be extended by
+     * @throws IllegalArgumentException
+     *  if maxExtension is negative
+     */
+    public ActuatedSignalController(int maxExtension) throws IllegalArgumentException{
+        if(maxExtension < 0){
+            throw new IllegalArgumentException("maxExtension cannot be negative");
+        }
+        this.maxExtension = maxExtension;
+    }
+
+    /**
+     * Starts a turn with a left signal as long as the longest left lane, leaving at least one green time step
+     * when the straight and right lanes also have vehicles. A road with no vehicles gets a single green time step,
+     * so vehicles arriving in it can still pass.
+     */
+    @Override
+    public int startTurn(Intersection intersection, int roadIndex){
+        TwoWayRoad road = intersection.getRoad(roadIndex);
+        int greenTime = road.getGreenTime();
+        int greenDemand = road.getGreenDemand();
+        int leftTime = Math.min(road.getLeftDemand(), greenTime);
+        if(greenDemand > 0 && leftTime == greenTime){
+            leftTime = greenTime - 1;
+        }
+        road.setLeftSignalGreenTime(leftTime);
+        if(greenDemand > 0){
+            return greenTime;
+        }
+        return Math.max(leftTime, 1);
+    }
+
+    @Override
+    public int nextTimer(Intersection intersection, int roadIndex, int countdownTimer, int elapsed){
+        TwoWayRoad road = intersection.getRoad(roadIndex);
+        int leftTime = road.getLeftSignalGreenTime();
+        if(countdownTimer > leftTime){
+            if(road.getGreenDemand() == 0){
+                return leftTime;
+            }
+            if(countdownTimer == leftTime + 1 && elapsed < road.getGreenTime() + maxExtension){
+                return countdownTimer;
+            }
+            return countdownTimer - 1;
+        }
+        if(road.getLeftDemand() == 0){
+            return 0;
+        }
+        return countdownTimer - 1;
+    }
+
+    /**
+     * Chooses the next road in turn which has a waiting vehicle, or simply the next road if none has.
+     */
+    @Override
+    public int nextRoad(Intersection intersection, int roadIndex){
+        int numRoads = intersection.getNumRoads();
+        for(int i = 1; i <= numRoads; i++){
+            int candidate = (roadIndex + i) % numRoads;
+            if(!intersection.getRoad(candidate).isAllLanesEmpty()){
+                return candidate;
+            }
+        }
+        return (roadIndex + 1) % numRoads;
+    }
+
+    @Override
+    public String toString(){
+        return "actuated+" + maxExtension;
+    }
+}
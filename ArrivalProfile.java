@@ -0,0 +1,242 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class is a demand profile: the probability of a vehicle arriving on each lane at each time step,
+ * constant within segments of time steps, so a day can have a quiet night, a morning rush on one road
+ * and an evening rush on another. Lanes are numbered road by road, way by way, lane by lane.
+ * A profile does not change once built and can be shared by any number of simulations.
+*/
+
+public class ArrivalProfile {
+    private static final int LANES_PER_ROAD = TwoWayRoad.NUM_WAYS * TwoWayRoad.NUM_LANES;
+    private final int numRoads;
+    private final int[] startTimes;
+    private final double[][] probabilities;
+
+    /**
+     * This is the constructor of the class.
+     * @param numRoads
+     *  number of roads
+     * @param startTimes
+     *  first time step of each segment, increasing, starting at 1
+     * @param probabilities
+     *  probability of each lane in each segment, one array of numRoads * 6 probabilities per segment
+     * @throws IllegalArgumentException
+     *  if the start times are not increasing from 1, the arrays do not match, or a probability is not between 0.0 and 1.0
+     */
+    public ArrivalProfile(int numRoads, int[] startTimes, double[][] probabilities) throws IllegalArgumentException{
+        if(numRoads < 1 || startTimes.length == 0 || startTimes.length != probabilities.length || startTimes[0] != 1){
+            throw new IllegalArgumentException("profile must have one probability array per segment, starting at time step 1");
+        }
+        this.numRoads = numRoads;
+        this.startTimes = startTimes.clone();
+        this.probabilities = new double[probabilities.length][];
+        for(int segment = 0; segment < startTimes.length; segment++){
+            if(segment > 0 && startTimes[segment] <= startTimes[segment - 1]){
+                throw new IllegalArgumentException("segment start times must be increasing");
+            }
+            if(probabilities[segment].length != numRoads * LANES_PER_ROAD){
+                throw new IllegalArgumentException("segment " + segment + " must have a probability for every lane");
+            }
+            for(double p : probabilities[segment]){
+                if(!(p >= 0.0 && p <= 1.0)){
+                    throw new IllegalArgumentException("probability must be between 0.0 and 1.0");
+                }
+            }
+            this.probabilities[segment] = probabilities[segment].clone();
+        }
+    }
+
+    /**
+     * Builds a profile with the same probability on every lane at every time step.
+     * @param numRoads
+     *  number of roads
+     * @param p
+     *  probability of a vehicle arriving on each lane at each time step
+     * @return
+     *  ArrivalProfile
+     */
+    public static ArrivalProfile constant(int numRoads, double p){
+        double[] lanes = new double[numRoads * LANES_PER_ROAD];
+        Arrays.fill(lanes, p);
+        return new ArrivalProfile(numRoads, new int[]{1}, new double[][]{lanes});
+    }
+
+    /**
+     * Loads a profile from a CSV demand file. Each line is
+     * <pre>startTime,road,way,lane,probability</pre>
+     * and sets the probability of the matching lanes from startTime on, until a later line changes it.
+     * Road, way and lane are indexes, or * for all of them. Lanes start at probability 0.0, empty lines and
+     * lines starting with # are skipped, and lines must be in order of start time. For example:
+     * <pre>
+     * # quiet, then a morning rush on road 0 and an evening rush on road 1 going backward
+     * 1,*,*,*,0.05
+     * 300,0,*,*,0.3
+     * 600,0,*,*,0.05
+     * 900,1,1,*,0.35
+     * 1200,*,*,*,0.05
+     * </pre>
+     * @param file
+     *  the demand file
+     * @param numRoads
+     *  number of roads
+     * @return
+     *  ArrivalProfile
+     * @throws IOException
+     *  if the file cannot be read or a line is invalid
+     */
+    public static ArrivalProfile load(Path file, int numRoads) throws IOException{
+        List<Integer> startTimes = new ArrayList<Integer>();
+        List<double[]> segments = new ArrayList<double[]>();
+        double[] current = new double[numRoads * LANES_PER_ROAD];
+        startTimes.add(1);
+        segments.add(current);
+        try(BufferedReader reader = new BufferedReader(new FileReader(file.toFile()))){
+            String line;
+            int lineNumber = 0;
+            while((line = reader.readLine()) != null){
+                lineNumber++;
+                line = line.trim();
+                if(line.isEmpty() || line.startsWith("#")){
+                    continue;
+                }
+                String[] fields = line.split(",");
+                if(fields.length != 5){
+                    throw new IOException(file + ":" + lineNumber + ": expected startTime,road,way,lane,probability");
+                }
+                try{
+                    int startTime = Integer.parseInt(fields[0].trim());
+                    int lastStart = startTimes.get(startTimes.size() - 1);
+                    if(startTime < lastStart){
+                        throw new IOException(file + ":" + lineNumber + ": lines must be in order of start time");
+                    }
+                    if(startTime > lastStart){
+                        current = current.clone();
+                        startTimes.add(startTime);
+                        segments.add(current);
+                    }
+                    double p = Double.parseDouble(fields[4].trim());
+                    if(!(p >= 0.0 && p <= 1.0)){
+                        throw new IOException(file + ":" + lineNumber + ": probability must be between 0.0 and 1.0");
+                    }
+                    int[] roads = range(fields[1].trim(), numRoads);
+                    int[] ways = range(fields[2].trim(), TwoWayRoad.NUM_WAYS);
+                    int[] lanes = range(fields[3].trim(), TwoWayRoad.NUM_LANES);
+                    for(int road = roads[0]; road < roads[1]; road++){
+                        for(int way = ways[0]; way < ways[1]; way++){
+                            for(int lane = lanes[0]; lane < lanes[1]; lane++){
+                                current[laneOf(road, way, lane)] = p;
+                            }
+                        }
+                    }
+                }
+                catch(IllegalArgumentException e){
+                    throw new IOException(file + ":" + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        int[] starts = new int[startTimes.size()];
+        for(int i = 0; i < starts.length; i++){
+            starts[i] = startTimes.get(i);
+        }
+        return new ArrivalProfile(numRoads, starts, segments.toArray(new double[0][]));
+    }
+
+    /**
+     * Parses an index or * into the range {from, to} it covers.
+     */
+    private static int[] range(String field, int size) throws IllegalArgumentException{
+        if(field.equals("*")){
+            return new int[]{0, size};
+        }
+        int index = Integer.parseInt(field);
+        if(index < 0 || index >= size){
+            throw new IllegalArgumentException("index " + index + " out of range");
+        }
+        return new int[]{index, index + 1};
+    }
+
+    /**
+     * This method returns the index of a lane in the profile.
+     * @param roadIndex
+     *  index of the road
+     * @param wayIndex
+     *  direction of the lane
+     * @param laneIndex
+     *  index of the lane
+     * @return
+     *  int
+     */
+    public static int laneOf(int roadIndex, int wayIndex, int laneIndex){
+        return roadIndex * LANES_PER_ROAD + wayIndex * TwoWayRoad.NUM_LANES + laneIndex;
+    }
+
+    /**
+     * This method returns the number of roads.
+     * @return
+     *  int
+     */
+    public int getNumRoads(){
+        return numRoads;
+    }
+
+    /**
+     * This method returns the number of lanes, numRoads * 6.
+     * @return
+     *  int
+     */
+    public int getNumLanes(){
+        return numRoads * LANES_PER_ROAD;
+    }
+
+    /**
+     * This method returns the number of segments.
+     * @return
+     *  int
+     */
+    public int getNumSegments(){
+        return startTimes.length;
+    }
+
+    /**
+     * This method returns the first time step of a segment.
+     * @param segment
+     *  index of the segment
+     * @return
+     *  int
+     */
+    public int getStartTime(int segment){
+        return startTimes[segment];
+    }
+
+    /**
+     * This method returns the probability of an arrival on a lane in a segment.
+     * @param segment
+     *  index of the segment
+     * @param lane
+     *  index of the lane, see laneOf
+     * @return
+     *  double
+     */
+    public double getProbability(int segment, int lane){
+        return probabilities[segment][lane];
+    }
+
+    /**
+     * This method returns the index of the segment a time step falls in.
+     * @param time
+     *  the time step, at least 1
+     * @return
+     *  int
+     */
+    public int segmentAt(int time){
+        int segment = Arrays.binarySearch(startTimes, time);
+        return segment >= 0 ? segment : -segment - 2;
+    }
+}
@@ -0,0 +1,41 @@
+/**
+ * This interface is a time-ordered stream of vehicle arrivals for the event-driven engine.
+ * Arrivals in the same time step come in road, way and lane order, the order the tick engine enqueues them in.
+*/
+
+public interface ArrivalSchedule {
+    /**
+     * Moves to the next arrival.
+     * @return
+     *  false if there are no more arrivals
+     */
+    boolean advance();
+
+    /**
+     * This method returns the time step of the current arrival.
+     * @return
+     *  int
+     */
+    int time();
+
+    /**
+     * This method returns the road index of the current arrival.
+     * @return
+     *  int
+     */
+    int roadIndex();
+
+    /**
+     * This method returns the way index of the current arrival.
+     * @return
+     *  int
+     */
+    int wayIndex();
+
+    /**
+     * This method returns the lane index of the current arrival.
+     * @return
+     *  int
+     */
+    int laneIndex();
+}
@@ -0,0 +1,13 @@
+/**
+ * This interface is the source of the vehicle arrivals of a simulation.
+ * Each simulation needs its own instance, since drawing an arrival advances the source.
+*/
+
+public interface ArrivalSource {
+    /**
+     * Draws whether a vehicle arrives on one lane for one time step.
+     * @return
+     *  true if a vehicle arrives
+     */
+    boolean occurs();
+}
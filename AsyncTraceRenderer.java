@@ -0,0 +1,235 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * This class writes the same trace as ConsoleReporter without making the simulation wait on the output.
+ * Every event is formatted by TraceFormatter into a reused StringBuilder, and at the end of each time step the frame
+ * is encoded into a large byte chunk. Full chunks are handed through a bounded queue to a background thread which
+ * writes each one with a single call, and are then returned to a pool, so the simulation only blocks when
+ * the writer falls more than the queue capacity behind.
+*/
+
+public class AsyncTraceRenderer implements SimulationListener, AutoCloseable {
+    private static final int CHUNK_SIZE = 1 << 20;
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+    private final StringBuilder frame = new StringBuilder(8192);
+    private final CharsetEncoder encoder;
+    private final BlockingQueue<ByteBuffer> full;
+    private final BlockingQueue<ByteBuffer> free;
+    private final WritableByteChannel out;
+    private final boolean closeOut;
+    private final Thread writer;
+    private volatile IOException failure;
+    private ByteBuffer current;
+    private boolean closed;
+
+    /**
+     * This is the constructor of the class. It starts the writer thread.
+     * @param out
+     *  channel to write the trace to
+     * @param closeOut
+     *  whether close() closes the channel
+     * @param queueCapacity
+     *  number of chunks which may wait to be written
+     * @throws IllegalArgumentException
+     *  if queueCapacity &lt; 1
+     */
+    public AsyncTraceRenderer(WritableByteChannel out, boolean closeOut, int queueCapacity) throws IllegalArgumentException{
+        if(queueCapacity < 1){
+            throw new IllegalArgumentException("queueCapacity must be at least 1");
+        }
+        this.out = out;
+        this.closeOut = closeOut;
+        this.encoder = Charset.defaultCharset().newEncoder();
+        this.full = new ArrayBlockingQueue<ByteBuffer>(queueCapacity + 1);
+        this.free = new ArrayBlockingQueue<ByteBuffer>(queueCapacity + 1);
+        for(int i = 0; i < queueCapacity; i++){
+            free.add(ByteBuffer.allocateDirect(CHUNK_SIZE));
+        }
+        this.current = ByteBuffer.allocateDirect(CHUNK_SIZE);
+        this.writer = new Thread(this::writeChunks, "trace-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Creates a renderer which writes to a file, replacing it.
+     * @param path
+     *  the file
+     * @return
+     *  AsyncTraceRenderer
+     * @throws IOException
+     *  if the file cannot be opened
+     */
+    public static AsyncTraceRenderer toFile(Path path) throws IOException{
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        return new AsyncTraceRenderer(channel, true, 4);
+    }
+
+    /**
+     * Creates a renderer which writes to the standard output, bypassing System.out.
+     * System.out is flushed first so earlier output stays in order.
+     * @return
+     *  AsyncTraceRenderer
+     */
+    public static AsyncTraceRenderer toStdout(){
+        System.out.flush();
+        return new AsyncTraceRenderer(new FileOutputStream(java.io.FileDescriptor.out).getChannel(), false, 4);
+    }
+
+    @Override
+    public void onSimulationStart(){
+        TraceFormatter.appendSimulationStart(frame);
+    }
+
+    @Override
+    public void onStepStart(int timeStep, Intersection intersection, boolean arrivalsOpen){
+        TraceFormatter.appendStepStart(frame, timeStep, intersection, arrivalsOpen);
+    }
+
+    @Override
+    public void onArrival(int timeStep, Intersection intersection, int roadIndex, int wayIndex, int laneIndex, int serialId){
+        TraceFormatter.appendArrival(frame, intersection, roadIndex, wayIndex, laneIndex, serialId);
+    }
+
+    @Override
+    public void onArrivalsEnd(int timeStep){
+        TraceFormatter.appendArrivalsEnd(frame);
+    }
+
+    @Override
+    public void onDeparture(int timeStep, int serialId, int waitTime){
+        TraceFormatter.appendDeparture(frame, serialId, waitTime);
+    }
+
+    @Override
+    public void onStepEnd(int timeStep, Intersection intersection, SimulationStats stats){
+        TraceFormatter.appendStepEnd(frame, intersection, stats);
+        endFrame();
+    }
+
+    @Override
+    public void onSimulationEnd(SimulationStats stats){
+        TraceFormatter.appendSimulationEnd(frame, stats);
+        endFrame();
+    }
+
+    /**
+     * Encodes the current frame into the current chunk, handing chunks to the writer as they fill up.
+     * @throws UncheckedIOException
+     *  if the writer thread failed
+     */
+    private void endFrame() throws UncheckedIOException{
+        checkFailure();
+        CharBuffer chars = CharBuffer.wrap(frame);
+        while(true){
+            CoderResult result = encoder.encode(chars, current, false);
+            if(result.isOverflow()){
+                handOff();
+            }
+            else if(result.isUnderflow()){
+                break;
+            }
+            else{
+                encoder.reset();
+                throw new UncheckedIOException(new java.nio.charset.CharacterCodingException());
+            }
+        }
+        frame.setLength(0);
+    }
+
+    /**
+     * Queues the current chunk for the writer and takes an empty one from the pool.
+     */
+    private void handOff(){
+        current.flip();
+        try{
+            full.put(current);
+            current = free.take();
+        }
+        catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while handing off trace output", e);
+        }
+    }
+
+    /**
+     * The writer thread: writes chunks until the end marker, returning each chunk to the pool.
+     */
+    private void writeChunks(){
+        try{
+            while(true){
+                ByteBuffer chunk = full.take();
+                if(chunk == END){
+                    return;
+                }
+                try{
+                    while(chunk.hasRemaining() && failure == null){
+                        out.write(chunk);
+                    }
+                }
+                catch(IOException e){
+                    failure = e;
+                }
+                chunk.clear();
+                free.put(chunk);
+            }
+        }
+        catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Rethrows a failure of the writer thread.
+     */
+    private void checkFailure(){
+        if(failure != null){
+            throw new UncheckedIOException("could not write trace", failure);
+        }
+    }
+
+    /**
+     * Writes what is left of the trace, waits for the writer thread and closes the channel if it owns it.
+     * @throws IOException
+     *  if the trace could not be written
+     */
+    @Override
+    public void close() throws IOException{
+        if(closed){
+            return;
+        }
+        closed = true;
+        try{
+            endFrame();
+            handOff();
+            full.put(END);
+            writer.join();
+        }
+        catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while closing trace", e);
+        }
+        finally{
+            if(closeOut){
+                out.close();
+            }
+        }
+        if(failure != null){
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,369 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class is a memory-mapped binary trace written by BinaryTraceRecorder, read lazily and without copying.
+ * The format is a header (the magic number, the format version, the header size, the number of roads and the
+ * green time and name of each road, padded to a whole record) followed by 16 byte big-endian records:
+ * the time step, the serial ID, the record type, the road, way and lane, and a value. Departures carry the wait time
+ * as their value; the record at the end of each time step carries the countdown timer as its serial ID, the road
+ * with the light as its road and the light of every road as its value, one byte per road.
+ * The main method computes per-lane wait statistics or re-renders a window of time steps in the format of
+ * Intersection.display, by replaying the records instead of running the simulation.
+*/
+
+public class BinaryTrace implements java.io.Closeable {
+    public static final int MAGIC = 0x49535452;
+    public static final int VERSION = 1;
+    public static final int RECORD_SIZE = 16;
+    public static final int ARRIVAL = 1;
+    public static final int DEPARTURE = 2;
+    public static final int STEP = 3;
+    private static final int CHUNK_RECORDS = 1 << 26;
+    private final FileChannel channel;
+    private final int headerSize;
+    private final String[] roadNames;
+    private final int[] greenTimes;
+    private final long size;
+    private final MappedByteBuffer[] chunks;
+
+    /**
+     * Opens a trace. No records are mapped until they are read.
+     * @param path
+     *  path of the trace
+     * @throws IOException
+     *  if the file cannot be read or is not a trace
+     */
+    public BinaryTrace(Path path) throws IOException{
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try{
+            ByteBuffer start = readFully(0, RECORD_SIZE);
+            if(start.remaining() < RECORD_SIZE || start.getInt() != MAGIC || start.getInt() != VERSION){
+                throw new IOException(path + " is not a binary trace");
+            }
+            headerSize = start.getInt();
+            int numRoads = start.getInt();
+            if(headerSize < RECORD_SIZE || headerSize % RECORD_SIZE != 0 || headerSize > channel.size() || numRoads < 1){
+                throw new IOException(path + " has an invalid header");
+            }
+            ByteBuffer header = readFully(RECORD_SIZE, headerSize - RECORD_SIZE);
+            roadNames = new String[numRoads];
+            greenTimes = new int[numRoads];
+            for(int i = 0; i < numRoads; i++){
+                greenTimes[i] = header.getInt();
+                byte[] name = new byte[header.getShort()];
+                header.get(name);
+                roadNames[i] = new String(name, StandardCharsets.UTF_8);
+            }
+        }
+        catch(IOException | RuntimeException e){
+            channel.close();
+            throw e instanceof IOException ? (IOException)e : new IOException(path + " has an invalid header", e);
+        }
+        size = (channel.size() - headerSize) / RECORD_SIZE;
+        chunks = new MappedByteBuffer[(int)((size + CHUNK_RECORDS - 1) / CHUNK_RECORDS)];
+    }
+
+    /**
+     * Reads a part of the file into a heap buffer.
+     */
+    private ByteBuffer readFully(long position, int length) throws IOException{
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while(buffer.hasRemaining()){
+            if(channel.read(buffer, position + buffer.position()) < 0){
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * This method returns the number of records in the trace.
+     * @return
+     *  long
+     */
+    public long size(){
+        return size;
+    }
+
+    /**
+     * This method returns the names of the roads.
+     * @return
+     *  String[]
+     */
+    public String[] getRoadNames(){
+        return roadNames.clone();
+    }
+
+    /**
+     * This method returns the green time of each road.
+     * @return
+     *  int[]
+     */
+    public int[] getGreenTimes(){
+        return greenTimes.clone();
+    }
+
+    /**
+     * This method returns the time step of a record.
+     * @param index
+     *  index of the record, 0 &lt;= index &lt; size()
+     * @return
+     *  int
+     */
+    public int time(long index){
+        return chunk(index).getInt(offset(index));
+    }
+
+    /**
+     * This method returns the serial ID of a record, or the countdown timer of a STEP record.
+     * @param index
+     *  index of the record
+     * @return
+     *  int
+     */
+    public int serialId(long index){
+        return chunk(index).getInt(offset(index) + 4);
+    }
+
+    /**
+     * This method returns the type of a record: ARRIVAL, DEPARTURE or STEP.
+     * @param index
+     *  index of the record
+     * @return
+     *  int
+     */
+    public int type(long index){
+        return chunk(index).get(offset(index) + 8);
+    }
+
+    /**
+     * This method returns the road of a record, or the road with the light of a STEP record.
+     * @param index
+     *  index of the record
+     * @return
+     *  int
+     */
+    public int roadIndex(long index){
+        return chunk(index).get(offset(index) + 9);
+    }
+
+    /**
+     * This method returns the way of a record.
+     * @param index
+     *  index of the record
+     * @return
+     *  int
+     */
+    public int wayIndex(long index){
+        return chunk(index).get(offset(index) + 10);
+    }
+
+    /**
+     * This method returns the lane of a record.
+     * @param index
+     *  index of the record
+     * @return
+     *  int
+     */
+    public int laneIndex(long index){
+        return chunk(index).get(offset(index) + 11);
+    }
+
+    /**
+     * This method returns the value of a record: the wait time of a DEPARTURE, the lights of a STEP.
+     * @param index
+     *  index of the record
+     * @return
+     *  int
+     */
+    public int value(long index){
+        return chunk(index).getInt(offset(index) + 12);
+    }
+
+    /**
+     * Returns the light of a road from the value of a STEP record.
+     */
+    private static LightValue lightOf(int lights, int roadIndex){
+        int light = (lights >>> (8 * roadIndex)) & 0xFF;
+        return light == 0 ? null : LightValue.values()[light - 1];
+    }
+
+    /**
+     * Returns the offset of a record in its chunk.
+     */
+    private static int offset(long index){
+        return (int)(index % CHUNK_RECORDS) * RECORD_SIZE;
+    }
+
+    /**
+     * Returns the chunk of a record, mapping it on first use.
+     * @throws IndexOutOfBoundsException
+     *  if index is out of range
+     */
+    private MappedByteBuffer chunk(long index) throws IndexOutOfBoundsException{
+        if(index < 0 || index >= size){
+            throw new IndexOutOfBoundsException("record " + index + " out of range for trace of " + size);
+        }
+        int chunkIndex = (int)(index / CHUNK_RECORDS);
+        MappedByteBuffer chunk = chunks[chunkIndex];
+        if(chunk == null){
+            long first = (long)chunkIndex * CHUNK_RECORDS;
+            long records = Math.min(CHUNK_RECORDS, size - first);
+            try{
+                chunk = channel.map(FileChannel.MapMode.READ_ONLY, headerSize + first * RECORD_SIZE, records * RECORD_SIZE);
+            }
+            catch(IOException e){
+                throw new java.io.UncheckedIOException(e);
+            }
+            chunks[chunkIndex] = chunk;
+        }
+        return chunk;
+    }
+
+    /**
+     * Builds a histogram of the wait times of every lane from the departures.
+     * @return
+     *  histograms indexed by road, way and lane
+     */
+    public WaitTimeHistogram[][][] laneWaitTimes(){
+        WaitTimeHistogram[][][] waitTimes = new WaitTimeHistogram[roadNames.length][TwoWayRoad.NUM_WAYS][TwoWayRoad.NUM_LANES];
+        for(int road = 0; road < roadNames.length; road++){
+            for(int way = 0; way < TwoWayRoad.NUM_WAYS; way++){
+                for(int lane = 0; lane < TwoWayRoad.NUM_LANES; lane++){
+                    waitTimes[road][way][lane] = new WaitTimeHistogram();
+                }
+            }
+        }
+        for(long i = 0; i < size; i++){
+            if(type(i) == DEPARTURE){
+                waitTimes[roadIndex(i)][wayIndex(i)][laneIndex(i)].record(value(i));
+            }
+        }
+        return waitTimes;
+    }
+
+    /**
+     * Rebuilds the intersection from the records and appends it, in the format of Intersection.display,
+     * at the end of every time step from first to last.
+     * @param sb
+     *  the StringBuilder to append to
+     * @param first
+     *  the first time step to render
+     * @param last
+     *  the last time step to render
+     * @param out
+     *  where the StringBuilder is written and cleared after each time step, or null to keep everything in sb
+     * @throws IOException
+     *  if a departure does not match the lanes rebuilt so far
+     */
+    public void render(StringBuilder sb, int first, int last, Appendable out) throws IOException{
+        TwoWayRoad[] roads = new TwoWayRoad[roadNames.length];
+        for(int i = 0; i < roads.length; i++){
+            roads[i] = new TwoWayRoad(roadNames[i], greenTimes[i]);
+        }
+        Intersection intersection = new Intersection(roads);
+        String nl = TraceFormatter.NEW_LINE;
+        for(long i = 0; i < size; i++){
+            int time = time(i);
+            if(time > last){
+                break;
+            }
+            int type = type(i);
+            if(type == ARRIVAL){
+                intersection.enqueueVehicle(roadIndex(i), wayIndex(i), laneIndex(i), serialId(i), time);
+            }
+            else if(type == DEPARTURE){
+                TwoWayRoad road = roads[roadIndex(i)];
+                if(road.isLaneEmpty(wayIndex(i), laneIndex(i)) || road.removeFirstVehicle(wayIndex(i), laneIndex(i)) != serialId(i)){
+                    throw new IOException("departure of record " + i + " does not match the lane");
+                }
+            }
+            else if(type == STEP){
+                int lights = value(i);
+                for(int road = 0; road < roads.length; road++){
+                    roads[road].setLightValue(lightOf(lights, road));
+                }
+                if(time >= first){
+                    int lightIndex = roadIndex(i);
+                    LightValue light = lightOf(lights, lightIndex);
+                    sb.append("Time Step: ").append(time).append(nl).append(nl);
+                    sb.append(light == LightValue.LEFT_SIGNAL ? "    Left Signal for " : "    Green Light for ");
+                    sb.append(roadNames[lightIndex]).append('.').append(nl);
+                    sb.append("    Timer = ").append(serialId(i)).append(nl).append(nl);
+                    intersection.display(sb);
+                    if(out != null){
+                        out.append(sb);
+                        sb.setLength(0);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes the file. Mapped chunks stay readable until they are garbage collected.
+     * @throws IOException
+     *  if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException{
+        channel.close();
+    }
+
+    /**
+     * Start for the trace tool.
+     * @param args
+     *  either stats &lt;trace file&gt; for the wait time percentiles of every lane,
+     *  or render &lt;trace file&gt; &lt;first step&gt; &lt;last step&gt; to print the intersection at each of those time steps
+     * @throws IOException
+     *  if the trace cannot be read
+     */
+    public static void main(String[] args) throws IOException{
+        if(args.length == 2 && args[0].equals("stats")){
+            try(BinaryTrace trace = new BinaryTrace(Path.of(args[1]))){
+                WaitTimeHistogram[][][] waitTimes = trace.laneWaitTimes();
+                WaitTimeHistogram all = new WaitTimeHistogram();
+                System.out.println(String.format("%-28s %10s %8s %8s %8s %8s %8s", "LANE", "VEHICLES", "MEAN", "P50", "P95", "P99", "MAX"));
+                for(int road = 0; road < waitTimes.length; road++){
+                    for(int way = 0; way < TwoWayRoad.NUM_WAYS; way++){
+                        for(int lane = 0; lane < TwoWayRoad.NUM_LANES; lane++){
+                            WaitTimeHistogram h = waitTimes[road][way][lane];
+                            all.merge(h);
+                            String name = trace.roadNames[road] + " " + (way == TwoWayRoad.FORWARD_WAY ? "FORWARD" : "BACKWARD") + " "
+                                + (lane == TwoWayRoad.LEFT_LANE ? "LEFT" : lane == TwoWayRoad.MIDDLE_LANE ? "MIDDLE" : "RIGHT");
+                            printHistogram(name, h);
+                        }
+                    }
+                }
+                printHistogram("All lanes", all);
+                System.out.println(String.format("%n%d records", trace.size()));
+            }
+        }
+        else if(args.length == 4 && args[0].equals("render")){
+            try(BinaryTrace trace = new BinaryTrace(Path.of(args[1]))){
+                java.io.PrintStream out = System.out;
+                trace.render(new StringBuilder(8192), Integer.parseInt(args[2]), Integer.parseInt(args[3]), out);
+                out.flush();
+            }
+        }
+        else{
+            System.out.println("Usage: java BinaryTrace stats <trace file>");
+            System.out.println("       java BinaryTrace render <trace file> <first step> <last step>");
+        }
+    }
+
+    /**
+     * Prints one line of the wait time table.
+     */
+    private static void printHistogram(String name, WaitTimeHistogram h){
+        System.out.println(String.format("%-28s %10d %8.2f %8d %8d %8d %8d", name, h.getTotalCount(), h.getMean(),
+            h.getValueAtPercentile(50.0), h.getValueAtPercentile(95.0), h.getValueAtPercentile(99.0), h.getMaxValue()));
+    }
+}
@@ -0,0 +1,138 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class records a simulation as a compact binary trace instead of text, in the format read by BinaryTrace.
+ * Every arrival, departure and end of a time step is one fixed-width record, collected in a large direct buffer
+ * and written to a FileChannel whenever the buffer is full. A record is 16 bytes where the text trace of a time step
+ * is several kilobytes, and the trace can be analysed or re-rendered later without running the simulation again.
+*/
+
+public class BinaryTraceRecorder implements SimulationListener, AutoCloseable {
+    private static final int BUFFER_SIZE = 1 << 22;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private boolean headerWritten;
+    private boolean closed;
+
+    /**
+     * This is the constructor of the class. It replaces the file.
+     * @param path
+     *  the trace file
+     * @throws IOException
+     *  if the file cannot be opened
+     */
+    public BinaryTraceRecorder(Path path) throws IOException{
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Writes the header from the intersection before the first record.
+     */
+    @Override
+    public void onStepStart(int timeStep, Intersection intersection, boolean arrivalsOpen){
+        if(headerWritten){
+            return;
+        }
+        headerWritten = true;
+        int numRoads = intersection.getNumRoads();
+        buffer.putInt(BinaryTrace.MAGIC);
+        buffer.putInt(BinaryTrace.VERSION);
+        int headerSizePosition = buffer.position();
+        buffer.putInt(0);
+        buffer.putInt(numRoads);
+        for(int i = 0; i < numRoads; i++){
+            TwoWayRoad road = intersection.getRoad(i);
+            byte[] name = road.getName().getBytes(StandardCharsets.UTF_8);
+            buffer.putInt(road.getGreenTime());
+            buffer.putShort((short)name.length);
+            buffer.put(name);
+        }
+        while(buffer.position() % BinaryTrace.RECORD_SIZE != 0){
+            buffer.put((byte)0);
+        }
+        buffer.putInt(headerSizePosition, buffer.position());
+    }
+
+    @Override
+    public void onArrival(int timeStep, Intersection intersection, int roadIndex, int wayIndex, int laneIndex, int serialId){
+        putRecord(timeStep, serialId, BinaryTrace.ARRIVAL, roadIndex, wayIndex, laneIndex, 0);
+    }
+
+    @Override
+    public void onDeparture(int timeStep, int roadIndex, int wayIndex, int laneIndex, int serialId, int waitTime){
+        putRecord(timeStep, serialId, BinaryTrace.DEPARTURE, roadIndex, wayIndex, laneIndex, waitTime);
+    }
+
+    /**
+     * Records the light of every road, with the countdown timer in place of the serial ID
+     * and the road with the light in place of the road index.
+     */
+    @Override
+    public void onStepEnd(int timeStep, Intersection intersection, SimulationStats stats){
+        int lights = 0;
+        for(int i = 0; i < intersection.getNumRoads(); i++){
+            LightValue lightValue = intersection.getRoad(i).getLightValue();
+            lights |= (lightValue == null ? 0 : lightValue.ordinal() + 1) << (8 * i);
+        }
+        putRecord(timeStep, intersection.getCountdownTimer(), BinaryTrace.STEP, intersection.getLightIndex(), 0, 0, lights);
+    }
+
+    /**
+     * Appends a record, writing the buffer out first if it is full.
+     * @throws UncheckedIOException
+     *  if the buffer cannot be written
+     */
+    private void putRecord(int time, int serialId, int type, int roadIndex, int wayIndex, int laneIndex, int value) throws UncheckedIOException{
+        if(buffer.remaining() < BinaryTrace.RECORD_SIZE){
+            try{
+                flush();
+            }
+            catch(IOException e){
+                throw new UncheckedIOException("could not write trace", e);
+            }
+        }
+        buffer.putInt(time);
+        buffer.putInt(serialId);
+        buffer.put((byte)type);
+        buffer.put((byte)roadIndex);
+        buffer.put((byte)wayIndex);
+        buffer.put((byte)laneIndex);
+        buffer.putInt(value);
+    }
+
+    /**
+     * Writes the buffer to the file.
+     */
+    private void flush() throws IOException{
+        buffer.flip();
+        while(buffer.hasRemaining()){
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes what is left of the trace and closes the file.
+     * @throws IOException
+     *  if the trace could not be written
+     */
+    @Override
+    public void close() throws IOException{
+        if(closed){
+            return;
+        }
+        closed = true;
+        try{
+            flush();
+        }
+        finally{
+            channel.close();
+        }
+    }
+}
@@ -6,7 +6,7 @@
 
 import java.io.*;
 
-class BooleanSourceHW4
+class BooleanSourceHW4 implements CheckpointableArrivalSource, ResettableArrivalSource
 {
 	private final static String RANDOM_FILE_FLAGS   = "hw4randomFlags.txt";
 	private final static String RANDOM_FILE_NUMBERS = "hw4randomNumbers.txt";
@@ -15,39 +15,82 @@ class BooleanSourceHW4
 	private double probability;
 	private int indexFlags   = 0;
 	private int indexNumbers = 0;
-	private double randomFLags[] = new double[MAX_SIZE];
-    private double randomNumbers[] = new double[MAX_SIZE];
+	private double randomFLags[];
+    private double randomNumbers[];
+	// Draws past the end of the files, seeded per instance so a checkpoint can save their position too.
+	private final SeededArrivalSource fallback = new SeededArrivalSource(0.0, System.nanoTime());
+
+	// The files are parsed once and shared read-only by every instance; each instance keeps its own indexes.
+	private static double sharedFlags[];
+	private static double sharedNumbers[];
 	
     public BooleanSourceHW4(double p) throws IllegalArgumentException {
         if (p < 0.0 || p > 1.0)
             throw new IllegalArgumentException();
-		readRandomFile(RANDOM_FILE_FLAGS, randomFLags);
-		readRandomFile(RANDOM_FILE_NUMBERS, randomNumbers);
+		loadRandomFiles();
+		randomFLags = sharedFlags;
+		randomNumbers = sharedNumbers;
         probability = p;
     }
+
+	private static synchronized void loadRandomFiles() {
+		if (sharedFlags == null) {
+			double[] flags = new double[MAX_SIZE];
+			double[] numbers = new double[MAX_SIZE];
+			readRandomFile(RANDOM_FILE_FLAGS, flags);
+			readRandomFile(RANDOM_FILE_NUMBERS, numbers);
+			sharedFlags = flags;
+			sharedNumbers = numbers;
+		}
+	}
 	
     public boolean occursHW4() {
 		boolean flag;
 		if (indexFlags < MAX_SIZE)
 			flag = (randomFLags[indexFlags++] < probability);
 		else 
-			flag = (Math.random() < probability);
+			flag = (fallback.nextDouble() < probability);
         return flag; 
     }
+	public boolean occurs() {
+		return occursHW4();
+	}
 	public double randomHW4() {
 		if (indexNumbers < MAX_SIZE)
 			return randomNumbers[indexNumbers++];
 		else		
-			return Math.random(); 
+			return fallback.nextDouble();
     }
 
+	// Rewinds to the first line of both files without reading them again; the seed seeds the draws past their end.
+	public void reset(double p, long seed) throws IllegalArgumentException {
+		if (p < 0.0 || p > 1.0)
+			throw new IllegalArgumentException();
+		probability = p;
+		indexFlags = 0;
+		indexNumbers = 0;
+		fallback.reset(0.0, seed);
+	}
+
+	public void writeState(DataOutput out) throws IOException {
+		out.writeInt(indexFlags);
+		out.writeInt(indexNumbers);
+		fallback.writeState(out);
+	}
+	public void readState(DataInput in) throws IOException {
+		indexFlags = in.readInt();
+		indexNumbers = in.readInt();
+		fallback.readState(in);
+	}
+
 	public static void readRandomFile(String filename, double[] randomArray) {
 		try {
 			String currentLine;
-			BufferedReader objReader = new BufferedReader(new FileReader(filename));
-			for (int i = 0; i < MAX_SIZE; i++) {
-				currentLine = objReader.readLine();
-				randomArray[i] = Double.parseDouble(currentLine);
+			try (BufferedReader objReader = new BufferedReader(new FileReader(filename))) {
+				for (int i = 0; i < MAX_SIZE; i++) {
+					currentLine = objReader.readLine();
+					randomArray[i] = Double.parseDouble(currentLine);
+				}
 			}
 		} catch (IOException e) {
 			System.out.println("An error occurred while reading from "+filename);
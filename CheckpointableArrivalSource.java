@@ -0,0 +1,29 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * This interface is an ArrivalSource whose position can be saved in a checkpoint and restored,
+ * so a resumed simulation draws the same arrivals as one which was never interrupted.
+*/
+
+public interface CheckpointableArrivalSource extends ArrivalSource {
+    /**
+     * Writes the position of the source.
+     * @param out
+     *  the checkpoint being written
+     * @throws IOException
+     *  if the checkpoint cannot be written
+     */
+    void writeState(DataOutput out) throws IOException;
+
+    /**
+     * Moves the source to a position written by writeState. The source must have been constructed
+     * with the same parameters as the one which was saved.
+     * @param in
+     *  the checkpoint being read
+     * @throws IOException
+     *  if the checkpoint cannot be read
+     */
+    void readState(DataInput in) throws IOException;
+}
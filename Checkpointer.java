@@ -0,0 +1,164 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * This class saves checkpoints of a running simulation without making it wait on the disk.
+ * The state is copied into an in-memory snapshot on the simulation thread, which only takes as long as serializing
+ * the lanes, and a background thread writes the snapshot to a temporary file and renames it over the checkpoint,
+ * so the checkpoint file is always either the previous complete checkpoint or the new one.
+ * Two snapshot buffers are reused, so the simulation only blocks when a checkpoint is taken before the previous one
+ * has been written.
+*/
+
+public class Checkpointer implements AutoCloseable {
+    private static final Snapshot END = new Snapshot();
+    private final Path file;
+    private final Path tempFile;
+    private final BlockingQueue<Snapshot> full = new ArrayBlockingQueue<Snapshot>(2);
+    private final BlockingQueue<Snapshot> free = new ArrayBlockingQueue<Snapshot>(2);
+    private final Thread writer;
+    private volatile IOException failure;
+    private boolean closed;
+
+    /**
+     * This is the constructor of the class. It starts the writer thread.
+     * @param file
+     *  the checkpoint file, replaced by every checkpoint
+     */
+    public Checkpointer(Path file){
+        this.file = file;
+        this.tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        free.add(new Snapshot());
+        free.add(new Snapshot());
+        this.writer = new Thread(this::writeSnapshots, "checkpoint-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Takes a snapshot of the simulation and queues it to be written.
+     * @param simulation
+     *  the simulation, between two time steps
+     * @throws UncheckedIOException
+     *  if an earlier checkpoint could not be written
+     * @throws IllegalStateException
+     *  if the checkpointer is closed or the simulation cannot be checkpointed
+     */
+    public void save(Simulation simulation) throws UncheckedIOException, IllegalStateException{
+        if(closed){
+            throw new IllegalStateException("checkpointer is closed");
+        }
+        checkFailure();
+        try{
+            Snapshot snapshot = free.take();
+            snapshot.reset();
+            DataOutputStream out = new DataOutputStream(snapshot);
+            simulation.writeCheckpoint(out);
+            out.flush();
+            full.put(snapshot);
+        }
+        catch(IOException e){
+            throw new UncheckedIOException("could not take checkpoint", e);
+        }
+        catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while taking checkpoint", e);
+        }
+    }
+
+    /**
+     * The writer thread: writes snapshots until the end marker, returning each snapshot to the pool.
+     */
+    private void writeSnapshots(){
+        try{
+            while(true){
+                Snapshot snapshot = full.take();
+                if(snapshot == END){
+                    return;
+                }
+                if(failure == null){
+                    try{
+                        write(snapshot);
+                    }
+                    catch(IOException e){
+                        failure = e;
+                    }
+                }
+                free.put(snapshot);
+            }
+        }
+        catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes a snapshot to the temporary file, forces it to the disk and renames it over the checkpoint.
+     */
+    private void write(Snapshot snapshot) throws IOException{
+        try(FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+            ByteBuffer bytes = snapshot.asByteBuffer();
+            while(bytes.hasRemaining()){
+                channel.write(bytes);
+            }
+            channel.force(true);
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Rethrows a failure of the writer thread.
+     */
+    private void checkFailure(){
+        if(failure != null){
+            throw new UncheckedIOException("could not write checkpoint", failure);
+        }
+    }
+
+    /**
+     * Waits until every queued checkpoint has been written.
+     * @throws IOException
+     *  if a checkpoint could not be written
+     */
+    @Override
+    public void close() throws IOException{
+        if(closed){
+            return;
+        }
+        closed = true;
+        try{
+            full.put(END);
+            writer.join();
+        }
+        catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while closing checkpointer", e);
+        }
+        if(failure != null){
+            throw failure;
+        }
+    }
+
+    /**
+     * A reusable in-memory snapshot which can be written without copying its bytes.
+     */
+    private static class Snapshot extends ByteArrayOutputStream {
+        Snapshot(){
+            super(1 << 16);
+        }
+
+        ByteBuffer asByteBuffer(){
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+}
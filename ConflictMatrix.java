@@ -0,0 +1,185 @@
+/**
+ * This class records which movements of an intersection conflict, so they cannot be released in the same phase.
+ * A movement is one lane of one way of one road, numbered movement(roadIndex, wayIndex, laneIndex): the vehicles
+ * of a left lane turn left, of a middle lane go straight and of a right lane turn right.
+ * The matrix is symmetric and a movement never conflicts with itself. A matrix does not change once built.
+*/
+
+public class ConflictMatrix {
+    public static final int MOVEMENTS_PER_ROAD = TwoWayRoad.NUM_WAYS * TwoWayRoad.NUM_LANES;
+    private final int numRoads;
+    private final boolean[][] conflicts;
+
+    /**
+     * This is the constructor of the class.
+     * @param numRoads
+     *  number of roads, 1 to 4
+     * @param conflicts
+     *  numRoads * 6 rows of numRoads * 6 entries, true where two movements conflict
+     * @throws IllegalArgumentException
+     *  if the matrix is not square with one row per movement, not symmetric, or a movement conflicts with itself
+     */
+    public ConflictMatrix(int numRoads, boolean[][] conflicts) throws IllegalArgumentException{
+        int size = numRoads * MOVEMENTS_PER_ROAD;
+        if(numRoads < 1 || numRoads > 4 || conflicts == null || conflicts.length != size){
+            throw new IllegalArgumentException("conflicts must have one row per movement of 1 to 4 roads");
+        }
+        this.numRoads = numRoads;
+        this.conflicts = new boolean[size][];
+        for(int a = 0; a < size; a++){
+            if(conflicts[a] == null || conflicts[a].length != size || conflicts[a][a]){
+                throw new IllegalArgumentException("conflicts must be square and a movement cannot conflict with itself");
+            }
+            this.conflicts[a] = conflicts[a].clone();
+        }
+        for(int a = 0; a < size; a++){
+            for(int b = 0; b < a; b++){
+                if(conflicts[a][b] != conflicts[b][a]){
+                    throw new IllegalArgumentException("conflicts must be symmetric");
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds the conflicts of roads crossing at one point. The 2 * numRoads approaches are spaced evenly around the
+     * intersection, road r coming in forward at position r and backward at position r + numRoads, and vehicles drive
+     * on the right: a middle lane leaves by the opposite approach, a right lane by the next approach clockwise and a
+     * left lane by the next approach counterclockwise. Every approach has an entry and an exit side, and a movement
+     * is a path from the entry side of its approach to the exit side of another. Two movements conflict if they leave
+     * by the same approach from different ones, or if their paths cross. Movements from the same approach never
+     * conflict. With two roads this gives the usual four-leg crossing: opposing through and right movements run
+     * together, opposing lefts run together, a left conflicts with the opposing through and right movements, and
+     * the right turns of one road can overlap the left turns of the other.
+     * @param numRoads
+     *  number of roads, 1 to 4
+     * @return
+     *  ConflictMatrix
+     * @throws IllegalArgumentException
+     *  if numRoads is not between 1 and 4
+     */
+    public static ConflictMatrix crossing(int numRoads) throws IllegalArgumentException{
+        if(numRoads < 1 || numRoads > 4){
+            throw new IllegalArgumentException("numRoads must be between 1 and 4");
+        }
+        int approaches = 2 * numRoads;
+        int size = numRoads * MOVEMENTS_PER_ROAD;
+        int[] entries = new int[size];
+        int[] exits = new int[size];
+        for(int m = 0; m < size; m++){
+            int approach = roadOf(m) + wayOf(m) * numRoads;
+            int exit;
+            if(laneOf(m) == TwoWayRoad.MIDDLE_LANE){
+                exit = approach + numRoads;
+            }
+            else if(laneOf(m) == TwoWayRoad.RIGHT_LANE){
+                exit = approach + 1;
+            }
+            else{
+                exit = approach - 1 + approaches;
+            }
+            entries[m] = approach;
+            exits[m] = exit % approaches;
+        }
+        boolean[][] conflicts = new boolean[size][size];
+        for(int a = 0; a < size; a++){
+            for(int b = 0; b < size; b++){
+                if(entries[a] != entries[b]){
+                    //around the edge, the exit side of approach k is at 2k and its entry side at 2k + 1
+                    conflicts[a][b] = exits[a] == exits[b] || crosses(2 * entries[a] + 1, 2 * exits[a], 2 * entries[b] + 1, 2 * exits[b]);
+                }
+            }
+        }
+        return new ConflictMatrix(numRoads, conflicts);
+    }
+
+    /**
+     * Returns whether the chords p1-p2 and q1-q2 between four distinct points on a circle cross.
+     */
+    private static boolean crosses(int p1, int p2, int q1, int q2){
+        int low = Math.min(p1, p2);
+        int high = Math.max(p1, p2);
+        boolean q1Inside = q1 > low && q1 < high;
+        boolean q2Inside = q2 > low && q2 < high;
+        return q1Inside != q2Inside;
+    }
+
+    /**
+     * Returns the number of a movement.
+     * @param roadIndex
+     *  index of the road
+     * @param wayIndex
+     *  TwoWayRoad.FORWARD_WAY or TwoWayRoad.BACKWARD_WAY
+     * @param laneIndex
+     *  TwoWayRoad.LEFT_LANE, TwoWayRoad.MIDDLE_LANE or TwoWayRoad.RIGHT_LANE
+     * @return
+     *  int
+     */
+    public static int movement(int roadIndex, int wayIndex, int laneIndex){
+        return roadIndex * MOVEMENTS_PER_ROAD + wayIndex * TwoWayRoad.NUM_LANES + laneIndex;
+    }
+
+    /**
+     * This method returns the road of a movement.
+     * @param movement
+     *  number of the movement
+     * @return
+     *  int
+     */
+    public static int roadOf(int movement){
+        return movement / MOVEMENTS_PER_ROAD;
+    }
+
+    /**
+     * This method returns the way of a movement.
+     * @param movement
+     *  number of the movement
+     * @return
+     *  int
+     */
+    public static int wayOf(int movement){
+        return movement % MOVEMENTS_PER_ROAD / TwoWayRoad.NUM_LANES;
+    }
+
+    /**
+     * This method returns the lane of a movement.
+     * @param movement
+     *  number of the movement
+     * @return
+     *  int
+     */
+    public static int laneOf(int movement){
+        return movement % TwoWayRoad.NUM_LANES;
+    }
+
+    /**
+     * This method returns whether two movements conflict.
+     * @param a
+     *  number of a movement
+     * @param b
+     *  number of another movement
+     * @return
+     *  boolean
+     */
+    public boolean conflicts(int a, int b){
+        return conflicts[a][b];
+    }
+
+    /**
+     * This method returns the number of roads.
+     * @return
+     *  int
+     */
+    public int getNumRoads(){
+        return numRoads;
+    }
+
+    /**
+     * This method returns the number of movements, 6 per road.
+     * @return
+     *  int
+     */
+    public int getNumMovements(){
+        return conflicts.length;
+    }
+}
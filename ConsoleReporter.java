@@ -0,0 +1,69 @@
+/**
+ * This class prints the full trace of a simulation to the terminal, one block per time step.
+ * Each event is formatted by TraceFormatter into a reused StringBuilder and printed with a single call.
+*/
+
+public class ConsoleReporter implements SimulationListener {
+    private final StringBuilder sb = new StringBuilder(4096);
+
+    @Override
+    public void onSimulationStart(){
+        TraceFormatter.appendSimulationStart(sb);
+        print();
+    }
+
+    @Override
+    public void onStepStart(int timeStep, Intersection intersection, boolean arrivalsOpen){
+        TraceFormatter.appendStepStart(sb, timeStep, intersection, arrivalsOpen);
+        print();
+    }
+
+    @Override
+    public void onArrival(int timeStep, Intersection intersection, int roadIndex, int wayIndex, int laneIndex, int serialId){
+        TraceFormatter.appendArrival(sb, intersection, roadIndex, wayIndex, laneIndex, serialId);
+        print();
+    }
+
+    @Override
+    public void onArrivalsEnd(int timeStep){
+        TraceFormatter.appendArrivalsEnd(sb);
+        print();
+    }
+
+    @Override
+    public void onDeparture(int timeStep, int serialId, int waitTime){
+        TraceFormatter.appendDeparture(sb, serialId, waitTime);
+        print();
+    }
+
+    @Override
+    public void onStepEnd(int timeStep, Intersection intersection, SimulationStats stats){
+        TraceFormatter.appendStepEnd(sb, intersection, stats);
+        print();
+    }
+
+    @Override
+    public void onSimulationEnd(SimulationStats stats){
+        TraceFormatter.appendSimulationEnd(sb, stats);
+        print();
+    }
+
+    /**
+     * Prints and clears the StringBuilder.
+     */
+    private void print(){
+        System.out.print(sb);
+        sb.setLength(0);
+    }
+
+    /**
+     * Prints the SIMULATION SUMMARY block.
+     * @param stats
+     *  the final statistics
+     */
+    public static void printSummary(SimulationStats stats){
+        StringBuilder summary = new StringBuilder();
+        TraceFormatter.appendSummary(summary, stats);
+        System.out.print(summary);
+    }
+}
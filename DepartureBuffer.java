@@ -0,0 +1,123 @@
+/**
+ * This class is a reusable, caller-owned buffer of the vehicles which passed through an intersection.
+ * Each departure is stored as primitives (road, way, lane, serial ID and arrival time) in parallel arrays,
+ * so filling the buffer does not allocate once it has grown to the largest number of departures per step.
+*/
+
+public class DepartureBuffer implements DepartureConsumer {
+    private int[] roadIndexes = new int[8];
+    private int[] wayIndexes = new int[8];
+    private int[] laneIndexes = new int[8];
+    private int[] serialIds = new int[8];
+    private int[] timesArrived = new int[8];
+    private int size;
+
+    /**
+     * Removes all departures, keeping the arrays.
+     */
+    public void clear(){
+        size = 0;
+    }
+
+    /**
+     * Adds a departure.
+     * @param roadIndex
+     *  index of the road the vehicle left
+     * @param wayIndex
+     *  direction of the vehicle
+     * @param laneIndex
+     *  lane the vehicle left
+     * @param serialId
+     *  serial ID of the vehicle
+     * @param timeArrived
+     *  time step the vehicle arrived at
+     */
+    public void add(int roadIndex, int wayIndex, int laneIndex, int serialId, int timeArrived){
+        if(size == serialIds.length){
+            int capacity = size * 2;
+            roadIndexes = java.util.Arrays.copyOf(roadIndexes, capacity);
+            wayIndexes = java.util.Arrays.copyOf(wayIndexes, capacity);
+            laneIndexes = java.util.Arrays.copyOf(laneIndexes, capacity);
+            serialIds = java.util.Arrays.copyOf(serialIds, capacity);
+            timesArrived = java.util.Arrays.copyOf(timesArrived, capacity);
+        }
+        roadIndexes[size] = roadIndex;
+        wayIndexes[size] = wayIndex;
+        laneIndexes[size] = laneIndex;
+        serialIds[size] = serialId;
+        timesArrived[size] = timeArrived;
+        size++;
+    }
+
+    /**
+     * Adds a departure; the same as add.
+     */
+    @Override
+    public void accept(int roadIndex, int wayIndex, int laneIndex, int serialId, int timeArrived){
+        add(roadIndex, wayIndex, laneIndex, serialId, timeArrived);
+    }
+
+    /**
+     * This method returns the number of departures in the buffer.
+     * @return
+     *  int
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * This method returns the road index of a departure.
+     * @param i
+     *  index of the departure
+     * @return
+     *  int
+     */
+    public int getRoadIndex(int i){
+        return roadIndexes[i];
+    }
+
+    /**
+     * This method returns the way index of a departure.
+     * @param i
+     *  index of the departure
+     * @return
+     *  int
+     */
+    public int getWayIndex(int i){
+        return wayIndexes[i];
+    }
+
+    /**
+     * This method returns the lane index of a departure.
+     * @param i
+     *  index of the departure
+     * @return
+     *  int
+     */
+    public int getLaneIndex(int i){
+        return laneIndexes[i];
+    }
+
+    /**
+     * This method returns the serial ID of a departure.
+     * @param i
+     *  index of the departure
+     * @return
+     *  int
+     */
+    public int getSerialId(int i){
+        return serialIds[i];
+    }
+
+    /**
+     * This method returns the arrival time of a departure.
+     * @param i
+     *  index of the departure
+     * @return
+     *  int
+     */
+    public int getTimeArrived(int i){
+        return timesArrived[i];
+    }
+}
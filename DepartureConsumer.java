@@ -0,0 +1,22 @@
+/**
+ * This interface receives the vehicles which pass through an intersection, one call per vehicle,
+ * so proceeding a road does not need to build an array of Vehicles.
+*/
+
+@FunctionalInterface
+public interface DepartureConsumer {
+    /**
+     * Receives a vehicle which passed through the intersection.
+     * @param roadIndex
+     *  index of the road the vehicle left
+     * @param wayIndex
+     *  direction of the vehicle
+     * @param laneIndex
+     *  lane the vehicle left
+     * @param serialId
+     *  serial ID of the vehicle
+     * @param timeArrived
+     *  time step the vehicle arrived at
+     */
+    void accept(int roadIndex, int wayIndex, int laneIndex, int serialId, int timeArrived);
+}
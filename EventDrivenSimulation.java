@@ -0,0 +1,231 @@
+/**
+ * This class is a discrete-event alternative to Simulation which skips the time steps where nothing happens.
+ * The event calendar holds at most one pending departure per lane, ordered by time step and by the order
+ * TwoWayRoad.proceed dequeues lanes in, and arrivals are merged in from an ArrivalSchedule. The light phases of the
+ * round-robin cycle are deterministic, so when a lane becomes non-empty the first time step its light lets it
+ * proceed is computed in closed form instead of stepping through the phase changes. The run therefore costs time
+ * proportional to the number of arrivals and departures, and every vehicle gets the same wait time as in Simulation.
+ * Only onSimulationStart, onDeparture and onSimulationEnd are reported to the listener.
+*/
+
+public class EventDrivenSimulation {
+    private static final long NEVER = Long.MAX_VALUE;
+    private static final int LANES_PER_ROAD = TwoWayRoad.NUM_WAYS * TwoWayRoad.NUM_LANES;
+    private final int simulationTime;
+    private final int[] greenTimes;
+    private final int[] leftSignalGreenTimes;
+    private final int[] phaseStarts;
+    private final int cycleLength;
+    private final int[] ranks = new int[LANES_PER_ROAD];
+    private final VehicleQueue[] lanes;
+    private final ArrivalSchedule schedule;
+    private final SimulationListener listener;
+    private final SimulationStats stats;
+    private long[] calendar = new long[16];
+    private int calendarSize;
+    private int serialCounter;
+
+    /**
+     * Constructor which sets up the light cycle and the lanes.
+     * @param simulationTime
+     *  number of time steps during which vehicles arrive
+     * @param roadNames
+     *  names of the roads
+     * @param maxGreenTimes
+     *  green time of each road
+     * @param schedule
+     *  the arrivals, e.g. a SourceArrivalSchedule to match a Simulation or a GeometricArrivalSchedule
+     * @param listener
+     *  listener which receives the departures
+     * @throws IllegalArgumentException
+     *  If roadNames and maxGreenTimes differ in length, there are more than Intersection.MAX_ROADS roads,
+     *  or schedule or listener is null.
+     */
+    public EventDrivenSimulation(int simulationTime, String[] roadNames, int[] maxGreenTimes, ArrivalSchedule schedule, SimulationListener listener) throws IllegalArgumentException{
+        if(roadNames.length != maxGreenTimes.length || schedule == null || listener == null){
+            throw new IllegalArgumentException("roadNames and maxGreenTimes must match and schedule or listener cannot be null");
+        }
+        //an event packs its lane into 5 bits, which holds the 24 lanes of MAX_ROADS roads
+        if(roadNames.length > Intersection.MAX_ROADS){
+            throw new IllegalArgumentException("roads cannot exceed MAX_ROADS");
+        }
+        this.simulationTime = simulationTime;
+        this.greenTimes = new int[roadNames.length];
+        this.leftSignalGreenTimes = new int[roadNames.length];
+        this.phaseStarts = new int[roadNames.length];
+        int start = 0;
+        for(int i = 0; i < roadNames.length; i++){
+            TwoWayRoad road = new TwoWayRoad(roadNames[i], maxGreenTimes[i]);
+            greenTimes[i] = road.getGreenTime();
+            leftSignalGreenTimes[i] = road.getLeftSignalGreenTime();
+            phaseStarts[i] = start;
+            start += greenTimes[i];
+        }
+        this.cycleLength = start;
+        for(int rank = 0; rank < TwoWayRoad.GREEN_MOVEMENTS.length; rank++){
+            ranks[laneOffset(TwoWayRoad.GREEN_MOVEMENTS[rank][0], TwoWayRoad.GREEN_MOVEMENTS[rank][1])] = rank;
+        }
+        for(int rank = 0; rank < TwoWayRoad.LEFT_MOVEMENTS.length; rank++){
+            ranks[laneOffset(TwoWayRoad.LEFT_MOVEMENTS[rank][0], TwoWayRoad.LEFT_MOVEMENTS[rank][1])] = rank;
+        }
+        this.lanes = new VehicleQueue[roadNames.length * LANES_PER_ROAD];
+        for(int i = 0; i < lanes.length; i++){
+            lanes[i] = new VehicleQueue();
+        }
+        this.schedule = schedule;
+        this.listener = listener;
+        this.stats = new SimulationStats(roadNames.length);
+    }
+
+    /**
+     * Runs the simulation until there are no more arrivals and every lane is empty.
+     * @return
+     *  the final statistics, equal to those of a Simulation with the same arrivals
+     * @throws IllegalStateException
+     *  if vehicles are waiting on a lane whose light never lets it proceed, where Simulation would never end
+     */
+    public SimulationStats run() throws IllegalStateException{
+        listener.onSimulationStart();
+        long lastTime = simulationTime;
+        boolean arrivalsLeft = schedule.advance();
+        while(arrivalsLeft || calendarSize > 0){
+            if(arrivalsLeft && (calendarSize == 0 || schedule.time() <= (calendar[0] >>> 8))){
+                arrive(schedule.time(), schedule.roadIndex() * LANES_PER_ROAD + laneOffset(schedule.wayIndex(), schedule.laneIndex()));
+                arrivalsLeft = schedule.advance();
+            }
+            else{
+                long event = pollEvent();
+                long time = event >>> 8;
+                depart(time, (int)(event & 31));
+                lastTime = Math.max(lastTime, time);
+            }
+        }
+        for(int i = 0; i < lanes.length; i++){
+            if(!lanes[i].isEmpty()){
+                throw new IllegalStateException("vehicles are waiting on a lane which never gets a signal");
+            }
+        }
+        stats.endStep((int)lastTime);
+        listener.onSimulationEnd(stats);
+        return stats;
+    }
+
+    /**
+     * Enqueues an arriving vehicle, scheduling its departure if its lane was empty.
+     */
+    private void arrive(int time, int lane){
+        int serialId = ++serialCounter;
+        boolean wasEmpty = lanes[lane].isEmpty();
+        lanes[lane].enqueue(serialId, time);
+        stats.recordArrival();
+        if(wasEmpty){
+            scheduleDeparture(lane, time);
+        }
+    }
+
+    /**
+     * Dequeues the first vehicle of a lane and schedules the next one.
+     */
+    private void depart(long time, int lane){
+        VehicleQueue queue = lanes[lane];
+        int waitTime = (int)(time - queue.peekTimeArrived());
+        int serialId = queue.peekSerialId();
+        queue.remove();
+        int offset = lane % LANES_PER_ROAD;
+        int roadIndex = lane / LANES_PER_ROAD;
+        int wayIndex = offset / TwoWayRoad.NUM_LANES;
+        int laneIndex = offset % TwoWayRoad.NUM_LANES;
+        stats.recordDeparture(roadIndex, wayIndex, laneIndex, waitTime);
+        listener.onDeparture((int)time, roadIndex, wayIndex, laneIndex, serialId, waitTime);
+        if(!queue.isEmpty()){
+            scheduleDeparture(lane, time + 1);
+        }
+    }
+
+    /**
+     * Schedules the departure of the first vehicle of a lane at the first time step from time its light lets it proceed.
+     */
+    private void scheduleDeparture(int lane, long time){
+        long departure = nextServiceTime(lane, time);
+        if(departure != NEVER){
+            addEvent((departure << 8) | (ranks[lane % LANES_PER_ROAD] << 5) | lane);
+        }
+    }
+
+    /**
+     * Computes the first time step at or after time in which a lane may proceed.
+     * Time step 1 is the first step of road 0's green time, and the roads follow each other in a cycle of cycleLength.
+     * @return
+     *  the time step, or NEVER if the lane's signal has no time steps
+     */
+    long nextServiceTime(int lane, long time){
+        int road = lane / LANES_PER_ROAD;
+        boolean left = lane % TwoWayRoad.NUM_LANES == TwoWayRoad.LEFT_LANE;
+        int straightTime = greenTimes[road] - leftSignalGreenTimes[road];
+        int windowStart = left ? phaseStarts[road] + straightTime : phaseStarts[road];
+        int windowLength = left ? leftSignalGreenTimes[road] : straightTime;
+        if(windowLength == 0){
+            return NEVER;
+        }
+        long position = (time - 1) % cycleLength;
+        long cycleStart = time - 1 - position;
+        if(position < windowStart){
+            return cycleStart + windowStart + 1;
+        }
+        if(position < windowStart + windowLength){
+            return time;
+        }
+        return cycleStart + cycleLength + windowStart + 1;
+    }
+
+    /**
+     * This method returns the index of a lane within its road.
+     */
+    private static int laneOffset(int wayIndex, int laneIndex){
+        return wayIndex * TwoWayRoad.NUM_LANES + laneIndex;
+    }
+
+    /**
+     * Adds an event to the calendar, a binary min-heap of time step, rank and lane packed into a long.
+     */
+    private void addEvent(long event){
+        if(calendarSize == calendar.length){
+            calendar = java.util.Arrays.copyOf(calendar, calendarSize * 2);
+        }
+        int i = calendarSize++;
+        while(i > 0){
+            int parent = (i - 1) >>> 1;
+            if(calendar[parent] <= event){
+                break;
+            }
+            calendar[i] = calendar[parent];
+            i = parent;
+        }
+        calendar[i] = event;
+    }
+
+    /**
+     * Removes and returns the earliest event of the calendar.
+     */
+    private long pollEvent(){
+        long first = calendar[0];
+        long last = calendar[--calendarSize];
+        int i = 0;
+        while(true){
+            int child = 2 * i + 1;
+            if(child >= calendarSize){
+                break;
+            }
+            if(child + 1 < calendarSize && calendar[child + 1] < calendar[child]){
+                child++;
+            }
+            if(calendar[child] >= last){
+                break;
+            }
+            calendar[i] = calendar[child];
+            i = child;
+        }
+        calendar[i] = last;
+        return first;
+    }
+}
@@ -0,0 +1,86 @@
+import java.util.SplittableRandom;
+
+/**
+ * This class generates arrivals without visiting idle time steps: the gap to each lane's next arrival is drawn from
+ * a geometric distribution, which is the gap between successes of one Bernoulli trial per time step.
+ * Work is proportional to the number of arrivals. Unlike the tick engine there is no limit of six vehicles per step.
+*/
+
+public class GeometricArrivalSchedule implements ArrivalSchedule {
+    private final SplittableRandom random;
+    private final double logMiss;
+    private final int simulationTime;
+    private final long[] nextTimes;
+    private int lane = -1;
+
+    /**
+     * This is the constructor of the class.
+     * @param p
+     *  probability of an arrival on each lane at each time step
+     * @param seed
+     *  seed of the random generator
+     * @param simulationTime
+     *  number of time steps during which vehicles arrive
+     * @param numRoads
+     *  number of roads
+     * @throws IllegalArgumentException
+     *  if p is not between 0.0 and 1.0
+     */
+    public GeometricArrivalSchedule(double p, long seed, int simulationTime, int numRoads) throws IllegalArgumentException{
+        if(p < 0.0 || p > 1.0){
+            throw new IllegalArgumentException("p must be between 0.0 and 1.0");
+        }
+        this.random = new SplittableRandom(seed);
+        this.logMiss = Math.log1p(-p);
+        this.simulationTime = simulationTime;
+        this.nextTimes = new long[numRoads * TwoWayRoad.NUM_WAYS * TwoWayRoad.NUM_LANES];
+        for(int i = 0; i < nextTimes.length; i++){
+            nextTimes[i] = p == 0.0 ? Long.MAX_VALUE : gap();
+        }
+    }
+
+    /**
+     * Draws the number of time steps until the next arrival on a lane, at least 1.
+     */
+    private long gap(){
+        if(logMiss == Double.NEGATIVE_INFINITY){
+            return 1;
+        }
+        double u = 1.0 - random.nextDouble();
+        return 1 + (long)(Math.log(u) / logMiss);
+    }
+
+    @Override
+    public boolean advance(){
+        if(lane >= 0){
+            nextTimes[lane] += gap();
+        }
+        lane = 0;
+        for(int i = 1; i < nextTimes.length; i++){
+            if(nextTimes[i] < nextTimes[lane]){
+                lane = i;
+            }
+        }
+        return nextTimes[lane] <= simulationTime;
+    }
+
+    @Override
+    public int time(){
+        return (int)nextTimes[lane];
+    }
+
+    @Override
+    public int roadIndex(){
+        return lane / (TwoWayRoad.NUM_WAYS * TwoWayRoad.NUM_LANES);
+    }
+
+    @Override
+    public int wayIndex(){
+        return lane / TwoWayRoad.NUM_LANES % TwoWayRoad.NUM_WAYS;
+    }
+
+    @Override
+    public int laneIndex(){
+        return lane % TwoWayRoad.NUM_LANES;
+    }
+}
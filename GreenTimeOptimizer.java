@@ -0,0 +1,504 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * This class searches for the signal plan of a fixed round-robin intersection which minimizes the mean or the
+ * 95th percentile wait, using the simulator itself as the objective. A plan is the green time of each road and,
+ * optionally, the left signal time of each road.
+ * The search is a cross-entropy method: every generation samples a population of plans around a mean, and moves
+ * the mean and spread towards the best plans of the generation until the spread collapses.
+ * Every plan is evaluated on the same replication seeds (common random numbers), so plans are compared on the
+ * same arrivals. Evaluation races the plans: all are run on one replication, the better half on two, and so on
+ * until the survivors have every replication, so weak plans stop early. A plan sampled again is not run again.
+ * Replications run in parallel on a fork-join pool, each worker reusing one Simulation through reset.
+*/
+
+public class GreenTimeOptimizer {
+    /**
+     * The wait time statistics a plan can be judged by.
+     */
+    public enum Objective { MEAN_WAIT, P95_WAIT }
+
+    private static final double SMOOTHING = 0.7;
+    private static final int PATIENCE = 8;
+    private final int simulationTime;
+    private final int numRoads;
+    private final double arrivalProbability;
+    private final ArrivalProfile profile;
+    private final int maxArrivals;
+    private final Objective objective;
+    private final int replications;
+    private final ForkJoinPool pool;
+    private final long baseSeed;
+    private final ThreadLocal<Simulation> simulations = ThreadLocal.withInitial(this::newSimulation);
+    private int minGreenTime = 3;
+    private int maxGreenTime = 60;
+    private boolean optimizeLeftSignal;
+    private int population = 24;
+    private int eliteCount = 6;
+    private int maxGenerations = 40;
+
+    /**
+     * This is the constructor of the class, for arrivals with the same probability on every lane.
+     * @param simulationTime
+     *  number of time steps during which vehicles arrive
+     * @param numRoads
+     *  number of roads, 1 to 4
+     * @param arrivalProbability
+     *  probability of a vehicle arriving on each lane at each time step
+     * @param objective
+     *  the statistic to minimize
+     * @param replications
+     *  number of replications the best plans are judged on
+     * @param parallelism
+     *  number of worker threads
+     * @param baseSeed
+     *  seed from which the search and the seed of every replication are derived
+     * @throws IllegalArgumentException
+     *  if a value is out of range
+     */
+    public GreenTimeOptimizer(int simulationTime, int numRoads, double arrivalProbability, Objective objective, int replications,
+        int parallelism, long baseSeed) throws IllegalArgumentException{
+        this(simulationTime, numRoads, arrivalProbability, null, 1, objective, replications, parallelism, baseSeed);
+    }
+
+    /**
+     * This is the constructor of the class, for arrivals following a demand profile.
+     * @param simulationTime
+     *  number of time steps during which vehicles arrive
+     * @param profile
+     *  the demand profile, which also gives the number of roads
+     * @param maxArrivals
+     *  most arrivals per time step, as for ProfileArrivalSchedule
+     * @param objective
+     *  the statistic to minimize
+     * @param replications
+     *  number of replications the best plans are judged on
+     * @param parallelism
+     *  number of worker threads
+     * @param baseSeed
+     *  seed from which the search and the seed of every replication are derived
+     * @throws IllegalArgumentException
+     *  if a value is out of range
+     */
+    public GreenTimeOptimizer(int simulationTime, ArrivalProfile profile, int maxArrivals, Objective objective, int replications,
+        int parallelism, long baseSeed) throws IllegalArgumentException{
+        this(simulationTime, profile.getNumRoads(), 0.0, profile, maxArrivals, objective, replications, parallelism, baseSeed);
+    }
+
+    private GreenTimeOptimizer(int simulationTime, int numRoads, double arrivalProbability, ArrivalProfile profile, int maxArrivals,
+        Objective objective, int replications, int parallelism, long baseSeed) throws IllegalArgumentException{
+        if(simulationTime < 0 || numRoads < 1 || numRoads > 4 || !(arrivalProbability >= 0.0 && arrivalProbability <= 1.0)
+            || maxArrivals < 1 || objective == null || replications < 1 || parallelism < 1){
+            throw new IllegalArgumentException("invalid optimizer configuration");
+        }
+        this.simulationTime = simulationTime;
+        this.numRoads = numRoads;
+        this.arrivalProbability = arrivalProbability;
+        this.profile = profile;
+        this.maxArrivals = maxArrivals;
+        this.objective = objective;
+        this.replications = replications;
+        this.pool = new ForkJoinPool(parallelism);
+        this.baseSeed = baseSeed;
+    }
+
+    /**
+     * Sets the range of green times searched, 3 to 60 by default.
+     * @param minGreenTime
+     *  shortest green time, at least 3 so every road keeps a left signal
+     * @param maxGreenTime
+     *  longest green time
+     * @throws IllegalArgumentException
+     *  if minGreenTime &lt; 3 or maxGreenTime &lt; minGreenTime
+     */
+    public void setGreenTimeRange(int minGreenTime, int maxGreenTime) throws IllegalArgumentException{
+        if(minGreenTime < 3 || maxGreenTime < minGreenTime){
+            throw new IllegalArgumentException("green times must be at least 3 and the range cannot be empty");
+        }
+        this.minGreenTime = minGreenTime;
+        this.maxGreenTime = maxGreenTime;
+    }
+
+    /**
+     * Sets whether the left signal time of each road is searched as well, instead of keeping a third of the green time.
+     * @param optimizeLeftSignal
+     *  true to search the left signal times
+     */
+    public void setOptimizeLeftSignal(boolean optimizeLeftSignal){
+        this.optimizeLeftSignal = optimizeLeftSignal;
+    }
+
+    /**
+     * Sets the number of plans sampled in each generation and how many of the best move the search, 24 and 6 by default.
+     * @param population
+     *  plans sampled in each generation
+     * @param eliteCount
+     *  best plans of a generation which the next generation is sampled around
+     * @throws IllegalArgumentException
+     *  if eliteCount &lt; 2 or population &lt; eliteCount
+     */
+    public void setPopulation(int population, int eliteCount) throws IllegalArgumentException{
+        if(eliteCount < 2 || population < eliteCount){
+            throw new IllegalArgumentException("eliteCount must be at least 2 and population at least eliteCount");
+        }
+        this.population = population;
+        this.eliteCount = eliteCount;
+    }
+
+    /**
+     * Sets the most generations the search runs if it does not converge first, 40 by default.
+     * @param maxGenerations
+     *  most generations
+     * @throws IllegalArgumentException
+     *  if maxGenerations &lt; 1
+     */
+    public void setMaxGenerations(int maxGenerations) throws IllegalArgumentException{
+        if(maxGenerations < 1){
+            throw new IllegalArgumentException("maxGenerations must be at least 1");
+        }
+        this.maxGenerations = maxGenerations;
+    }
+
+    /**
+     * Searches for the best plan, starting around the given green times with a third of each for the left signal.
+     * The search converges once the green times sampled are spread by less than half a time step and the left
+     * signal fractions by less than 0.02, or once the best plan has not improved for 8 generations.
+     * @param startGreenTimes
+     *  green time of each road to start from
+     * @return
+     *  the best plan and how the search converged
+     * @throws IllegalArgumentException
+     *  if startGreenTimes does not have one green time per road within the green time range
+     */
+    public OptimizationResult optimize(int[] startGreenTimes) throws IllegalArgumentException{
+        if(startGreenTimes == null || startGreenTimes.length != numRoads){
+            throw new IllegalArgumentException("startGreenTimes must have " + numRoads + " green times");
+        }
+        int dimensions = optimizeLeftSignal ? 2 * numRoads : numRoads;
+        double[] mean = new double[dimensions];
+        double[] sigma = new double[dimensions];
+        int[] startLeftTimes = optimizeLeftSignal ? new int[numRoads] : null;
+        for(int i = 0; i < numRoads; i++){
+            if(startGreenTimes[i] < minGreenTime || startGreenTimes[i] > maxGreenTime){
+                throw new IllegalArgumentException("start green times must be between " + minGreenTime + " and " + maxGreenTime);
+            }
+            mean[i] = startGreenTimes[i];
+            sigma[i] = (maxGreenTime - minGreenTime) / 4.0;
+            if(optimizeLeftSignal){
+                startLeftTimes[i] = (int)Math.floor(TwoWayRoad.DEFAULT_LEFT_SIGNAL_FRACTION * startGreenTimes[i]);
+                mean[numRoads + i] = TwoWayRoad.DEFAULT_LEFT_SIGNAL_FRACTION;
+                sigma[numRoads + i] = 0.15;
+            }
+        }
+        Random random = new Random(baseSeed);
+        Map<String, Candidate> candidates = new HashMap<String, Candidate>();
+        Comparator<Candidate> byObjective = Comparator.comparingDouble(this::value).thenComparingDouble(c -> c.waitTimes.getMean());
+        Candidate start = candidate(startGreenTimes, startLeftTimes, candidates);
+        long runs = evaluate(Arrays.asList(start), replications);
+        long fullRuns = replications;
+        Candidate best = start;
+        double[] bestValues = new double[maxGenerations];
+        double[] greenSpreads = new double[maxGenerations];
+        long[] runsByGeneration = new long[maxGenerations];
+        boolean converged = false;
+        int generation = 0;
+        int unimproved = 0;
+        while(generation < maxGenerations && !converged){
+            Map<String, Candidate> sampled = new LinkedHashMap<String, Candidate>();
+            for(int k = 0; k < population; k++){
+                int[] greenTimes = new int[numRoads];
+                int[] leftTimes = optimizeLeftSignal ? new int[numRoads] : null;
+                for(int i = 0; i < numRoads; i++){
+                    greenTimes[i] = clamp((int)Math.round(mean[i] + sigma[i] * random.nextGaussian()), minGreenTime, maxGreenTime);
+                    if(optimizeLeftSignal){
+                        double fraction = mean[numRoads + i] + sigma[numRoads + i] * random.nextGaussian();
+                        leftTimes[i] = clamp((int)Math.round(fraction * greenTimes[i]), 1, greenTimes[i] - 1);
+                    }
+                }
+                Candidate c = candidate(greenTimes, leftTimes, candidates);
+                sampled.put(c.key, c);
+            }
+            fullRuns += (long)population * replications;
+
+            //race the plans on more and more replications, keeping the better half after each round
+            List<Candidate> survivors = new ArrayList<Candidate>(sampled.values());
+            for(int target = 1; ; target = Math.min(2 * target, replications)){
+                runs += evaluate(survivors, target);
+                survivors.sort(byObjective);
+                if(target == replications){
+                    break;
+                }
+                int keep = Math.max(eliteCount, (survivors.size() + 1) / 2);
+                survivors = new ArrayList<Candidate>(survivors.subList(0, Math.min(keep, survivors.size())));
+            }
+            List<Candidate> elites = survivors.subList(0, Math.min(eliteCount, survivors.size()));
+            if(byObjective.compare(elites.get(0), best) < 0){
+                best = elites.get(0);
+                unimproved = 0;
+            }
+            else{
+                unimproved++;
+            }
+
+            double spread = 0.0;
+            converged = true;
+            for(int d = 0; d < dimensions; d++){
+                double eliteMean = 0.0;
+                for(Candidate c : elites){
+                    eliteMean += c.coordinate(d, numRoads);
+                }
+                eliteMean /= elites.size();
+                double variance = 0.0;
+                for(Candidate c : elites){
+                    double delta = c.coordinate(d, numRoads) - eliteMean;
+                    variance += delta * delta;
+                }
+                mean[d] = SMOOTHING * eliteMean + (1 - SMOOTHING) * mean[d];
+                sigma[d] = SMOOTHING * Math.sqrt(variance / elites.size()) + (1 - SMOOTHING) * sigma[d];
+                if(d < numRoads){
+                    spread += sigma[d] / numRoads;
+                }
+                if(sigma[d] >= (d < numRoads ? 0.5 : 0.02)){
+                    converged = false;
+                }
+            }
+            if(unimproved >= PATIENCE){
+                converged = true;
+            }
+            bestValues[generation] = value(best);
+            greenSpreads[generation] = spread;
+            runsByGeneration[generation] = runs;
+            generation++;
+        }
+        return new OptimizationResult(best.config, value(best), value(start), Arrays.copyOf(bestValues, generation),
+            Arrays.copyOf(greenSpreads, generation), Arrays.copyOf(runsByGeneration, generation), fullRuns - runs, converged);
+    }
+
+    /**
+     * Shuts down the worker threads.
+     */
+    public void shutdown(){
+        pool.shutdown();
+    }
+
+    /**
+     * Returns the candidate for a plan, creating it if the plan was never sampled.
+     */
+    private Candidate candidate(int[] greenTimes, int[] leftTimes, Map<String, Candidate> candidates){
+        String key = Arrays.toString(greenTimes) + (leftTimes == null ? "" : Arrays.toString(leftTimes));
+        Candidate c = candidates.get(key);
+        if(c == null){
+            double[] fractions = null;
+            if(leftTimes != null){
+                //half a step above the left time, so rounding the fraction back down gives exactly the left time
+                fractions = new double[numRoads];
+                for(int i = 0; i < numRoads; i++){
+                    fractions[i] = (leftTimes[i] + 0.5) / greenTimes[i];
+                }
+            }
+            c = new Candidate(key, greenTimes, leftTimes, new SweepConfig(simulationTime, arrivalProbability, greenTimes, fractions,
+                RoundRobinSignalController.INSTANCE));
+            candidates.put(key, c);
+        }
+        return c;
+    }
+
+    /**
+     * Runs every candidate on the replications it has not run yet, up to target, in parallel.
+     * @return
+     *  the number of runs
+     */
+    private long evaluate(List<Candidate> candidates, int target){
+        List<Callable<WaitTimeHistogram>> tasks = new ArrayList<Callable<WaitTimeHistogram>>();
+        for(Candidate c : candidates){
+            for(int r = c.replicationsDone; r < target; r++){
+                final int replication = r;
+                tasks.add(() -> runReplication(c.config, replication));
+            }
+        }
+        List<Future<WaitTimeHistogram>> futures = pool.invokeAll(tasks);
+        int next = 0;
+        for(Candidate c : candidates){
+            for(; c.replicationsDone < target; c.replicationsDone++){
+                c.waitTimes.merge(join(futures.get(next++)));
+            }
+        }
+        return tasks.size();
+    }
+
+    /**
+     * Runs one replication of a plan on this worker's simulation.
+     */
+    private WaitTimeHistogram runReplication(SweepConfig config, int replication){
+        Simulation simulation = simulations.get();
+        long seed = SweepRunner.replicationSeed(baseSeed, replication);
+        if(profile != null){
+            simulation.reset(config, new ProfileArrivalSchedule(profile, seed, simulationTime, maxArrivals));
+        }
+        else{
+            simulation.reset(config, seed);
+        }
+        WaitTimeHistogram waitTimes = new WaitTimeHistogram();
+        waitTimes.merge(simulation.run().getWaitTimes());
+        return waitTimes;
+    }
+
+    /**
+     * Builds the simulation a worker reuses for every replication.
+     */
+    private Simulation newSimulation(){
+        int[] greenTimes = new int[numRoads];
+        Arrays.fill(greenTimes, minGreenTime);
+        String[] roadNames = new SweepConfig(simulationTime, arrivalProbability, greenTimes).getRoadNames();
+        SimulationListener listener = new SimulationListener(){};
+        Simulation simulation;
+        if(profile != null){
+            simulation = new Simulation(simulationTime, roadNames, greenTimes, new ProfileArrivalSchedule(profile, baseSeed, simulationTime, maxArrivals),
+                RoundRobinSignalController.INSTANCE, listener);
+        }
+        else{
+            simulation = new Simulation(simulationTime, roadNames, greenTimes, new SeededArrivalSource(arrivalProbability, baseSeed), listener);
+        }
+        simulation.setFastForwardDrain(true);
+        return simulation;
+    }
+
+    /**
+     * Returns the objective of a candidate on the replications it has run.
+     */
+    private double value(Candidate c){
+        return objective == Objective.MEAN_WAIT ? c.waitTimes.getMean() : c.waitTimes.getValueAtPercentile(95.0);
+    }
+
+    /**
+     * Waits for a replication, rethrowing its failure.
+     */
+    private static WaitTimeHistogram join(Future<WaitTimeHistogram> future){
+        try{
+            return future.get();
+        }
+        catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("optimizer interrupted", e);
+        }
+        catch(ExecutionException e){
+            throw new IllegalStateException("replication failed", e.getCause());
+        }
+    }
+
+    private static int clamp(int value, int min, int max){
+        return Math.max(min, Math.min(max, value));
+    }
+
+    /**
+     * One plan and the wait times of the replications it has run so far.
+     */
+    private static final class Candidate {
+        private final String key;
+        private final int[] greenTimes;
+        private final int[] leftTimes;
+        private final SweepConfig config;
+        private final WaitTimeHistogram waitTimes = new WaitTimeHistogram();
+        private int replicationsDone;
+
+        Candidate(String key, int[] greenTimes, int[] leftTimes, SweepConfig config){
+            this.key = key;
+            this.greenTimes = greenTimes;
+            this.leftTimes = leftTimes;
+            this.config = config;
+        }
+
+        /**
+         * Returns a coordinate of the plan in the search space: a green time, then a left signal fraction per road.
+         */
+        double coordinate(int dimension, int numRoads){
+            if(dimension < numRoads){
+                return greenTimes[dimension];
+            }
+            return (double)leftTimes[dimension - numRoads] / greenTimes[dimension - numRoads];
+        }
+    }
+
+    /**
+     * Start for the optimizer.
+     * @param args
+     *  the simulation time, the number of replications, an arrival probability or a demand profile file,
+     *  the comma separated green times to start from, e.g. 1000 8 0.2 10,10,10, optionally followed by the objective,
+     *  "mean" or "p95", and "left" to search the left signal times as well
+     */
+    public static void main(String[] args){
+        if(args.length < 4){
+            System.out.println("Usage: java GreenTimeOptimizer <simulationTime> <replications> <p|profile.csv> <g1,g2,...> [mean|p95] [left]");
+            return;
+        }
+        int simulationTime = Integer.parseInt(args[0]);
+        int replications = Integer.parseInt(args[1]);
+        String[] greenArgs = args[3].split(",");
+        int[] startGreenTimes = new int[greenArgs.length];
+        for(int i = 0; i < startGreenTimes.length; i++){
+            startGreenTimes[i] = Integer.parseInt(greenArgs[i].trim());
+        }
+        Objective objective = Objective.MEAN_WAIT;
+        if(args.length > 4){
+            if(args[4].equals("p95")){
+                objective = Objective.P95_WAIT;
+            }
+            else if(!args[4].equals("mean")){
+                System.out.println("Objective must be mean or p95");
+                return;
+            }
+        }
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        GreenTimeOptimizer optimizer;
+        try{
+            optimizer = new GreenTimeOptimizer(simulationTime, startGreenTimes.length, Double.parseDouble(args[2]), objective,
+                replications, parallelism, 2023L);
+        }
+        catch(NumberFormatException e){
+            try{
+                optimizer = new GreenTimeOptimizer(simulationTime, ArrivalProfile.load(Path.of(args[2]), startGreenTimes.length), 6,
+                    objective, replications, parallelism, 2023L);
+            }
+            catch(IOException ex){
+                System.out.println(ex.getMessage());
+                return;
+            }
+        }
+        optimizer.setOptimizeLeftSignal(args.length > 5 && args[5].equals("left"));
+
+        long start = System.nanoTime();
+        OptimizationResult result = optimizer.optimize(startGreenTimes);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        optimizer.shutdown();
+
+        String label = objective == Objective.MEAN_WAIT ? "MEAN WAIT" : "P95 WAIT";
+        System.out.println(String.format("%-10s %10s %10s %10s", "GENERATION", "BEST", "SPREAD", "RUNS"));
+        for(int g = 0; g < result.getGenerations(); g++){
+            System.out.println(String.format("%-10d %10.2f %10.2f %10d", g + 1, result.getBestValue(g), result.getGreenSpread(g), result.getRuns(g)));
+        }
+        SweepConfig best = result.getBest();
+        int[] greenTimes = best.getMaxGreenTimes();
+        double[] fractions = best.getLeftSignalFractions();
+        System.out.println();
+        for(int i = 0; i < greenTimes.length; i++){
+            int leftTime = (int)Math.floor((fractions == null ? TwoWayRoad.DEFAULT_LEFT_SIGNAL_FRACTION : fractions[i]) * greenTimes[i]);
+            System.out.println(String.format("Road %d: green %d, left signal %d", i + 1, greenTimes[i], leftTime));
+        }
+        System.out.println(String.format("%s %.2f, from %.2f at %s", label, result.getBestValue(), result.getStartValue(), Arrays.toString(startGreenTimes)));
+        System.out.println(String.format("%s after %d generations, %d runs (%d skipped) in %.3f s",
+            result.isConverged() ? "Converged" : "Stopped", result.getGenerations(), result.getRuns(), result.getRunsSaved(), seconds));
+    }
+}
@@ -6,10 +6,17 @@ public class Intersection {
     private TwoWayRoad[] roads;
     private int lightIndex;
     private int countdownTimer;
-    private final int MAX_ROADS = 4;
+    private int turnElapsed;
+    private int vehicleCount;
+    private SignalController signalController;
+    private PhasePlan phasePlan;
+    private int phaseIndex;
+    private DepartureBuffer phaseDepartures;
+    public static final int MAX_ROADS = 4;
+    private final StringBuilder laneBuilder = new StringBuilder();
 
     /**
-     * Constructor which initializes the roads array.
+     * Constructor which initializes the roads array, with the fixed round-robin signal plan.
      * @param initRoads
      *  Array of roads to be used by this intersection.
      * @throws IllegalArgumentException
@@ -18,7 +25,22 @@ public class Intersection {
      *  initRoads.length > MAX_ROADS.
      */
     public Intersection(TwoWayRoad[] initRoads) throws IllegalArgumentException{  
-        if(initRoads == null || initRoads.length > MAX_ROADS){
+        this(initRoads, RoundRobinSignalController.INSTANCE);
+    }
+
+    /**
+     * Constructor which initializes the roads array, with the signal plan of a controller.
+     * @param initRoads
+     *  Array of roads to be used by this intersection.
+     * @param signalController
+     *  The controller which decides which road has the light and for how long.
+     * @throws IllegalArgumentException
+     *  If initRoads or signalController is null.
+     *  If any index of initRoads is null.
+     *  initRoads.length > MAX_ROADS.
+     */
+    public Intersection(TwoWayRoad[] initRoads, SignalController signalController) throws IllegalArgumentException{
+        if(initRoads == null || initRoads.length > MAX_ROADS || signalController == null){
             throw new IllegalArgumentException("roads cannot be null or exceed MAX_ROADS");
         }
         for(int i = 0; i < initRoads.length; i++){
@@ -27,8 +49,122 @@ public class Intersection {
             }
         }
         this.roads = initRoads;
+        for(int i = 0; i < initRoads.length; i++){
+            initRoads[i].setIntersection(this);
+            vehicleCount += initRoads[i].getVehicleCount();
+        }
+        this.signalController = signalController;
         this.lightIndex = 0;
-        this.countdownTimer = initRoads[lightIndex].getGreenTime();
+        this.countdownTimer = signalController.startTurn(this, lightIndex);
+    }
+
+    /**
+     * Empties the intersection and reconfigures its roads and signal plan for another run, as if it had just been
+     * built from new roads, without allocating. A phase plan is removed.
+     * @param roadNames
+     *  the new name of each road
+     * @param greenTimes
+     *  the new green time of each road
+     * @param signalController
+     *  The controller which decides which road has the light and for how long.
+     * @throws IllegalArgumentException
+     *  If roadNames or greenTimes do not have one entry per road, or signalController is null.
+     *  If a name is null or a green time is not greater than 0.
+     */
+    public void reset(String[] roadNames, int[] greenTimes, SignalController signalController) throws IllegalArgumentException{
+        reset(roadNames, greenTimes, null, signalController);
+    }
+
+    /**
+     * Empties the intersection and reconfigures it like reset(roadNames, greenTimes, signalController), with the
+     * fraction of each green time given to the left signal.
+     * @param roadNames
+     *  the new name of each road
+     * @param greenTimes
+     *  the new green time of each road
+     * @param leftSignalFractions
+     *  the new left signal fraction of each road, or null for TwoWayRoad.DEFAULT_LEFT_SIGNAL_FRACTION
+     * @param signalController
+     *  The controller which decides which road has the light and for how long.
+     * @throws IllegalArgumentException
+     *  If roadNames, greenTimes or leftSignalFractions do not have one entry per road, or signalController is null.
+     *  If a name is null, a green time is not greater than 0 or a fraction is not valid for its green time,
+     *  see TwoWayRoad.isValidLeftSignalFraction.
+     */
+    public void reset(String[] roadNames, int[] greenTimes, double[] leftSignalFractions, SignalController signalController) throws IllegalArgumentException{
+        if(roadNames == null || greenTimes == null || roadNames.length != roads.length || greenTimes.length != roads.length || signalController == null
+            || (leftSignalFractions != null && leftSignalFractions.length != roads.length)){
+            throw new IllegalArgumentException("roadNames and greenTimes must have one entry per road and signalController cannot be null");
+        }
+        for(int i = 0; i < roads.length; i++){
+            if(roadNames[i] == null || greenTimes[i] <= 0){
+                throw new IllegalArgumentException("road names cannot be null and green times must be greater than 0");
+            }
+            if(leftSignalFractions != null && !TwoWayRoad.isValidLeftSignalFraction(leftSignalFractions[i], greenTimes[i])){
+                throw new IllegalArgumentException("left signal fractions must leave a green step and a left signal step");
+            }
+        }
+        for(int i = 0; i < roads.length; i++){
+            if(leftSignalFractions == null){
+                roads[i].reset(roadNames[i], greenTimes[i]);
+            }
+            else{
+                roads[i].reset(roadNames[i], greenTimes[i], leftSignalFractions[i]);
+            }
+        }
+        this.signalController = signalController;
+        this.phasePlan = null;
+        this.phaseIndex = 0;
+        this.lightIndex = 0;
+        this.turnElapsed = 0;
+        this.countdownTimer = signalController.startTurn(this, lightIndex);
+    }
+
+    /**
+     * Makes the intersection run a multi-phase signal plan instead of its signal controller, starting at the first
+     * phase, or go back to its signal controller. While a plan runs, the countdown timer counts down the time steps
+     * left in the current phase and the light index is the lead road of the phase, its first road with a released lane.
+     * @param phasePlan
+     *  the plan, or null for the signal controller
+     * @throws IllegalArgumentException
+     *  If the plan is not for as many roads as the intersection has.
+     */
+    public void setPhasePlan(PhasePlan phasePlan) throws IllegalArgumentException{
+        if(phasePlan != null && phasePlan.getNumRoads() != roads.length){
+            throw new IllegalArgumentException("phasePlan must be for " + roads.length + " roads");
+        }
+        this.phasePlan = phasePlan;
+        this.phaseIndex = 0;
+        this.turnElapsed = 0;
+        if(phasePlan != null){
+            this.lightIndex = phasePlan.getLeadRoad(0);
+            this.countdownTimer = phasePlan.getDuration(0);
+            if(phaseDepartures == null){
+                phaseDepartures = new DepartureBuffer();
+            }
+        }
+        else{
+            this.lightIndex = 0;
+            this.countdownTimer = signalController.startTurn(this, lightIndex);
+        }
+    }
+
+    /**
+     * This method returns the phase plan the intersection runs, or null if it runs its signal controller.
+     * @return
+     *  PhasePlan
+     */
+    public PhasePlan getPhasePlan(){
+        return phasePlan;
+    }
+
+    /**
+     * This method returns the index of the current phase of the phase plan, 0 without a plan.
+     * @return
+     *  int
+     */
+    public int getPhaseIndex(){
+        return phaseIndex;
     }
 
     /**
@@ -40,6 +176,120 @@ public class Intersection {
         return countdownTimer;
     }
 
+    /**
+     * This method returns the number of time steps the road with the light has had it in its current turn.
+     * @return
+     *  int
+     */
+    public int getTurnElapsed(){
+        return turnElapsed;
+    }
+
+    /**
+     * Moves the light to a state reached without stepping, for simulations which skip time steps in closed form.
+     */
+    void setLightState(int lightIndex, int countdownTimer, int turnElapsed){
+        this.lightIndex = lightIndex;
+        this.countdownTimer = countdownTimer;
+        this.turnElapsed = turnElapsed;
+    }
+
+    /**
+     * This method returns the index of the road whose light is not red, or with a phase plan, the lead road of the current phase.
+     * @return
+     *  int
+     */
+    public int getLightIndex(){
+        return lightIndex;
+    }
+
+    /**
+     * Writes the light state, the lane capacity and every lane of the intersection to a checkpoint.
+     * @param out
+     *  the checkpoint being written
+     * @throws java.io.IOException
+     *  if the checkpoint cannot be written
+     */
+    public void writeTo(java.io.DataOutput out) throws java.io.IOException{
+        out.writeInt(lightIndex);
+        out.writeInt(countdownTimer);
+        out.writeInt(turnElapsed);
+        for(int i = 0; i < roads.length; i++){
+            LightValue lightValue = roads[i].getLightValue();
+            out.writeByte(lightValue == null ? -1 : lightValue.ordinal());
+            out.writeInt(roads[i].getLeftSignalGreenTime());
+            out.writeInt(roads[i].getMaxLaneLength());
+            out.writeByte(roads[i].getOverflowPolicy().ordinal());
+            VehicleQueue[][] lanes = roads[i].getLanes();
+            for(int wayIndex = 0; wayIndex < TwoWayRoad.NUM_WAYS; wayIndex++){
+                for(int laneIndex = 0; laneIndex < TwoWayRoad.NUM_LANES; laneIndex++){
+                    lanes[wayIndex][laneIndex].writeTo(out);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the light state, the lane capacity and every lane with those written by writeTo for the same roads.
+     * @param in
+     *  the checkpoint being read
+     * @throws java.io.IOException
+     *  if the checkpoint cannot be read or does not fit the roads
+     */
+    public void readFrom(java.io.DataInput in) throws java.io.IOException{
+        int newLightIndex = in.readInt();
+        int newCountdownTimer = in.readInt();
+        int newTurnElapsed = in.readInt();
+        if(newLightIndex < 0 || newLightIndex >= roads.length || newCountdownTimer <= 0 || newTurnElapsed < 0){
+            throw new java.io.IOException("invalid light state");
+        }
+        lightIndex = newLightIndex;
+        countdownTimer = newCountdownTimer;
+        turnElapsed = newTurnElapsed;
+        for(int i = 0; i < roads.length; i++){
+            int lightValue = in.readByte();
+            roads[i].setLightValue(lightValue < 0 ? null : LightValue.values()[lightValue]);
+            int leftSignalGreenTime = in.readInt();
+            if(leftSignalGreenTime < 0 || leftSignalGreenTime > roads[i].getGreenTime()){
+                throw new java.io.IOException("invalid left signal green time");
+            }
+            roads[i].setLeftSignalGreenTime(leftSignalGreenTime);
+            int maxLaneLength = in.readInt();
+            int overflowPolicy = in.readByte();
+            if(maxLaneLength < 1 || overflowPolicy < 0 || overflowPolicy >= OverflowPolicy.values().length){
+                throw new java.io.IOException("invalid lane capacity");
+            }
+            roads[i].setLaneCapacity(maxLaneLength, OverflowPolicy.values()[overflowPolicy]);
+            VehicleQueue[][] lanes = roads[i].getLanes();
+            for(int wayIndex = 0; wayIndex < TwoWayRoad.NUM_WAYS; wayIndex++){
+                for(int laneIndex = 0; laneIndex < TwoWayRoad.NUM_LANES; laneIndex++){
+                    lanes[wayIndex][laneIndex].readFrom(in);
+                }
+            }
+            roads[i].recountVehicles();
+        }
+    }
+
+    /**
+     * This method returns a road of the intersection.
+     * @param roadIndex
+     *  index of the road
+     * @return
+     *  TwoWayRoad
+     */
+    public TwoWayRoad getRoad(int roadIndex){
+        return roads[roadIndex];
+    }
+
+    /**
+     * This method returns the number of roads of the intersection.
+     * @return
+     *  int
+     */
+    public int getNumRoads(){
+        return roads.length;
+    }
+
     /**
      * Sets the light value of current road
      * @param lightValue
@@ -55,6 +305,17 @@ public class Intersection {
      */
     public String getLightValueWithRoadName(int timerVal) {
         String str = "";
+        if(phasePlan != null){
+            str = "Phase " + (phaseIndex + 1) + " of " + phasePlan.getNumPhases() + " for ";
+            String separator = "";
+            for(int i = 0; i < roads.length; i++){
+                if(phasePlan.getReleasedLanes(phaseIndex, i) != 0){
+                    str += separator + roads[i].getName();
+                    separator = ", ";
+                }
+            }
+            return str + ".";
+        }
         if(roads[lightIndex].getCurrentLightValue(timerVal) == LightValue.GREEN){
             str = "Green Light for " + roads[lightIndex].getName() + ".";
         }
@@ -73,22 +334,71 @@ public class Intersection {
      *  An array of Vehicles which have passed though the intersection during this time step.
      */
     public Vehicle[] timeStep(){
+        if(phasePlan != null){
+            phaseDepartures.clear();
+            timeStep(phaseDepartures);
+            Vehicle[] vehArr = new Vehicle[phaseDepartures.size()];
+            for(int i = 0; i < vehArr.length; i++){
+                vehArr[i] = new Vehicle(phaseDepartures.getSerialId(i), phaseDepartures.getTimeArrived(i));
+            }
+            return vehArr;
+        }
         Vehicle[] vehArr = roads[lightIndex].proceed(countdownTimer);
         return vehArr;
     }
 
+    /**
+     * Performs a single iteration through the intersection, handing the vehicles which pass to a consumer,
+     * such as a caller-owned DepartureBuffer. Does not allocate.
+     * @param departures
+     *  The consumer of the vehicles, called with the index of the road they left.
+     * @return
+     *  The number of vehicles which have passed through the intersection during this time step.
+     */
+    public int timeStep(DepartureConsumer departures){
+        if(phasePlan != null){
+            int count = 0;
+            for(int i = 0; i < roads.length; i++){
+                count += roads[i].release(phasePlan.getReleasedLanes(phaseIndex, i), i, departures);
+            }
+            return count;
+        }
+        return roads[lightIndex].proceed(countdownTimer, lightIndex, departures);
+    }
+
     /**
      * Performs a single iteration through the intersection
      */
     public void timeStepPtTwo(){
-        countdownTimer--;
-        if(countdownTimer == 0){
+        turnElapsed++;
+        if(phasePlan != null){
+            countdownTimer--;
+            if(countdownTimer <= 0){
+                phaseIndex = (phaseIndex + 1) % phasePlan.getNumPhases();
+                lightIndex = phasePlan.getLeadRoad(phaseIndex);
+                countdownTimer = phasePlan.getDuration(phaseIndex);
+                turnElapsed = 0;
+            }
+            return;
+        }
+        countdownTimer = signalController.nextTimer(this, lightIndex, countdownTimer, turnElapsed);
+        if(countdownTimer <= 0){
             roads[lightIndex].setLightValue(LightValue.RED);
-            lightIndex = (lightIndex + 1) % roads.length;
-            this.countdownTimer = roads[lightIndex].getGreenTime();
+            lightIndex = signalController.nextRoad(this, lightIndex);
+            this.countdownTimer = signalController.startTurn(this, lightIndex);
+            turnElapsed = 0;
         }
     }
 
+    /**
+     * This method returns the signal controller of the intersection.
+     * @return
+     *  SignalController
+     */
+    public SignalController getSignalController(){
+        return signalController;
+    }
+
     /**
      * Enqueues a vehicle onto a lane in the intersection.
      * @param roadIndex
@@ -112,18 +422,117 @@ public class Intersection {
         roads[roadIndex].enqueueVehicle(wayIndex, laneIndex, vehicle);
     }
 
+    /**
+     * Enqueues a vehicle onto a lane in the intersection by its serial ID and arrival time.
+     * @param roadIndex
+     * Index of the road in roads which contains the lane to enqueue onto.
+     * @param wayIndex
+     * Index of the direction the vehicle is headed. Can either be TwoWayRoad.FORWARD or TwoWayRoad.BACKWARD
+     * @param laneIndex
+     * Index of the lane on which the vehicle is to be enqueue. Can either be TwoWayRoad.RIGHT_LANE, TwoWayRoad.MIDDLE_LANE, or TwoWayRoad.LEFT_LANE.
+     * @param serialId
+     * Serial ID of the vehicle.
+     * @param timeArrived
+     * Time step the vehicle arrived at.
+     * @throws IllegalArgumentException
+     * If any of the index parameters above are not within the valid range.
+     */
+    public void enqueueVehicle(int roadIndex, int wayIndex, int laneIndex, int serialId, int timeArrived) throws IllegalArgumentException{
+        if(roadIndex < 0 || roadIndex >= roads.length || wayIndex < 0 || wayIndex >= TwoWayRoad.NUM_WAYS ||
+            laneIndex < 0 || laneIndex >= TwoWayRoad.NUM_LANES){
+            throw new IllegalArgumentException("Error: index out of range");
+        }
+        roads[roadIndex].enqueueVehicle(wayIndex, laneIndex, serialId, timeArrived);
+    }
+
+    /**
+     * Enqueues a vehicle onto a lane in the intersection if the lane has room, following the overflow policy of the road.
+     * @param roadIndex
+     * Index of the road in roads which contains the lane to enqueue onto.
+     * @param wayIndex
+     * Index of the direction the vehicle is headed. Can either be TwoWayRoad.FORWARD or TwoWayRoad.BACKWARD
+     * @param laneIndex
+     * Index of the lane on which the vehicle is to be enqueue. Can either be TwoWayRoad.RIGHT_LANE, TwoWayRoad.MIDDLE_LANE, or TwoWayRoad.LEFT_LANE.
+     * @param serialId
+     * Serial ID of the vehicle.
+     * @param timeArrived
+     * Time step the vehicle arrived at.
+     * @return
+     * The lane the vehicle entered, which differs from laneIndex if it was diverted, or -1 if it was rejected.
+     * @throws IllegalArgumentException
+     * If any of the index parameters above are not within the valid range.
+     */
+    public int offerVehicle(int roadIndex, int wayIndex, int laneIndex, int serialId, int timeArrived) throws IllegalArgumentException{
+        if(roadIndex < 0 || roadIndex >= roads.length){
+            throw new IllegalArgumentException("Error: index out of range");
+        }
+        return roads[roadIndex].offerVehicle(wayIndex, laneIndex, serialId, timeArrived);
+    }
+
+    /**
+     * Sets the lane capacity and overflow policy of every road, see TwoWayRoad.setLaneCapacity.
+     * @param maxLaneLength
+     *  the most vehicles on one lane, or Integer.MAX_VALUE for no limit
+     * @param overflowPolicy
+     *  the policy for vehicles arriving at a full lane
+     * @throws IllegalArgumentException
+     *  if maxLaneLength &lt; 1 or overflowPolicy is null
+     */
+    public void setLaneCapacity(int maxLaneLength, OverflowPolicy overflowPolicy) throws IllegalArgumentException{
+        for(int i = 0; i < roads.length; i++){
+            roads[i].setLaneCapacity(maxLaneLength, overflowPolicy);
+        }
+    }
+
     /**
      * This method return true if no vehicles are left on the lanes
      * @return
      *  boolean
      */
     public boolean isEmpty(){
-        for(int i = 0; i < roads.length; i++){
-            if(!roads[i].isAllLanesEmpty()){
-                return false;
-            }
-        }
-        return true;
+        return vehicleCount == 0;
+    }
+
+    /**
+     * This method returns the number of vehicles waiting on every lane of the intersection.
+     * @return
+     *  int
+     */
+    public int getVehicleCount(){
+        return vehicleCount;
+    }
+
+    /**
+     * This method returns the number of vehicles waiting on a road.
+     * @param roadIndex
+     *  index of the road
+     * @return
+     *  int
+     */
+    public int getVehicleCount(int roadIndex){
+        return roads[roadIndex].getVehicleCount();
+    }
+
+    /**
+     * This method returns the number of vehicles waiting on a lane.
+     * @param roadIndex
+     *  index of the road
+     * @param wayIndex
+     *  direction of the lane
+     * @param laneIndex
+     *  index of the lane
+     * @return
+     *  int
+     */
+    public int getLaneLength(int roadIndex, int wayIndex, int laneIndex){
+        return roads[roadIndex].getLaneLength(wayIndex, laneIndex);
+    }
+
+    /**
+     * Updates the vehicle count when a road gains or loses vehicles.
+     */
+    void addVehicles(int delta){
+        vehicleCount += delta;
     }
 
 
@@ -131,71 +540,68 @@ public class Intersection {
      * Prints the intersection to the terminal in a neatly formatted manner.
      */
     public void display(){
+        StringBuilder sb = new StringBuilder(1024);
+        display(sb);
+        System.out.print(sb);
+    }
+
+    /**
+     * Appends the intersection, formatted the same as display(), to a StringBuilder.
+     * @param sb
+     *  The StringBuilder to append to.
+     */
+    public void display(StringBuilder sb){
+        String nl = TraceFormatter.NEW_LINE;
         for(int i  = 0; i < roads.length; i++){
             TwoWayRoad currentRoad = roads[i];
-            //VehicleQueue[][] vehicleQueue = currentRoad.getLanes();
-            System.out.println("    " + currentRoad.getName() + ":");
-            System.out.println("                           FORWARD               BACKWARD");
-            System.out.println("    ==============================               ===============================");
-            String forwardLeftVehicles = currentRoad.getVehicles(0, 0);
-            System.out.printf("    %31s", forwardLeftVehicles);
-            //System.out.print("[L] ");
-            if(currentRoad.getLightValue() != LightValue.LEFT_SIGNAL){
-                System.out.print("[L] x   ");
-            }
-            else{
-                System.out.print("[L]     ");
-            }
-            if(currentRoad.getLightValue() != LightValue.GREEN){
-                System.out.print("x [R]");
-            }
-            else{
-                System.out.print("  [R]");
-            }
-            String backwardRightVehicles = currentRoad.getVehicles(1, 2);
-            System.out.printf("%-32s", backwardRightVehicles);
-            System.out.println("\n    ------------------------------               -------------------------------");
-
-            String forwardMiddleVehicles = currentRoad.getVehicles(0, 1);
-            System.out.printf("    %31s", forwardMiddleVehicles);
-            if(currentRoad.getLightValue() != LightValue.GREEN){
-                System.out.print("[M] x   ");
-            }
-            else{
-                System.out.print("[M]     ");
-            }
-            if(currentRoad.getLightValue() != LightValue.GREEN){
-                System.out.print("x [M]");
-            }
-            else{
-                System.out.print("  [M]");
-            }
-            String backwardMiddleVehicles = currentRoad.getVehicles(1, 1);
-            System.out.printf("%-32s", backwardMiddleVehicles);
-            System.out.println("\n    ------------------------------               -------------------------------");
-
-            String forwardRightVehicles = currentRoad.getVehicles(0, 2);
-            System.out.printf("    %31s", forwardRightVehicles);
-            if(currentRoad.getLightValue() != LightValue.GREEN){
-                System.out.print("[R] x   ");
-            }
-            else{
-                System.out.print("[R]     ");
-            }
-            if(currentRoad.getLightValue() != LightValue.LEFT_SIGNAL){
-                System.out.print("x [L]");
-            }
-            else{
-                System.out.print("  [L]");
-            }
-            String backwardLeftVehicles = currentRoad.getVehicles(1, 0);
-            System.out.printf("%-32s", backwardLeftVehicles);
-            System.out.println("\n    ==============================               ===============================");
-            System.out.println("\n");
+            sb.append("    ").append(currentRoad.getName()).append(":").append(nl);
+            sb.append("                           FORWARD               BACKWARD").append(nl);
+            sb.append("    ==============================               ===============================").append(nl);
+            sb.append("    ");
+            appendForwardLane(sb, currentRoad, TwoWayRoad.LEFT_LANE);
+            sb.append(currentRoad.isLaneReleased(TwoWayRoad.FORWARD_WAY, TwoWayRoad.LEFT_LANE) ? "[L]     " : "[L] x   ");
+            sb.append(currentRoad.isLaneReleased(TwoWayRoad.BACKWARD_WAY, TwoWayRoad.RIGHT_LANE) ? "  [R]" : "x [R]");
+            appendBackwardLane(sb, currentRoad, TwoWayRoad.RIGHT_LANE);
+            sb.append("\n    ------------------------------               -------------------------------").append(nl);
 
+            sb.append("    ");
+            appendForwardLane(sb, currentRoad, TwoWayRoad.MIDDLE_LANE);
+            sb.append(currentRoad.isLaneReleased(TwoWayRoad.FORWARD_WAY, TwoWayRoad.MIDDLE_LANE) ? "[M]     " : "[M] x   ");
+            sb.append(currentRoad.isLaneReleased(TwoWayRoad.BACKWARD_WAY, TwoWayRoad.MIDDLE_LANE) ? "  [M]" : "x [M]");
+            appendBackwardLane(sb, currentRoad, TwoWayRoad.MIDDLE_LANE);
+            sb.append("\n    ------------------------------               -------------------------------").append(nl);
+
+            sb.append("    ");
+            appendForwardLane(sb, currentRoad, TwoWayRoad.RIGHT_LANE);
+            sb.append(currentRoad.isLaneReleased(TwoWayRoad.FORWARD_WAY, TwoWayRoad.RIGHT_LANE) ? "[R]     " : "[R] x   ");
+            sb.append(currentRoad.isLaneReleased(TwoWayRoad.BACKWARD_WAY, TwoWayRoad.LEFT_LANE) ? "  [L]" : "x [L]");
+            appendBackwardLane(sb, currentRoad, TwoWayRoad.LEFT_LANE);
+            sb.append("\n    ==============================               ===============================").append(nl);
+            sb.append("\n").append(nl);
         }
     }
 
-}
+    /**
+     * Appends a forward lane right-aligned in 31 characters, like printf("%31s").
+     */
+    private void appendForwardLane(StringBuilder sb, TwoWayRoad road, int laneIndex){
+        laneBuilder.setLength(0);
+        road.appendVehicles(laneBuilder, TwoWayRoad.FORWARD_WAY, laneIndex);
+        for(int pad = 31 - laneBuilder.length(); pad > 0; pad--){
+            sb.append(' ');
+        }
+        sb.append(laneBuilder);
+    }
 
+    /**
+     * Appends a backward lane left-aligned in 32 characters, like printf("%-32s").
+     */
+    private void appendBackwardLane(StringBuilder sb, TwoWayRoad road, int laneIndex){
+        int start = sb.length();
+        road.appendVehicles(sb, TwoWayRoad.BACKWARD_WAY, laneIndex);
+        for(int pad = 32 - (sb.length() - start); pad > 0; pad--){
+            sb.append(' ');
+        }
+    }
 
+}
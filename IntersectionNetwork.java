@@ -0,0 +1,353 @@
+import java.util.SplittableRandom;
+
+/**
+ * This class is a city grid of intersections. Every intersection has an east-west road (road 0, FORWARD going east)
+ * and a north-south road (road 1, FORWARD going south). A vehicle in the middle lane goes straight, in the right lane
+ * turns right and in the left lane turns left, then joins the approach of the neighboring intersection in its new
+ * heading, or leaves the grid at the edge. New vehicles only arrive on approaches at the edge of the grid.
+ * Each intersection draws its arrivals from its own seeded random generator and numbers its own vehicles, so the
+ * result does not depend on the order intersections are stepped in.
+*/
+
+public class IntersectionNetwork {
+    public static final int EAST = 0;
+    public static final int SOUTH = 1;
+    public static final int WEST = 2;
+    public static final int NORTH = 3;
+    private final int width;
+    private final int height;
+    private final double arrivalProbability;
+    private final Intersection[] intersections;
+    private final SplittableRandom[] randoms;
+    private final int[] serialCounters;
+    private int maxLaneLength = Integer.MAX_VALUE;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.REJECT;
+
+    /**
+     * Constructor which builds the grid.
+     * @param width
+     *  number of intersections from west to east
+     * @param height
+     *  number of intersections from north to south
+     * @param eastWestGreenTime
+     *  green time of every east-west road
+     * @param northSouthGreenTime
+     *  green time of every north-south road
+     * @param arrivalProbability
+     *  probability of a vehicle arriving on each lane at the edge of the grid at each time step
+     * @param seed
+     *  seed from which every intersection's random generator is split
+     * @throws IllegalArgumentException
+     *  if width or height is less than 1 or arrivalProbability is not between 0.0 and 1.0
+     */
+    public IntersectionNetwork(int width, int height, int eastWestGreenTime, int northSouthGreenTime,
+        double arrivalProbability, long seed) throws IllegalArgumentException{
+        if(width < 1 || height < 1 || arrivalProbability < 0.0 || arrivalProbability > 1.0){
+            throw new IllegalArgumentException("width and height must be at least 1 and arrivalProbability between 0.0 and 1.0");
+        }
+        this.width = width;
+        this.height = height;
+        this.arrivalProbability = arrivalProbability;
+        this.intersections = new Intersection[width * height];
+        this.randoms = new SplittableRandom[intersections.length];
+        this.serialCounters = new int[intersections.length];
+        SplittableRandom root = new SplittableRandom(seed);
+        for(int node = 0; node < intersections.length; node++){
+            String name = (node % width) + "," + (node / width);
+            intersections[node] = new Intersection(new TwoWayRoad[]{
+                new TwoWayRoad("East-West " + name, eastWestGreenTime),
+                new TwoWayRoad("North-South " + name, northSouthGreenTime)});
+            randoms[node] = root.split();
+        }
+    }
+
+    /**
+     * This method returns the number of intersections.
+     * @return
+     *  int
+     */
+    public int size(){
+        return intersections.length;
+    }
+
+    /**
+     * This method returns an intersection of the grid.
+     * @param node
+     *  index of the intersection, y * width + x
+     * @return
+     *  Intersection
+     */
+    public Intersection getIntersection(int node){
+        return intersections[node];
+    }
+
+    /**
+     * This method returns the number of vehicles waiting in the whole grid, from the counters kept by every intersection.
+     * It must not be called while the intersections are being stepped.
+     * @return
+     *  long
+     */
+    public long getVehicleCount(){
+        long count = 0;
+        for(int node = 0; node < intersections.length; node++){
+            count += intersections[node].getVehicleCount();
+        }
+        return count;
+    }
+
+    /**
+     * Sets the lane capacity and overflow policy of every road of the grid, see TwoWayRoad.setLaneCapacity.
+     * A vehicle arriving at the edge of the grid has no upstream intersection to wait at, so with the BLOCK policy
+     * it is rejected; a vehicle moving between intersections waits at the head of its lane until the lane
+     * it would join has room, which is applied by a ParallelNetworkStepper built after this call.
+     * It must not be called while the grid is stepped.
+     * @param maxLaneLength
+     *  the most vehicles on one lane, or Integer.MAX_VALUE for no limit
+     * @param overflowPolicy
+     *  the policy for vehicles arriving at a full lane
+     * @throws IllegalArgumentException
+     *  if maxLaneLength &lt; 1 or overflowPolicy is null
+     */
+    public void setLaneCapacity(int maxLaneLength, OverflowPolicy overflowPolicy) throws IllegalArgumentException{
+        for(int node = 0; node < intersections.length; node++){
+            intersections[node].setLaneCapacity(maxLaneLength, overflowPolicy);
+        }
+        this.maxLaneLength = maxLaneLength;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * This method returns the most vehicles a lane of the grid can hold.
+     * @return
+     *  int
+     */
+    public int getMaxLaneLength(){
+        return maxLaneLength;
+    }
+
+    /**
+     * This method returns the policy for vehicles arriving at a full lane.
+     * @return
+     *  OverflowPolicy
+     */
+    public OverflowPolicy getOverflowPolicy(){
+        return overflowPolicy;
+    }
+
+    /**
+     * This method returns the neighboring intersection in a heading.
+     * @param node
+     *  index of the intersection
+     * @param heading
+     *  EAST, SOUTH, WEST or NORTH
+     * @return
+     *  index of the neighbor, or -1 at the edge of the grid
+     */
+    public int neighbor(int node, int heading){
+        return neighbor(width, height, node, heading);
+    }
+
+    /**
+     * This method returns the neighboring intersection in a heading on a grid of any size, without building it.
+     * @param width
+     *  number of intersections from west to east
+     * @param height
+     *  number of intersections from north to south
+     * @param node
+     *  index of the intersection, y * width + x
+     * @param heading
+     *  EAST, SOUTH, WEST or NORTH
+     * @return
+     *  index of the neighbor, or -1 at the edge of the grid
+     */
+    public static int neighbor(int width, int height, int node, int heading){
+        int x = node % width;
+        int y = node / width;
+        switch(heading){
+            case EAST: return x + 1 < width ? node + 1 : -1;
+            case WEST: return x > 0 ? node - 1 : -1;
+            case SOUTH: return y + 1 < height ? node + width : -1;
+            default: return y > 0 ? node - width : -1;
+        }
+    }
+
+    /**
+     * This method returns the heading of the vehicles on a road and way.
+     * @param roadIndex
+     *  0 for east-west, 1 for north-south
+     * @param wayIndex
+     *  TwoWayRoad.FORWARD_WAY or TwoWayRoad.BACKWARD_WAY
+     * @return
+     *  int
+     */
+    public static int heading(int roadIndex, int wayIndex){
+        return roadIndex + 2 * wayIndex;
+    }
+
+    /**
+     * This method returns the road a heading drives on.
+     * @param heading
+     *  EAST, SOUTH, WEST or NORTH
+     * @return
+     *  int
+     */
+    public static int roadOf(int heading){
+        return heading % 2;
+    }
+
+    /**
+     * This method returns the way a heading drives on.
+     * @param heading
+     *  EAST, SOUTH, WEST or NORTH
+     * @return
+     *  int
+     */
+    public static int wayOf(int heading){
+        return heading / 2;
+    }
+
+    /**
+     * This method returns the heading of a vehicle after it passes through an intersection from a lane.
+     * @param heading
+     *  heading before the intersection
+     * @param laneIndex
+     *  lane the vehicle left
+     * @return
+     *  int
+     */
+    public static int turn(int heading, int laneIndex){
+        if(laneIndex == TwoWayRoad.LEFT_LANE){
+            return (heading + 3) % 4;
+        }
+        if(laneIndex == TwoWayRoad.RIGHT_LANE){
+            return (heading + 1) % 4;
+        }
+        return heading;
+    }
+
+    /**
+     * This method returns the lane a vehicle picks on the approach of an intersection, a fixed function of its
+     * serial ID and the intersection so every run picks the same.
+     * @param serialId
+     *  serial ID of the vehicle
+     * @param node
+     *  index of the intersection
+     * @return
+     *  int
+     */
+    public static int chooseLane(int serialId, int node){
+        long z = ((long)serialId << 32 | (node & 0xFFFFFFFFL)) * 0x9E3779B97F4A7C15L;
+        z ^= z >>> 29;
+        return (int)Long.remainderUnsigned(z, TwoWayRoad.NUM_LANES);
+    }
+
+    /**
+     * Draws the new vehicles at the edge of the grid for one intersection and time step.
+     * @param node
+     *  index of the intersection
+     * @param time
+     *  the current time step
+     * @return
+     *  number of vehicles which arrived
+     * @throws ArithmeticException
+     *  if the intersection has numbered more vehicles than an int ID can tell apart
+     */
+    public int enqueueArrivals(int node, int time) throws ArithmeticException{
+        return enqueueArrivals(node, time, null);
+    }
+
+    /**
+     * Draws the new vehicles at the edge of the grid for one intersection and time step, counting the vehicles
+     * rejected or diverted because their lane was full.
+     * @param node
+     *  index of the intersection
+     * @param time
+     *  the current time step
+     * @param stats
+     *  the statistics which count the rejected and diverted vehicles, or null
+     * @return
+     *  number of vehicles which arrived
+     * @throws ArithmeticException
+     *  if the intersection has numbered more vehicles than an int ID can tell apart
+     */
+    public int enqueueArrivals(int node, int time, NetworkStats stats) throws ArithmeticException{
+        int arrivals = 0;
+        for(int heading = EAST; heading <= NORTH; heading++){
+            if(neighbor(node, (heading + 2) % 4) >= 0){
+                continue;
+            }
+            for(int laneIndex = 0; laneIndex < TwoWayRoad.NUM_LANES; laneIndex++){
+                if(randoms[node].nextDouble() < arrivalProbability){
+                    int lane = intersections[node].offerVehicle(roadOf(heading), wayOf(heading), laneIndex, peekSerialId(node), time);
+                    if(lane < 0){
+                        if(stats != null){
+                            stats.recordRejection(false);
+                        }
+                        continue;
+                    }
+                    if(lane != laneIndex && stats != null){
+                        stats.recordDiversion();
+                    }
+                    serialCounters[node]++;
+                    arrivals++;
+                }
+            }
+        }
+        return arrivals;
+    }
+
+    /**
+     * Returns the number of the next new vehicle of an intersection. IDs interleave by intersection so they are
+     * unique across the grid.
+     * @throws ArithmeticException
+     *  once an intersection has numbered Integer.MAX_VALUE / size() vehicles, rather than reuse an ID
+     */
+    private int peekSerialId(int node) throws ArithmeticException{
+        return serialId(serialCounters[node], node, intersections.length);
+    }
+
+    /**
+     * Returns the ID of the next new vehicle of an intersection of a grid, shared with PackedIntersectionNetwork
+     * so both engines number vehicles alike.
+     * @param serialCounter
+     *  number of vehicles the intersection has numbered
+     * @param node
+     *  index of the intersection
+     * @param size
+     *  number of intersections of the grid
+     * @return
+     *  int
+     * @throws ArithmeticException
+     *  if the ID does not fit in an int
+     */
+    static int serialId(int serialCounter, int node, int size) throws ArithmeticException{
+        return Math.addExact(Math.multiplyExact(serialCounter + 1, size), node + 1);
+    }
+
+    /**
+     * Computes a hash of every lane of every intersection, to check that two runs end in the same state.
+     * @return
+     *  long
+     */
+    public long fingerprint(){
+        long hash = 1;
+        for(int node = 0; node < intersections.length; node++){
+            Intersection intersection = intersections[node];
+            hash = hash * 31 + intersection.getCountdownTimer();
+            for(int roadIndex = 0; roadIndex < intersection.getNumRoads(); roadIndex++){
+                VehicleQueue[][] lanes = intersection.getRoad(roadIndex).getLanes();
+                for(int wayIndex = 0; wayIndex < TwoWayRoad.NUM_WAYS; wayIndex++){
+                    for(int laneIndex = 0; laneIndex < TwoWayRoad.NUM_LANES; laneIndex++){
+                        VehicleQueue lane = lanes[wayIndex][laneIndex];
+                        hash = hash * 31 + lane.size();
+                        for(int i = 0; i < lane.size(); i++){
+                            hash = hash * 31 + lane.getSerialId(i);
+                            hash = hash * 31 + lane.getTimeArrived(i);
+                        }
+                    }
+                }
+            }
+        }
+        return hash;
+    }
+}
@@ -7,8 +7,145 @@ public class IntersectionSimulator {
     /**
      * Start for application
      * @param args
+     *  optionally --headless, --async to write the trace from a background thread, --trace-file &lt;file&gt; to write it
+     *  to a file from a background thread, --seed &lt;seed&gt; to draw arrivals from a SeededArrivalSource or
+     *  --flags &lt;file&gt; to replay a PackedFlagArrivalSource stream or --tape &lt;file&gt; to replay a RandomTape,
+     *  --checkpoint &lt;file&gt; with --checkpoint-interval &lt;steps&gt; to save checkpoints while running,
+     *  --controller &lt;fixed|actuated:n&gt; to choose the signal controller,
+     *  --profile &lt;file&gt; to draw arrivals from an ArrivalProfile demand file, seeded by --seed, instead of the
+     *  arrival probability, with --max-arrivals &lt;n&gt; vehicles per time step shared fairly between the roads,
+     *  not with --checkpoint or --resume,
+     *  --record &lt;file&gt; to record a BinaryTrace instead of printing the trace, followed by the summary,
+     *  --metrics-port &lt;port&gt; to publish live metrics through JMX and at http://localhost:&lt;port&gt;/metrics,
+     *  --resume &lt;file&gt; to continue from a checkpoint with the same source options and arrival probability,
+     *  --lane-capacity &lt;n&gt; with --overflow &lt;reject|divert|block&gt; to bound every lane to n vehicles,
+     *  --fast-drain to compute the drain after the simulation time in closed form, without its trace,
+     *  --phases &lt;round-robin|overlap|plan&gt; to run a PhasePlan instead of the signal controller, not with --checkpoint or --resume,
+     *  --scenarios &lt;file&gt; to run every scenario of a ScenarioLoader file instead, or only one with --only &lt;name&gt;,
+     *  followed by the simulation time, arrival probability, number of streets,
+     *  the street names and the green time of each street
      */
-    public static void main(String args[]){
+    public static void main(String args[]) throws java.io.IOException{
+        boolean headless = false;
+        Long seed = null;
+        String flagsFile = null;
+        String tapeFile = null;
+        boolean async = false;
+        String traceFile = null;
+        String checkpointFile = null;
+        int checkpointInterval = 1000;
+        String resumeFile = null;
+        SignalController controller = RoundRobinSignalController.INSTANCE;
+        String profileFile = null;
+        String recordFile = null;
+        int metricsPort = -1;
+        int maxArrivals = 6;
+        int laneCapacity = -1;
+        OverflowPolicy overflowPolicy = OverflowPolicy.REJECT;
+        boolean fastDrain = false;
+        String phases = null;
+        String scenarioFile = null;
+        String onlyScenario = null;
+        int options = 0;
+        while(options < args.length && args[options].startsWith("--")){
+            if(args[options].equals("--headless")){
+                headless = true;
+                options++;
+            }
+            else if(args[options].equals("--seed") && options + 1 < args.length){
+                seed = Long.parseLong(args[options + 1]);
+                options += 2;
+            }
+            else if(args[options].equals("--flags") && options + 1 < args.length){
+                flagsFile = args[options + 1];
+                options += 2;
+            }
+            else if(args[options].equals("--async")){
+                async = true;
+                options++;
+            }
+            else if(args[options].equals("--trace-file") && options + 1 < args.length){
+                traceFile = args[options + 1];
+                options += 2;
+            }
+            else if(args[options].equals("--tape") && options + 1 < args.length){
+                tapeFile = args[options + 1];
+                options += 2;
+            }
+            else if(args[options].equals("--checkpoint") && options + 1 < args.length){
+                checkpointFile = args[options + 1];
+                options += 2;
+            }
+            else if(args[options].equals("--checkpoint-interval") && options + 1 < args.length){
+                checkpointInterval = Integer.parseInt(args[options + 1]);
+                options += 2;
+            }
+            else if(args[options].equals("--controller") && options + 1 < args.length){
+                controller = SweepRunner.parseController(args[options + 1]);
+                options += 2;
+            }
+            else if(args[options].equals("--profile") && options + 1 < args.length){
+                profileFile = args[options + 1];
+                options += 2;
+            }
+            else if(args[options].equals("--max-arrivals") && options + 1 < args.length){
+                maxArrivals = Integer.parseInt(args[options + 1]);
+                options += 2;
+            }
+            else if(args[options].equals("--record") && options + 1 < args.length){
+                recordFile = args[options + 1];
+                options += 2;
+            }
+            else if(args[options].equals("--metrics-port") && options + 1 < args.length){
+                metricsPort = Integer.parseInt(args[options + 1]);
+                options += 2;
+            }
+            else if(args[options].equals("--resume") && options + 1 < args.length){
+                resumeFile = args[options + 1];
+                options += 2;
+            }
+            else if(args[options].equals("--lane-capacity") && options + 1 < args.length){
+                laneCapacity = Integer.parseInt(args[options + 1]);
+                options += 2;
+            }
+            else if(args[options].equals("--overflow") && options + 1 < args.length){
+                overflowPolicy = OverflowPolicy.valueOf(args[options + 1].toUpperCase());
+                options += 2;
+            }
+            else if(args[options].equals("--fast-drain")){
+                fastDrain = true;
+                options++;
+            }
+            else if(args[options].equals("--phases") && options + 1 < args.length){
+                phases = args[options + 1];
+                options += 2;
+            }
+            else if(args[options].equals("--scenarios") && options + 1 < args.length){
+                scenarioFile = args[options + 1];
+                options += 2;
+            }
+            else if(args[options].equals("--only") && options + 1 < args.length){
+                onlyScenario = args[options + 1];
+                options += 2;
+            }
+            else{
+                System.out.println("Unknown option " + args[options]);
+                return;
+            }
+        }
+        if(phases != null && (checkpointFile != null || resumeFile != null)){
+            System.out.println("--phases cannot be used with --checkpoint or --resume, checkpoints do not record phase plans");
+            return;
+        }
+        if(profileFile != null && (checkpointFile != null || resumeFile != null)){
+            System.out.println("--profile cannot be used with --checkpoint or --resume, checkpoints do not record arrival profiles");
+            return;
+        }
+        if(scenarioFile != null){
+            runScenarios(java.nio.file.Path.of(scenarioFile), onlyScenario);
+            return;
+        }
+        args = Arrays.copyOfRange(args, options, args.length);
         Scanner scan = new Scanner(System.in);
         System.out.println("Welcome to IntersectionSimulator 2021\n");
         int simulationTime;
@@ -76,128 +213,183 @@ public class IntersectionSimulator {
             }
         }
 
-        simulate(simulationTime, arrivalProbability, streetNames, maxGreenTime);
-        System.out.println("End simulation.");
-    }
-
-    public static void simulate(int simulationTime, double arrivalProbability, String[] roadNames, int[] maxGreenTimes){
-        TwoWayRoad[] twoWayRoadArr = new TwoWayRoad[roadNames.length];
-        for(int i = 0; i < twoWayRoadArr.length; i++){
-            twoWayRoadArr[i] = new TwoWayRoad(roadNames[i], maxGreenTimes[i]);
+        AsyncTraceRenderer renderer = null;
+        if(traceFile != null){
+            renderer = AsyncTraceRenderer.toFile(java.nio.file.Path.of(traceFile));
         }
-        Intersection intersection = new Intersection(twoWayRoadArr);
-        BooleanSourceHW4 booleanSourceHW4 = new BooleanSourceHW4(arrivalProbability);
-
-        int totalCarsEntered = 0;
-        int totalCarsPassed = 0;
-        int totalWaitTime = 0;
-        int longestWaitTime = 0;
-        double averageWaitTime = 0;
-
-        System.out.println("\nStarting Simulation...");
-
-        int timeStep = 1;
-        while(timeStep <= simulationTime){
-            System.out.println("\n################################################################################\n");
-            System.out.println("Time Step: " + timeStep + "\n");
-            System.out.println("    " + intersection.getLightValueWithRoadName(intersection.getCountdownTimer()));
-            System.out.println("    Timer = " + intersection.getCountdownTimer());
-            System.out.println();
-            System.out.println("    ARRIVING CARS:");
-            outerLoop:
-            for(int i = 0, maxVehicles = 0 ; i < twoWayRoadArr.length; i++){
-                for(int wayIndex = 0; wayIndex <= 1; wayIndex++){
-                    for(int laneIndex = 0; laneIndex <= 2; laneIndex++){
-                        if(booleanSourceHW4.occursHW4()){
-                            Vehicle newVehicle = new Vehicle(timeStep);
-                            intersection.enqueueVehicle(i, wayIndex, laneIndex, newVehicle);
-                            System.out.print("        Car[" + String.format("%03d", newVehicle.getSerialID()) + "] entered " + twoWayRoadArr[i].getName() + ", going ");
-                            if(wayIndex == 0){
-                                System.out.print("FORWARD");
-                            }
-                            else{
-                                System.out.print("BACKWARD");
-                            }
-                            if(laneIndex == 0){
-                                System.out.println(" in LEFT lane.");
-                            }
-                            else if(laneIndex == 1){
-                                System.out.println(" in MIDDLE lane.");
-                            }
-                            else{
-                                System.out.println(" in RIGHT lane.");
-                            }
-                            totalCarsEntered++;
-                            maxVehicles++;
-                            if(maxVehicles == 6){
-                                break outerLoop;
-                            }
-                        }
-                    }
+        else if(async && !headless){
+            renderer = AsyncTraceRenderer.toStdout();
+        }
+        BinaryTraceRecorder recorder = recordFile != null ? new BinaryTraceRecorder(java.nio.file.Path.of(recordFile)) : null;
+        SimulationListener listener = recorder != null ? recorder : renderer != null ? renderer : headless ? new ThroughputReporter() : new ConsoleReporter();
+        MetricsServer metricsServer = null;
+        if(metricsPort >= 0){
+            LiveMetrics metrics = new LiveMetrics(listener, 64);
+            try{
+                metrics.registerMBean("main");
+            }
+            catch(javax.management.JMException e){
+                System.out.println("Could not register metrics MBean: " + e.getMessage());
+            }
+            metricsServer = new MetricsServer(metrics, metricsPort);
+            listener = metrics;
+        }
+        java.io.Closeable input = null;
+        ArrivalSource source;
+        if(flagsFile != null){
+            java.io.InputStream in = new java.io.FileInputStream(flagsFile);
+            input = in;
+            source = new PackedFlagArrivalSource(in);
+        }
+        else if(tapeFile != null){
+            RandomTape tape = new RandomTape(java.nio.file.Path.of(tapeFile));
+            input = tape;
+            source = new MappedTapeArrivalSource(arrivalProbability, tape, null);
+        }
+        else if(seed != null){
+            source = new SeededArrivalSource(arrivalProbability, seed);
+        }
+        else{
+            source = new BooleanSourceHW4(arrivalProbability);
+        }
+        SimulationStats stats = null;
+        try{
+            Simulation simulation;
+            if(profileFile != null){
+                ArrivalProfile profile = ArrivalProfile.load(java.nio.file.Path.of(profileFile), streetNames.length);
+                ArrivalSchedule schedule = new ProfileArrivalSchedule(profile, seed != null ? seed : System.nanoTime(), simulationTime, maxArrivals);
+                simulation = new Simulation(simulationTime, streetNames, maxGreenTime, schedule, controller, listener);
+            }
+            else if(resumeFile != null){
+                try(java.io.DataInputStream in = new java.io.DataInputStream(new java.io.BufferedInputStream(new java.io.FileInputStream(resumeFile)))){
+                    simulation = Simulation.resume(in, source, controller, listener);
                 }
             }
-            System.out.println("\n    PASSING CARS:");
-            Vehicle[] passedCars = intersection.timeStep();
-            for(int i = 0; i < passedCars.length; i++){
-                System.out.println("        Car[" + String.format("%03d", passedCars[i].getSerialID()) + "] passes through. Wait time of " + (timeStep - passedCars[i].getTimeArrived()) + ".");
-                totalWaitTime += timeStep - passedCars[i].getTimeArrived();
-                if(timeStep - passedCars[i].getTimeArrived() > longestWaitTime){
-                    longestWaitTime = timeStep - passedCars[i].getTimeArrived();
+            else{
+                simulation = new Simulation(simulationTime, streetNames, maxGreenTime, source, controller, listener);
+            }
+            if(laneCapacity > 0){
+                simulation.getIntersection().setLaneCapacity(laneCapacity, overflowPolicy);
+            }
+            if(phases != null){
+                simulation.setPhasePlan(PhasePlan.parse(phases, simulation.getIntersection()));
+            }
+            simulation.setFastForwardDrain(fastDrain);
+            if(checkpointFile != null){
+                try(Checkpointer checkpointer = new Checkpointer(java.nio.file.Path.of(checkpointFile))){
+                    simulation.setCheckpointer(checkpointer, checkpointInterval);
+                    simulation.run();
                 }
             }
-            totalCarsPassed += passedCars.length;
-            System.out.println("\n");
-            intersection.display();
-            intersection.timeStepPtTwo();
-            System.out.println("\n    STATISTICS:");
-            System.out.println("        Cars currently waiting:  " + (totalCarsEntered - totalCarsPassed) + " cars");
-            System.out.println("        Total cars passed:      " + totalCarsPassed + " cars");
-            System.out.println("        Total wait time:        " + totalWaitTime + " turns");
-            if(totalWaitTime != 0){
-                averageWaitTime = (double)totalWaitTime/totalCarsPassed;
-            }
-            System.out.println("        Average wait time:      " + String.format("%.2f", averageWaitTime) + " turns");
-            System.out.println();
-            timeStep++;
+            else{
+                simulation.run();
+            }
+            stats = simulation.getStats();
         }
+        finally{
+            if(input != null){
+                input.close();
+            }
+            if(recorder != null){
+                recorder.close();
+            }
+            if(metricsServer != null){
+                metricsServer.close();
+            }
+            if(renderer != null){
+                renderer.close();
+            }
+        }
+        //the summary follows the recording, once the recorder has written all of it
+        if(recorder != null && stats != null){
+            ConsoleReporter.printSummary(stats);
+        }
+        System.out.println("End simulation.");
+    }
 
-        while(!intersection.isEmpty()){
-            System.out.println("\n################################################################################\n");
-            System.out.println("Time Step: " + timeStep + "\n");
-            System.out.println("    " + intersection.getLightValueWithRoadName(intersection.getCountdownTimer()));
-            System.out.println("    Timer = " + intersection.getCountdownTimer());
-            System.out.println("\nCars no longer arriving.");
-            System.out.println();
-            System.out.println("    ARRIVING CARS:\n");
-            System.out.println("\n    PASSING CARS:");
-            Vehicle[] passedCars = intersection.timeStep();
-            for(int i = 0; i < passedCars.length; i++){
-                System.out.println("        Car[" + String.format("%03d", passedCars[i].getSerialID()) + "] passes through. Wait time of " + (timeStep - passedCars[i].getTimeArrived()) + ".");
-                totalWaitTime += timeStep - passedCars[i].getTimeArrived();
-            }
-            totalCarsPassed += passedCars.length;
-            System.out.println("\n");
-            intersection.display();
-            intersection.timeStepPtTwo();
-            System.out.println("\n    STATISTICS:");
-            System.out.println("        Cars currently waiting:  " + (totalCarsEntered - totalCarsPassed) + " cars");
-            System.out.println("        Total cars passed:      " + totalCarsPassed + " cars");
-            System.out.println("        Total wait time:        " + totalWaitTime + " turns");
-            if(totalWaitTime != 0){
-                averageWaitTime = (double)totalWaitTime/totalCarsPassed;
-            }
-            System.out.println("        Average wait time:      " + String.format("%.2f", averageWaitTime) + " turns");
-            System.out.println();
-            timeStep++;
-        }
-        System.out.println("\n################################################################################");
-        System.out.println("################################################################################");
-        System.out.println("################################################################################");
-        System.out.println("\nSIMULATION SUMMARY:\n");
-        System.out.println("    Total Time:           " + timeStep + " steps");
-        System.out.println("    Total vehicles:       " + totalCarsPassed + " vehicles");
-        System.out.println("    Longest wait time:    " + longestWaitTime + " turns");
-        System.out.println("    Total wait time:      " + totalWaitTime + " turns");
-        System.out.println("    Average wait time:    " + String.format("%.2f", averageWaitTime) + " turns\n");
+    /**
+     * Loads a scenario file and runs its scenarios in order. Nothing runs if any scenario of the file is invalid.
+     * @param file
+     *  the scenario file
+     * @param only
+     *  the name of the only scenario to run, or null to run all of them
+     * @throws java.io.IOException
+     *  if a reporter cannot write its output
+     */
+    public static void runScenarios(java.nio.file.Path file, String only) throws java.io.IOException{
+        List<Scenario> scenarios;
+        try{
+            scenarios = ScenarioLoader.load(file);
+        }
+        catch(java.io.IOException e){
+            System.out.println(e.getMessage());
+            return;
+        }
+        boolean found = false;
+        for(Scenario scenario : scenarios){
+            if(only != null && !only.equals(scenario.getName())){
+                continue;
+            }
+            found = true;
+            System.out.println("Scenario " + scenario.getName() + "\n");
+            scenario.run();
+        }
+        if(!found){
+            System.out.println(only != null ? "No scenario " + only + " in " + file : "No scenarios in " + file);
+        }
+        System.out.println("End simulation.");
+    }
+
+    /**
+     * Runs a simulation which prints the full trace to the terminal.
+     * @param simulationTime
+     *  number of time steps during which vehicles arrive
+     * @param arrivalProbability
+     *  probability of a vehicle arriving on each lane at each time step
+     * @param roadNames
+     *  names of the roads
+     * @param maxGreenTimes
+     *  green time of each road
+     */
+    public static void simulate(int simulationTime, double arrivalProbability, String[] roadNames, int[] maxGreenTimes){
+        simulate(simulationTime, arrivalProbability, roadNames, maxGreenTimes, new ConsoleReporter());
+    }
+
+    /**
+     * Runs a simulation which reports its events to the given listener.
+     * @param simulationTime
+     *  number of time steps during which vehicles arrive
+     * @param arrivalProbability
+     *  probability of a vehicle arriving on each lane at each time step
+     * @param roadNames
+     *  names of the roads
+     * @param maxGreenTimes
+     *  green time of each road
+     * @param listener
+     *  listener which receives the events, e.g. ConsoleReporter for the full trace or ThroughputReporter for a headless run
+     * @return
+     *  the final statistics
+     */
+    public static SimulationStats simulate(int simulationTime, double arrivalProbability, String[] roadNames, int[] maxGreenTimes, SimulationListener listener){
+        return new Simulation(simulationTime, arrivalProbability, roadNames, maxGreenTimes, listener).run();
+    }
+
+    /**
+     * Runs a simulation which draws its arrivals from the given source.
+     * @param simulationTime
+     *  number of time steps during which vehicles arrive
+     * @param roadNames
+     *  names of the roads
+     * @param maxGreenTimes
+     *  green time of each road
+     * @param arrivalSource
+     *  source of the arrivals, e.g. BooleanSourceHW4, SeededArrivalSource or PackedFlagArrivalSource
+     * @param listener
+     *  listener which receives the events
+     * @return
+     *  the final statistics
+     */
+    public static SimulationStats simulate(int simulationTime, String[] roadNames, int[] maxGreenTimes, ArrivalSource arrivalSource, SimulationListener listener){
+        return new Simulation(simulationTime, roadNames, maxGreenTimes, arrivalSource, listener).run();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,269 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class publishes the state of a running simulation for monitoring, through JMX and MetricsServer.
+ * It wraps the listener of the simulation and forwards every event to it. At the end of every publishInterval
+ * time steps, the simulation thread copies its counters into atomic arrays with lazySet, which neither locks nor
+ * waits for readers, so monitoring costs a few ordered stores per published step. Readers on other threads may see
+ * the values of two neighbouring steps mixed, but never a torn value.
+ * Allocation and garbage collection counters are read from the JVM on the reading thread only.
+*/
+
+public class LiveMetrics implements SimulationListener, LiveMetricsMBean {
+    private static final double ROLLING_WEIGHT = 0.01;
+    private static final int TIME_STEP = 0;
+    private static final int CARS_ENTERED = 1;
+    private static final int CARS_PASSED = 2;
+    private static final int TOTAL_WAIT_TIME = 3;
+    private static final int LONGEST_WAIT_TIME = 4;
+    private static final int ROLLING_WAIT_TIME = 5;
+    private static final int LIGHT_INDEX = 6;
+    private static final int LIGHT_PHASE = 7;
+    private static final int COUNTDOWN_TIMER = 8;
+    private static final int START_NANOS = 9;
+    private static final int LAST_NANOS = 10;
+    private static final int SIMULATION_THREAD = 11;
+    private static final int CARS_REJECTED = 12;
+    private static final int CARS_DIVERTED = 13;
+    private final SimulationListener delegate;
+    private final int publishInterval;
+    private final AtomicLongArray values = new AtomicLongArray(14);
+    private volatile AtomicIntegerArray laneDepths = new AtomicIntegerArray(0);
+    private volatile String[] roadNames = new String[0];
+    private double rollingWaitTime;
+    private boolean started;
+
+    /**
+     * This is the constructor of the class.
+     * @param delegate
+     *  the listener which receives every event, e.g. a ConsoleReporter or ThroughputReporter
+     * @param publishInterval
+     *  number of time steps between two publications
+     * @throws IllegalArgumentException
+     *  if delegate is null or publishInterval &lt; 1
+     */
+    public LiveMetrics(SimulationListener delegate, int publishInterval) throws IllegalArgumentException{
+        if(delegate == null || publishInterval < 1){
+            throw new IllegalArgumentException("delegate cannot be null and publishInterval must be at least 1");
+        }
+        this.delegate = delegate;
+        this.publishInterval = publishInterval;
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server.
+     * @param name
+     *  the name of the simulation in the object name
+     * @throws javax.management.JMException
+     *  if the metrics cannot be registered
+     */
+    public void registerMBean(String name) throws javax.management.JMException{
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+            new javax.management.ObjectName("IntersectionSimulator:type=LiveMetrics,name=" + javax.management.ObjectName.quote(name)));
+    }
+
+    @Override
+    public void onSimulationStart(){
+        delegate.onSimulationStart();
+    }
+
+    @Override
+    public void onStepStart(int timeStep, Intersection intersection, boolean arrivalsOpen){
+        if(!started){
+            started = true;
+            String[] names = new String[intersection.getNumRoads()];
+            for(int i = 0; i < names.length; i++){
+                names[i] = intersection.getRoad(i).getName();
+            }
+            laneDepths = new AtomicIntegerArray(names.length * TwoWayRoad.NUM_WAYS * TwoWayRoad.NUM_LANES);
+            roadNames = names;
+            values.lazySet(SIMULATION_THREAD, Thread.currentThread().getId());
+            values.lazySet(START_NANOS, System.nanoTime());
+        }
+        delegate.onStepStart(timeStep, intersection, arrivalsOpen);
+    }
+
+    @Override
+    public void onArrival(int timeStep, Intersection intersection, int roadIndex, int wayIndex, int laneIndex, int serialId){
+        delegate.onArrival(timeStep, intersection, roadIndex, wayIndex, laneIndex, serialId);
+    }
+
+    @Override
+    public void onArrivalsEnd(int timeStep){
+        delegate.onArrivalsEnd(timeStep);
+    }
+
+    @Override
+    public void onDeparture(int timeStep, int roadIndex, int wayIndex, int laneIndex, int serialId, int waitTime){
+        rollingWaitTime += ROLLING_WEIGHT * (waitTime - rollingWaitTime);
+        delegate.onDeparture(timeStep, roadIndex, wayIndex, laneIndex, serialId, waitTime);
+    }
+
+    @Override
+    public void onStepEnd(int timeStep, Intersection intersection, SimulationStats stats){
+        if(timeStep % publishInterval == 0){
+            publish(timeStep, intersection, stats);
+        }
+        delegate.onStepEnd(timeStep, intersection, stats);
+    }
+
+    @Override
+    public void onSimulationEnd(SimulationStats stats){
+        values.lazySet(CARS_ENTERED, stats.getTotalCarsEntered());
+        values.lazySet(CARS_PASSED, stats.getTotalCarsPassed());
+        values.lazySet(CARS_REJECTED, stats.getTotalCarsRejected());
+        values.lazySet(CARS_DIVERTED, stats.getTotalCarsDiverted());
+        values.lazySet(TOTAL_WAIT_TIME, stats.getTotalWaitTime());
+        values.lazySet(LONGEST_WAIT_TIME, stats.getLongestWaitTime());
+        delegate.onSimulationEnd(stats);
+    }
+
+    /**
+     * Copies the counters of the simulation thread into the published arrays.
+     */
+    private void publish(int timeStep, Intersection intersection, SimulationStats stats){
+        AtomicIntegerArray depths = laneDepths;
+        int lane = 0;
+        for(int roadIndex = 0; roadIndex < intersection.getNumRoads(); roadIndex++){
+            for(int wayIndex = 0; wayIndex < TwoWayRoad.NUM_WAYS; wayIndex++){
+                for(int laneIndex = 0; laneIndex < TwoWayRoad.NUM_LANES; laneIndex++){
+                    depths.lazySet(lane++, intersection.getLaneLength(roadIndex, wayIndex, laneIndex));
+                }
+            }
+        }
+        int lightIndex = intersection.getLightIndex();
+        LightValue lightValue = intersection.getRoad(lightIndex).getLightValue();
+        values.lazySet(CARS_ENTERED, stats.getTotalCarsEntered());
+        values.lazySet(CARS_PASSED, stats.getTotalCarsPassed());
+        values.lazySet(CARS_REJECTED, stats.getTotalCarsRejected());
+        values.lazySet(CARS_DIVERTED, stats.getTotalCarsDiverted());
+        values.lazySet(TOTAL_WAIT_TIME, stats.getTotalWaitTime());
+        values.lazySet(LONGEST_WAIT_TIME, stats.getLongestWaitTime());
+        values.lazySet(ROLLING_WAIT_TIME, Double.doubleToRawLongBits(rollingWaitTime));
+        values.lazySet(LIGHT_INDEX, lightIndex);
+        values.lazySet(LIGHT_PHASE, lightValue == null ? -1 : lightValue.ordinal());
+        values.lazySet(COUNTDOWN_TIMER, intersection.getCountdownTimer());
+        values.lazySet(LAST_NANOS, System.nanoTime());
+        values.lazySet(TIME_STEP, timeStep);
+    }
+
+    @Override
+    public long getTimeStep(){
+        return values.get(TIME_STEP);
+    }
+
+    @Override
+    public double getStepsPerSecond(){
+        long elapsed = values.get(LAST_NANOS) - values.get(START_NANOS);
+        return elapsed <= 0 ? 0.0 : values.get(TIME_STEP) * 1e9 / elapsed;
+    }
+
+    @Override
+    public long getCarsEntered(){
+        return values.get(CARS_ENTERED);
+    }
+
+    @Override
+    public long getCarsPassed(){
+        return values.get(CARS_PASSED);
+    }
+
+    @Override
+    public long getCarsRejected(){
+        return values.get(CARS_REJECTED);
+    }
+
+    @Override
+    public long getCarsDiverted(){
+        return values.get(CARS_DIVERTED);
+    }
+
+    @Override
+    public long getCarsWaiting(){
+        return Math.max(0, values.get(CARS_ENTERED) - values.get(CARS_PASSED));
+    }
+
+    @Override
+    public double getAverageWaitTime(){
+        long passed = values.get(CARS_PASSED);
+        return passed == 0 ? 0.0 : (double)values.get(TOTAL_WAIT_TIME) / passed;
+    }
+
+    @Override
+    public double getRollingAverageWaitTime(){
+        return Double.longBitsToDouble(values.get(ROLLING_WAIT_TIME));
+    }
+
+    @Override
+    public long getLongestWaitTime(){
+        return values.get(LONGEST_WAIT_TIME);
+    }
+
+    @Override
+    public String getLightRoad(){
+        String[] names = roadNames;
+        int lightIndex = (int)values.get(LIGHT_INDEX);
+        return lightIndex < names.length ? names[lightIndex] : "";
+    }
+
+    @Override
+    public String getLightPhase(){
+        int phase = (int)values.get(LIGHT_PHASE);
+        return phase < 0 ? "" : LightValue.values()[phase].name();
+    }
+
+    @Override
+    public long getCountdownTimer(){
+        return values.get(COUNTDOWN_TIMER);
+    }
+
+    @Override
+    public int[] getLaneDepths(){
+        AtomicIntegerArray depths = laneDepths;
+        int[] copy = new int[depths.length()];
+        for(int i = 0; i < copy.length; i++){
+            copy[i] = depths.get(i);
+        }
+        return copy;
+    }
+
+    /**
+     * This method returns the names of the roads, once the first time step has started.
+     * @return
+     *  String[]
+     */
+    public String[] getRoadNames(){
+        return roadNames.clone();
+    }
+
+    @Override
+    public long getAllocatedBytes(){
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long threadId = values.get(SIMULATION_THREAD);
+        if(threadId == 0 || !(threads instanceof com.sun.management.ThreadMXBean)){
+            return -1;
+        }
+        return ((com.sun.management.ThreadMXBean)threads).getThreadAllocatedBytes(threadId);
+    }
+
+    @Override
+    public long getGcCount(){
+        long count = 0;
+        for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()){
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    @Override
+    public long getGcTimeMillis(){
+        long time = 0;
+        for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()){
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return time;
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * This interface is the JMX view of LiveMetrics. Every attribute is read without blocking the simulation.
+*/
+
+public interface LiveMetricsMBean {
+    /**
+     * This method returns the last published time step.
+     * @return
+     *  long
+     */
+    long getTimeStep();
+
+    /**
+     * This method returns the number of time steps simulated per second since the first time step.
+     * @return
+     *  double
+     */
+    double getStepsPerSecond();
+
+    /**
+     * This method returns the number of vehicles which entered the intersection.
+     * @return
+     *  long
+     */
+    long getCarsEntered();
+
+    /**
+     * This method returns the number of vehicles which passed through the intersection.
+     * @return
+     *  long
+     */
+    long getCarsPassed();
+
+    /**
+     * This method returns the number of vehicles which did not enter the intersection because their lane was full.
+     * @return
+     *  long
+     */
+    long getCarsRejected();
+
+    /**
+     * This method returns the number of vehicles which were diverted to an adjacent lane because their lane was full.
+     * @return
+     *  long
+     */
+    long getCarsDiverted();
+
+    /**
+     * This method returns the number of vehicles waiting at the intersection.
+     * @return
+     *  long
+     */
+    long getCarsWaiting();
+
+    /**
+     * This method returns the average wait time of every vehicle which passed.
+     * @return
+     *  double
+     */
+    double getAverageWaitTime();
+
+    /**
+     * This method returns the exponentially weighted moving average of the wait time of the vehicles which passed.
+     * @return
+     *  double
+     */
+    double getRollingAverageWaitTime();
+
+    /**
+     * This method returns the longest wait time of a vehicle which passed.
+     * @return
+     *  long
+     */
+    long getLongestWaitTime();
+
+    /**
+     * This method returns the name of the road with the light.
+     * @return
+     *  String
+     */
+    String getLightRoad();
+
+    /**
+     * This method returns the light of the road with the light, GREEN or LEFT_SIGNAL.
+     * @return
+     *  String
+     */
+    String getLightPhase();
+
+    /**
+     * This method returns the countdown timer.
+     * @return
+     *  long
+     */
+    long getCountdownTimer();
+
+    /**
+     * This method returns the number of vehicles on every lane, road by road, way by way, lane by lane.
+     * @return
+     *  int[]
+     */
+    int[] getLaneDepths();
+
+    /**
+     * This method returns the number of bytes allocated by the simulation thread.
+     * @return
+     *  long
+     */
+    long getAllocatedBytes();
+
+    /**
+     * This method returns the number of garbage collections of the JVM.
+     * @return
+     *  long
+     */
+    long getGcCount();
+
+    /**
+     * This method returns the time the JVM spent in garbage collection, in milliseconds.
+     * @return
+     *  long
+     */
+    long getGcTimeMillis();
+}
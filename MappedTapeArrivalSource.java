@@ -0,0 +1,83 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * This class replays arrivals from memory-mapped random tapes, the binary counterpart of BooleanSourceHW4.
+ * Draws are compared to the probability the same way, so a tape converted from hw4randomFlags.txt gives the
+ * same arrivals as the text file. Past the end of a tape it falls back to random draws like BooleanSourceHW4.
+*/
+
+public class MappedTapeArrivalSource implements CheckpointableArrivalSource, ResettableArrivalSource {
+    private double probability;
+    private final RandomTape flags;
+    private final RandomTape numbers;
+    private long indexFlags = 0;
+    private long indexNumbers = 0;
+
+    /**
+     * This is the constructor of the class. The tapes are shared, not closed, by this source.
+     * @param p
+     *  probability of an arrival
+     * @param flags
+     *  tape of the arrival draws
+     * @param numbers
+     *  tape of the draws returned by random, or null to only draw random numbers
+     * @throws IllegalArgumentException
+     *  if p is not between 0.0 and 1.0 or flags is null
+     */
+    public MappedTapeArrivalSource(double p, RandomTape flags, RandomTape numbers) throws IllegalArgumentException{
+        if(p < 0.0 || p > 1.0 || flags == null){
+            throw new IllegalArgumentException("p must be between 0.0 and 1.0 and flags cannot be null");
+        }
+        this.probability = p;
+        this.flags = flags;
+        this.numbers = numbers;
+    }
+
+    @Override
+    public boolean occurs(){
+        if(indexFlags < flags.size()){
+            return flags.get(indexFlags++) < probability;
+        }
+        return ThreadLocalRandom.current().nextDouble() < probability;
+    }
+
+    /**
+     * Draws a random number between 0.0 and 1.0 from the numbers tape.
+     * @return
+     *  double
+     */
+    public double random(){
+        if(numbers != null && indexNumbers < numbers.size()){
+            return numbers.get(indexNumbers++);
+        }
+        return ThreadLocalRandom.current().nextDouble();
+    }
+
+    /**
+     * Rewinds both tapes; the seed is ignored since the draws come from the tapes.
+     */
+    @Override
+    public void reset(double p, long seed) throws IllegalArgumentException{
+        if(p < 0.0 || p > 1.0){
+            throw new IllegalArgumentException("p must be between 0.0 and 1.0");
+        }
+        this.probability = p;
+        indexFlags = 0;
+        indexNumbers = 0;
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException{
+        out.writeLong(indexFlags);
+        out.writeLong(indexNumbers);
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException{
+        indexFlags = in.readLong();
+        indexNumbers = in.readLong();
+    }
+}
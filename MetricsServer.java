@@ -0,0 +1,129 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+/**
+ * This class serves LiveMetrics at /metrics in the Prometheus text format, on the loopback address only.
+ * Requests are answered by one daemon thread which only reads the published metrics, so scraping never
+ * blocks the simulation.
+*/
+
+public class MetricsServer implements AutoCloseable {
+    private static final String[] WAY_NAMES = {"forward", "backward"};
+    private static final String[] LANE_NAMES = {"left", "middle", "right"};
+    private final LiveMetrics metrics;
+    private final HttpServer server;
+
+    /**
+     * This is the constructor of the class. It starts serving.
+     * @param metrics
+     *  the metrics to serve
+     * @param port
+     *  the port on the loopback address, or 0 for any free port
+     * @throws IOException
+     *  if the port cannot be bound
+     */
+    public MetricsServer(LiveMetrics metrics, int port) throws IOException{
+        this.metrics = metrics;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", this::handle);
+        server.setExecutor(Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-server");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.start();
+    }
+
+    /**
+     * This method returns the port the server listens on.
+     * @return
+     *  int
+     */
+    public int getPort(){
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Answers a scrape.
+     */
+    private void handle(HttpExchange exchange) throws IOException{
+        byte[] body = render().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try(OutputStream out = exchange.getResponseBody()){
+            out.write(body);
+        }
+    }
+
+    /**
+     * Formats the metrics in the Prometheus text format.
+     * @return
+     *  String
+     */
+    public String render(){
+        StringBuilder sb = new StringBuilder(2048);
+        metric(sb, "intersection_time_step", "gauge", "Last published time step.", metrics.getTimeStep());
+        metric(sb, "intersection_steps_per_second", "gauge", "Time steps simulated per second since the first time step.", metrics.getStepsPerSecond());
+        metric(sb, "intersection_cars_entered_total", "counter", "Vehicles which entered the intersection.", metrics.getCarsEntered());
+        metric(sb, "intersection_cars_passed_total", "counter", "Vehicles which passed through the intersection.", metrics.getCarsPassed());
+        metric(sb, "intersection_cars_rejected_total", "counter", "Vehicles which did not enter because their lane was full.", metrics.getCarsRejected());
+        metric(sb, "intersection_cars_diverted_total", "counter", "Vehicles diverted to an adjacent lane because their lane was full.", metrics.getCarsDiverted());
+        metric(sb, "intersection_cars_waiting", "gauge", "Vehicles waiting at the intersection.", metrics.getCarsWaiting());
+        metric(sb, "intersection_wait_time_average", "gauge", "Average wait time of the vehicles which passed, in time steps.", metrics.getAverageWaitTime());
+        metric(sb, "intersection_wait_time_rolling_average", "gauge", "Moving average wait time of the vehicles which passed, in time steps.", metrics.getRollingAverageWaitTime());
+        metric(sb, "intersection_wait_time_max", "gauge", "Longest wait time of a vehicle which passed, in time steps.", metrics.getLongestWaitTime());
+        metric(sb, "intersection_countdown_timer", "gauge", "Countdown timer of the road with the light.", metrics.getCountdownTimer());
+        sb.append("# HELP intersection_light Road with the light and its phase.\n# TYPE intersection_light gauge\n");
+        sb.append("intersection_light{road=\"").append(escape(metrics.getLightRoad())).append("\",phase=\"")
+            .append(metrics.getLightPhase()).append("\"} 1\n");
+        String[] roadNames = metrics.getRoadNames();
+        int[] depths = metrics.getLaneDepths();
+        sb.append("# HELP intersection_lane_depth Vehicles waiting on a lane.\n# TYPE intersection_lane_depth gauge\n");
+        for(int i = 0; i < depths.length && i / (TwoWayRoad.NUM_WAYS * TwoWayRoad.NUM_LANES) < roadNames.length; i++){
+            sb.append("intersection_lane_depth{road=\"").append(escape(roadNames[i / (TwoWayRoad.NUM_WAYS * TwoWayRoad.NUM_LANES)])).append("\",way=\"")
+                .append(WAY_NAMES[i / TwoWayRoad.NUM_LANES % TwoWayRoad.NUM_WAYS]).append("\",lane=\"")
+                .append(LANE_NAMES[i % TwoWayRoad.NUM_LANES]).append("\"} ").append(depths[i]).append('\n');
+        }
+        metric(sb, "intersection_allocated_bytes_total", "counter", "Bytes allocated by the simulation thread.", metrics.getAllocatedBytes());
+        metric(sb, "jvm_gc_collections_total", "counter", "Garbage collections of the JVM.", metrics.getGcCount());
+        metric(sb, "jvm_gc_collection_seconds_total", "counter", "Time the JVM spent in garbage collection.", metrics.getGcTimeMillis() / 1000.0);
+        return sb.toString();
+    }
+
+    /**
+     * Appends one metric without labels.
+     */
+    private static void metric(StringBuilder sb, String name, String type, String help, double value){
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        sb.append(name).append(' ');
+        if(value == Math.rint(value) && Math.abs(value) < 1e15){
+            sb.append((long)value);
+        }
+        else{
+            sb.append(value);
+        }
+        sb.append('\n');
+    }
+
+    /**
+     * Escapes a label value.
+     */
+    private static String escape(String value){
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * Stops serving.
+     */
+    @Override
+    public void close(){
+        server.stop(0);
+    }
+}
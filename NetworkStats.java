@@ -0,0 +1,179 @@
+/**
+ * This class holds the statistics of a network run: one wait is counted every time a vehicle passes an intersection.
+*/
+
+public class NetworkStats {
+    private long vehiclesEntered;
+    private long vehiclesExited;
+    private long arrivalsRejected;
+    private long handoffsRejected;
+    private long vehiclesDiverted;
+    private long departuresBlocked;
+    private long intersectionPasses;
+    private long totalWaitTime;
+    private int longestWaitTime;
+
+    /**
+     * Counts vehicles entering the grid.
+     * @param count
+     *  number of vehicles
+     */
+    void recordArrivals(int count){
+        vehiclesEntered += count;
+    }
+
+    /**
+     * Counts a vehicle which did not get onto a lane because it was full.
+     * @param inNetwork
+     *  whether the vehicle was moving between intersections, rather than arriving at the edge of the grid
+     */
+    void recordRejection(boolean inNetwork){
+        if(inNetwork){
+            handoffsRejected++;
+        }
+        else{
+            arrivalsRejected++;
+        }
+    }
+
+    /**
+     * Counts a vehicle which got onto an adjacent lane because its lane was full.
+     */
+    void recordDiversion(){
+        vehiclesDiverted++;
+    }
+
+    /**
+     * Counts a vehicle which could not leave an intersection in a time step because the lane it would join was full.
+     */
+    void recordBlock(){
+        departuresBlocked++;
+    }
+
+    /**
+     * Counts a vehicle passing an intersection.
+     * @param waitTime
+     *  number of time steps it waited at the intersection
+     * @param exited
+     *  whether it left the grid
+     */
+    void recordPass(int waitTime, boolean exited){
+        intersectionPasses++;
+        totalWaitTime += waitTime;
+        if(waitTime > longestWaitTime){
+            longestWaitTime = waitTime;
+        }
+        if(exited){
+            vehiclesExited++;
+        }
+    }
+
+    /**
+     * Adds the statistics of another part of the network.
+     * @param other
+     *  the statistics to add
+     */
+    void merge(NetworkStats other){
+        vehiclesEntered += other.vehiclesEntered;
+        vehiclesExited += other.vehiclesExited;
+        arrivalsRejected += other.arrivalsRejected;
+        handoffsRejected += other.handoffsRejected;
+        vehiclesDiverted += other.vehiclesDiverted;
+        departuresBlocked += other.departuresBlocked;
+        intersectionPasses += other.intersectionPasses;
+        totalWaitTime += other.totalWaitTime;
+        longestWaitTime = Math.max(longestWaitTime, other.longestWaitTime);
+    }
+
+    /**
+     * This method returns the number of vehicles which entered the grid.
+     * @return
+     *  long
+     */
+    public long getVehiclesEntered(){
+        return vehiclesEntered;
+    }
+
+    /**
+     * This method returns the number of vehicles which left the grid.
+     * @return
+     *  long
+     */
+    public long getVehiclesExited(){
+        return vehiclesExited;
+    }
+
+    /**
+     * This method returns the number of vehicles still in the grid.
+     * @return
+     *  long
+     */
+    public long getVehiclesInNetwork(){
+        return vehiclesEntered - vehiclesExited - handoffsRejected;
+    }
+
+    /**
+     * This method returns the number of vehicles rejected because their lane was full, both at the edge of the grid,
+     * where they never entered it, and between intersections, where they were removed from it.
+     * @return
+     *  long
+     */
+    public long getVehiclesRejected(){
+        return arrivalsRejected + handoffsRejected;
+    }
+
+    /**
+     * This method returns the number of vehicles diverted to an adjacent lane because their lane was full.
+     * @return
+     *  long
+     */
+    public long getVehiclesDiverted(){
+        return vehiclesDiverted;
+    }
+
+    /**
+     * This method returns the number of times a vehicle waited a time step at the head of its lane
+     * because the lane it would join was full.
+     * @return
+     *  long
+     */
+    public long getDeparturesBlocked(){
+        return departuresBlocked;
+    }
+
+    /**
+     * This method returns the number of times a vehicle passed an intersection.
+     * @return
+     *  long
+     */
+    public long getIntersectionPasses(){
+        return intersectionPasses;
+    }
+
+    /**
+     * This method returns the sum of the waits at every intersection.
+     * @return
+     *  long
+     */
+    public long getTotalWaitTime(){
+        return totalWaitTime;
+    }
+
+    /**
+     * This method returns the longest wait at one intersection.
+     * @return
+     *  int
+     */
+    public int getLongestWaitTime(){
+        return longestWaitTime;
+    }
+
+    /**
+     * This method returns the average wait per intersection passed.
+     * @return
+     *  double
+     */
+    public double getAverageWaitTime(){
+        return intersectionPasses == 0 ? 0.0 : (double)totalWaitTime / intersectionPasses;
+    }
+}
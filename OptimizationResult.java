@@ -0,0 +1,143 @@
+/**
+ * This class is the outcome of a GreenTimeOptimizer search: the best signal plan found, the objective of the
+ * plan the search started from, and how the search converged generation by generation.
+*/
+
+public class OptimizationResult {
+    private final SweepConfig best;
+    private final double bestValue;
+    private final double startValue;
+    private final double[] bestValues;
+    private final double[] greenSpreads;
+    private final long[] runs;
+    private final long runsSaved;
+    private final boolean converged;
+
+    /**
+     * This is the constructor of the class, used by GreenTimeOptimizer.
+     * @param best
+     *  the best plan found
+     * @param bestValue
+     *  objective of the best plan
+     * @param startValue
+     *  objective of the plan the search started from
+     * @param bestValues
+     *  objective of the best plan found by the end of each generation
+     * @param greenSpreads
+     *  mean standard deviation of the sampled green times in each generation
+     * @param runs
+     *  simulation runs done by the end of each generation
+     * @param runsSaved
+     *  simulation runs which early stopping and repeated candidates did not need
+     * @param converged
+     *  whether the search converged before its last generation
+     */
+    OptimizationResult(SweepConfig best, double bestValue, double startValue, double[] bestValues, double[] greenSpreads,
+        long[] runs, long runsSaved, boolean converged){
+        this.best = best;
+        this.bestValue = bestValue;
+        this.startValue = startValue;
+        this.bestValues = bestValues.clone();
+        this.greenSpreads = greenSpreads.clone();
+        this.runs = runs.clone();
+        this.runsSaved = runsSaved;
+        this.converged = converged;
+    }
+
+    /**
+     * This method returns the best plan: its green times and left signal fractions.
+     * @return
+     *  SweepConfig
+     */
+    public SweepConfig getBest(){
+        return best;
+    }
+
+    /**
+     * This method returns the objective of the best plan, in time steps.
+     * @return
+     *  double
+     */
+    public double getBestValue(){
+        return bestValue;
+    }
+
+    /**
+     * This method returns the objective of the plan the search started from, on the same replications.
+     * @return
+     *  double
+     */
+    public double getStartValue(){
+        return startValue;
+    }
+
+    /**
+     * This method returns the number of generations run.
+     * @return
+     *  int
+     */
+    public int getGenerations(){
+        return bestValues.length;
+    }
+
+    /**
+     * This method returns the objective of the best plan found by the end of a generation.
+     * @param generation
+     *  index of the generation, from 0
+     * @return
+     *  double
+     */
+    public double getBestValue(int generation){
+        return bestValues[generation];
+    }
+
+    /**
+     * This method returns the mean standard deviation of the green times sampled in a generation.
+     * @param generation
+     *  index of the generation, from 0
+     * @return
+     *  double
+     */
+    public double getGreenSpread(int generation){
+        return greenSpreads[generation];
+    }
+
+    /**
+     * This method returns the simulation runs done by the end of a generation.
+     * @param generation
+     *  index of the generation, from 0
+     * @return
+     *  long
+     */
+    public long getRuns(int generation){
+        return runs[generation];
+    }
+
+    /**
+     * This method returns the total number of simulation runs.
+     * @return
+     *  long
+     */
+    public long getRuns(){
+        return runs.length == 0 ? 0 : runs[runs.length - 1];
+    }
+
+    /**
+     * This method returns the simulation runs that evaluating every candidate on every replication would have
+     * needed on top of getRuns().
+     * @return
+     *  long
+     */
+    public long getRunsSaved(){
+        return runsSaved;
+    }
+
+    /**
+     * This method returns whether the search converged before its last generation.
+     * @return
+     *  boolean
+     */
+    public boolean isConverged(){
+        return converged;
+    }
+}
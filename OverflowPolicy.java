@@ -0,0 +1,9 @@
+/**
+ * This Enum lists what happens to a vehicle which arrives at a lane that is full, see TwoWayRoad.setLaneCapacity.
+*/
+
+public enum OverflowPolicy {
+    REJECT, //the vehicle does not enter the lane and is counted as rejected.
+    DIVERT, //the vehicle enters the shorter adjacent lane of the same way with room, or is rejected if there is none.
+    BLOCK; //in a network the vehicle waits at the head of its lane upstream until there is room; elsewhere it is rejected.
+}
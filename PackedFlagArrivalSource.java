@@ -0,0 +1,98 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.SplittableRandom;
+
+/**
+ * This class replays arrivals from a precomputed binary stream with one bit per draw, read a block at a time.
+ * A set bit means a vehicle arrives. The stream is produced by write for a fixed probability and seed,
+ * so a run only pays for reading the stream, not for generating random numbers.
+*/
+
+public class PackedFlagArrivalSource implements ArrivalSource {
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private final InputStream in;
+    private final byte[] block = new byte[BLOCK_SIZE];
+    private int blockLength;
+    private int bitIndex;
+
+    /**
+     * This is the constructor of the class.
+     * @param in
+     *  stream of packed flags, least significant bit first
+     */
+    public PackedFlagArrivalSource(InputStream in){
+        this.in = new BufferedInputStream(in, BLOCK_SIZE);
+    }
+
+    /**
+     * Draws the next flag of the stream.
+     * @return
+     *  true if a vehicle arrives
+     * @throws UncheckedIOException
+     *  if the stream cannot be read or has no flags left
+     */
+    @Override
+    public boolean occurs() throws UncheckedIOException{
+        if(bitIndex == blockLength * 8){
+            fill();
+        }
+        boolean flag = (block[bitIndex >>> 3] & (1 << (bitIndex & 7))) != 0;
+        bitIndex++;
+        return flag;
+    }
+
+    /**
+     * Reads the next block of the stream.
+     */
+    private void fill(){
+        try{
+            int n = in.read(block, 0, block.length);
+            if(n <= 0){
+                throw new EOFException("no arrival flags left in stream");
+            }
+            blockLength = n;
+            bitIndex = 0;
+        }
+        catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Precomputes a stream of flags.
+     * @param out
+     *  stream to write to; it is flushed but not closed
+     * @param p
+     *  probability of an arrival
+     * @param seed
+     *  seed of the random generator
+     * @param count
+     *  number of flags to write, rounded up to a multiple of 8
+     * @throws IOException
+     *  if the stream cannot be written
+     * @throws IllegalArgumentException
+     *  if p is not between 0.0 and 1.0 or count is negative
+     */
+    public static void write(OutputStream out, double p, long seed, long count) throws IOException, IllegalArgumentException{
+        if(p < 0.0 || p > 1.0 || count < 0){
+            throw new IllegalArgumentException("p must be between 0.0 and 1.0 and count cannot be negative");
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        BufferedOutputStream buffered = new BufferedOutputStream(out, BLOCK_SIZE);
+        for(long written = 0; written < count; written += 8){
+            int b = 0;
+            for(int bit = 0; bit < 8; bit++){
+                if(random.nextDouble() < p){
+                    b |= 1 << bit;
+                }
+            }
+            buffered.write(b);
+        }
+        buffered.flush();
+    }
+}
@@ -0,0 +1,565 @@
+import java.util.SplittableRandom;
+
+/**
+ * This class is a packed engine for the same city grid as IntersectionNetwork, for stepping thousands of
+ * intersections on one thread. Instead of an Intersection, two TwoWayRoads and twelve VehicleQueues per node, the
+ * whole grid is a handful of flat primitive arrays: the light index, countdown timer, green and left signal times of
+ * every node, the head and count of every lane, and one shared ring storage in which each lane owns a fixed slice of
+ * 16 interleaved serial IDs and arrival times. A lane which outgrows its slice moves to a ring of its own, doubled
+ * whenever it fills, so memory follows the lengths of the lanes rather than the longest lane times every lane.
+ * The topology is resolved once, from the same static helpers as IntersectionNetwork, into a downstream lane per lane.
+ * A time step is four passes over the arrays: arrivals at the edge, departures, timers and the hand-offs to the next
+ * intersections. The intersections do not affect each other within a time step, so running each pass over every
+ * node gives the same result as ParallelNetworkStepper, down to the fingerprint, for any lane capacity and policy.
+*/
+
+public class PackedIntersectionNetwork {
+    private static final int LANES_PER_ROAD = TwoWayRoad.NUM_WAYS * TwoWayRoad.NUM_LANES;
+    private static final int LANES_PER_NODE = 2 * LANES_PER_ROAD;
+    //lane offsets within a road, in the order TwoWayRoad dequeues its movements
+    private static final int[] GREEN_OFFSETS = offsets(TwoWayRoad.GREEN_MOVEMENTS);
+    private static final int[] LEFT_OFFSETS = offsets(TwoWayRoad.LEFT_MOVEMENTS);
+    private final int size;
+    private final double arrivalProbability;
+    private final SplittableRandom[] randoms;
+    private final int[] serialCounters;
+    private final int[] lightIndexes;
+    private final int[] countdownTimers;
+    private final int[] greenTimes;
+    private final int[] leftSignalGreenTimes;
+    private final int[] edgeStarts;
+    private final int[] edgeLanes;
+    private final int[] downstream;
+    private final int[] heads;
+    private final int[] counts;
+    private static final int SLICE_SIZE = 16;
+    private final int[] slots;
+    private final int[][] spills;
+    private int maxLaneLength = Integer.MAX_VALUE;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.REJECT;
+    private int[] laneRoom;
+    private int[] handoffLanes = new int[64];
+    private int[] handoffSerialIds = new int[64];
+    private int handoffCount;
+    private final NetworkStats stats = new NetworkStats();
+    private int time = 1;
+
+    /**
+     * Constructor which builds the grid, with the same arguments and the same random streams as IntersectionNetwork.
+     * @param width
+     *  number of intersections from west to east
+     * @param height
+     *  number of intersections from north to south
+     * @param eastWestGreenTime
+     *  green time of every east-west road
+     * @param northSouthGreenTime
+     *  green time of every north-south road
+     * @param arrivalProbability
+     *  probability of a vehicle arriving on each lane at the edge of the grid at each time step
+     * @param seed
+     *  seed from which every intersection's random generator is split
+     * @throws IllegalArgumentException
+     *  if width or height is less than 1, a green time is not greater than 0 or arrivalProbability is not between 0.0 and 1.0
+     */
+    public PackedIntersectionNetwork(int width, int height, int eastWestGreenTime, int northSouthGreenTime,
+        double arrivalProbability, long seed) throws IllegalArgumentException{
+        if(width < 1 || height < 1 || arrivalProbability < 0.0 || arrivalProbability > 1.0 || eastWestGreenTime <= 0 || northSouthGreenTime <= 0){
+            throw new IllegalArgumentException("width and height must be at least 1, green times greater than 0 and arrivalProbability between 0.0 and 1.0");
+        }
+        long slotCount = (long)width * height * LANES_PER_NODE * SLICE_SIZE * 2;
+        if(slotCount > Integer.MAX_VALUE - 8){
+            throw new IllegalArgumentException("a grid of " + width + " by " + height + " intersections is too large for one packed network");
+        }
+        this.size = width * height;
+        this.arrivalProbability = arrivalProbability;
+        this.randoms = new SplittableRandom[size];
+        this.serialCounters = new int[size];
+        this.lightIndexes = new int[size];
+        this.countdownTimers = new int[size];
+        this.greenTimes = new int[size * 2];
+        this.leftSignalGreenTimes = new int[size * 2];
+        this.edgeStarts = new int[size + 1];
+        this.downstream = new int[size * LANES_PER_NODE];
+        this.heads = new int[size * LANES_PER_NODE];
+        this.counts = new int[size * LANES_PER_NODE];
+        this.slots = new int[(int)slotCount];
+        this.spills = new int[size * LANES_PER_NODE][];
+        SplittableRandom root = new SplittableRandom(seed);
+        int numEdgeLanes = 0;
+        for(int node = 0; node < size; node++){
+            randoms[node] = root.split();
+            //the same green and left signal times as the roads IntersectionNetwork builds, road 0 east-west
+            greenTimes[node * 2] = eastWestGreenTime;
+            greenTimes[node * 2 + 1] = northSouthGreenTime;
+            for(int roadIndex = 0; roadIndex < 2; roadIndex++){
+                leftSignalGreenTimes[node * 2 + roadIndex] =
+                    TwoWayRoad.leftSignalGreenTime(TwoWayRoad.DEFAULT_LEFT_SIGNAL_FRACTION, greenTimes[node * 2 + roadIndex]);
+            }
+            countdownTimers[node] = greenTimes[node * 2];
+            for(int heading = IntersectionNetwork.EAST; heading <= IntersectionNetwork.NORTH; heading++){
+                if(IntersectionNetwork.neighbor(width, height, node, (heading + 2) % 4) < 0){
+                    numEdgeLanes += TwoWayRoad.NUM_LANES;
+                }
+            }
+        }
+        this.edgeLanes = new int[numEdgeLanes];
+        int edge = 0;
+        for(int node = 0; node < size; node++){
+            edgeStarts[node] = edge;
+            for(int heading = IntersectionNetwork.EAST; heading <= IntersectionNetwork.NORTH; heading++){
+                if(IntersectionNetwork.neighbor(width, height, node, (heading + 2) % 4) < 0){
+                    for(int laneIndex = 0; laneIndex < TwoWayRoad.NUM_LANES; laneIndex++){
+                        edgeLanes[edge++] = approach(node, heading) + laneIndex;
+                    }
+                }
+            }
+            for(int roadIndex = 0; roadIndex < 2; roadIndex++){
+                for(int wayIndex = 0; wayIndex < TwoWayRoad.NUM_WAYS; wayIndex++){
+                    for(int laneIndex = 0; laneIndex < TwoWayRoad.NUM_LANES; laneIndex++){
+                        int heading = IntersectionNetwork.turn(IntersectionNetwork.heading(roadIndex, wayIndex), laneIndex);
+                        int target = IntersectionNetwork.neighbor(width, height, node, heading);
+                        downstream[node * LANES_PER_NODE + roadIndex * LANES_PER_ROAD + wayIndex * TwoWayRoad.NUM_LANES + laneIndex] =
+                            target < 0 ? -1 : approach(target, heading);
+                    }
+                }
+            }
+        }
+        edgeStarts[size] = edge;
+    }
+
+    /**
+     * Returns the lane offsets within a road of {wayIndex, laneIndex} movements.
+     */
+    private static int[] offsets(int[][] movements){
+        int[] offsets = new int[movements.length];
+        for(int i = 0; i < movements.length; i++){
+            offsets[i] = movements[i][0] * TwoWayRoad.NUM_LANES + movements[i][1];
+        }
+        return offsets;
+    }
+
+    /**
+     * Returns the first lane of the approach of a node in a heading.
+     */
+    private static int approach(int node, int heading){
+        return node * LANES_PER_NODE + IntersectionNetwork.roadOf(heading) * LANES_PER_ROAD + IntersectionNetwork.wayOf(heading) * TwoWayRoad.NUM_LANES;
+    }
+
+    /**
+     * Sets the lane capacity and overflow policy of every lane, with the same meaning as IntersectionNetwork.setLaneCapacity.
+     * A bounded lane never grows its own ring past the capacity rounded up to a power of two.
+     * @param maxLaneLength
+     *  the most vehicles on one lane, or Integer.MAX_VALUE for no limit
+     * @param overflowPolicy
+     *  the policy for vehicles arriving at a full lane
+     * @throws IllegalArgumentException
+     *  if maxLaneLength &lt; 1 or overflowPolicy is null
+     */
+    public void setLaneCapacity(int maxLaneLength, OverflowPolicy overflowPolicy) throws IllegalArgumentException{
+        if(maxLaneLength < 1 || overflowPolicy == null){
+            throw new IllegalArgumentException("maxLaneLength must be at least 1 and overflowPolicy cannot be null");
+        }
+        this.maxLaneLength = maxLaneLength;
+        this.overflowPolicy = overflowPolicy;
+        this.laneRoom = overflowPolicy == OverflowPolicy.BLOCK && maxLaneLength != Integer.MAX_VALUE ? new int[counts.length] : null;
+    }
+
+    /**
+     * Runs the grid for a number of time steps, continuing from the previous run.
+     * @param steps
+     *  number of time steps
+     * @return
+     *  the statistics of every run so far
+     * @throws ArithmeticException
+     *  if an intersection numbers more vehicles than an int ID can tell apart
+     */
+    public NetworkStats run(int steps) throws ArithmeticException{
+        recordLaneRoom();
+        for(int i = 0; i < steps; i++){
+            step(time++);
+        }
+        return stats;
+    }
+
+    /**
+     * Simulates one time step of every intersection.
+     */
+    private void step(int t){
+        for(int node = 0; node < size; node++){
+            enqueueArrivals(node, t);
+        }
+        for(int node = 0; node < size; node++){
+            int light = node * 2 + lightIndexes[node];
+            proceed(node, lightIndexes[node], countdownTimers[node] > leftSignalGreenTimes[light] ? GREEN_OFFSETS : LEFT_OFFSETS, t);
+        }
+        for(int node = 0; node < size; node++){
+            int timer = countdownTimers[node] - 1;
+            if(timer <= 0){
+                int lightIndex = 1 - lightIndexes[node];
+                lightIndexes[node] = lightIndex;
+                timer = greenTimes[node * 2 + lightIndex];
+            }
+            countdownTimers[node] = timer;
+        }
+        for(int i = 0; i < handoffCount; i++){
+            int lane = handoffLanes[i];
+            int entered = offer(lane, handoffSerialIds[i], t + 1);
+            if(entered < 0){
+                stats.recordRejection(true);
+            }
+            else if(entered != lane){
+                stats.recordDiversion();
+            }
+        }
+        handoffCount = 0;
+        recordLaneRoom();
+    }
+
+    /**
+     * Draws the new vehicles on the edge lanes of a node, in the same order as IntersectionNetwork.enqueueArrivals.
+     */
+    private void enqueueArrivals(int node, int t){
+        SplittableRandom random = randoms[node];
+        int arrivals = 0;
+        for(int edge = edgeStarts[node]; edge < edgeStarts[node + 1]; edge++){
+            if(random.nextDouble() < arrivalProbability){
+                int lane = edgeLanes[edge];
+                int entered = offer(lane, IntersectionNetwork.serialId(serialCounters[node], node, size), t);
+                if(entered < 0){
+                    stats.recordRejection(false);
+                    continue;
+                }
+                if(entered != lane){
+                    stats.recordDiversion();
+                }
+                serialCounters[node]++;
+                arrivals++;
+            }
+        }
+        stats.recordArrivals(arrivals);
+    }
+
+    /**
+     * Lets the first vehicle of every non-empty lane in the movements of the road with the light leave,
+     * writing the ones which join another intersection to the hand-offs.
+     */
+    private void proceed(int node, int lightIndex, int[] movements, int t){
+        int base = node * LANES_PER_NODE + lightIndex * LANES_PER_ROAD;
+        for(int m = 0; m < movements.length; m++){
+            int lane = base + movements[m];
+            if(counts[lane] == 0){
+                continue;
+            }
+            int[] storage = storage(lane);
+            int slot = (offset(lane) + heads[lane]) * 2;
+            int serialId = storage[slot];
+            int timeArrived = storage[slot + 1];
+            int target = downstream[lane];
+            if(target >= 0){
+                target += IntersectionNetwork.chooseLane(serialId, target / LANES_PER_NODE);
+                if(laneRoom != null){
+                    if(laneRoom[target] <= 0){
+                        stats.recordBlock();
+                        continue;
+                    }
+                    laneRoom[target]--;
+                }
+                addHandoff(target, serialId);
+            }
+            heads[lane] = (heads[lane] + 1) & (capacity(lane) - 1);
+            counts[lane]--;
+            stats.recordPass(t - timeArrived, target < 0);
+        }
+    }
+
+    /**
+     * Enqueues a vehicle on a lane if it has room, or with the DIVERT policy on an adjacent lane of the same way,
+     * choosing the same lane as TwoWayRoad.offerVehicle.
+     * @return
+     *  the lane the vehicle entered, or -1 if it was rejected
+     */
+    private int offer(int lane, int serialId, int timeArrived){
+        int target = lane;
+        if(counts[lane] >= maxLaneLength){
+            target = -1;
+            if(overflowPolicy == OverflowPolicy.DIVERT){
+                int laneIndex = lane % TwoWayRoad.NUM_LANES;
+                int way = lane - laneIndex;
+                int middle = way + TwoWayRoad.MIDDLE_LANE;
+                int left = way + TwoWayRoad.LEFT_LANE;
+                int right = way + TwoWayRoad.RIGHT_LANE;
+                if(laneIndex != TwoWayRoad.MIDDLE_LANE){
+                    target = counts[middle] < maxLaneLength ? middle : -1;
+                }
+                else if(counts[left] < maxLaneLength || counts[right] < maxLaneLength){
+                    target = counts[left] <= counts[right] ? left : right;
+                }
+            }
+            if(target < 0){
+                return -1;
+            }
+        }
+        if(counts[target] == capacity(target)){
+            grow(target);
+        }
+        int[] storage = storage(target);
+        int slot = (offset(target) + ((heads[target] + counts[target]) & (capacity(target) - 1))) * 2;
+        storage[slot] = serialId;
+        storage[slot + 1] = timeArrived;
+        counts[target]++;
+        return target;
+    }
+
+    /**
+     * Moves a full lane to a ring of its own twice its capacity, unwrapped to start at the beginning of the ring.
+     * @throws IllegalStateException
+     *  if the lane would need a ring larger than an array can be
+     */
+    private void grow(int lane) throws IllegalStateException{
+        int capacity = capacity(lane);
+        if((long)capacity * 4 > Integer.MAX_VALUE - 8){
+            throw new IllegalStateException("a lane cannot hold more than " + capacity + " vehicles");
+        }
+        int[] storage = storage(lane);
+        int[] grown = new int[capacity * 4];
+        for(int i = 0; i < counts[lane]; i++){
+            int from = (offset(lane) + ((heads[lane] + i) & (capacity - 1))) * 2;
+            grown[i * 2] = storage[from];
+            grown[i * 2 + 1] = storage[from + 1];
+        }
+        spills[lane] = grown;
+        heads[lane] = 0;
+    }
+
+    /**
+     * Returns the array holding a lane: the shared ring storage, or the lane's own ring once it has outgrown its slice.
+     */
+    private int[] storage(int lane){
+        int[] spill = spills[lane];
+        return spill == null ? slots : spill;
+    }
+
+    /**
+     * Returns the first vehicle position of a lane in its storage.
+     */
+    private int offset(int lane){
+        return spills[lane] == null ? lane * SLICE_SIZE : 0;
+    }
+
+    /**
+     * Returns the number of vehicles a lane can hold before it grows, a power of two.
+     */
+    private int capacity(int lane){
+        int[] spill = spills[lane];
+        return spill == null ? SLICE_SIZE : spill.length / 2;
+    }
+
+    /**
+     * Appends a vehicle moving to another intersection.
+     */
+    private void addHandoff(int lane, int serialId){
+        if(handoffCount == handoffLanes.length){
+            handoffLanes = java.util.Arrays.copyOf(handoffLanes, handoffCount * 2);
+            handoffSerialIds = java.util.Arrays.copyOf(handoffSerialIds, handoffCount * 2);
+        }
+        handoffLanes[handoffCount] = lane;
+        handoffSerialIds[handoffCount] = serialId;
+        handoffCount++;
+    }
+
+    /**
+     * Records the room left on every lane, when departures can be blocked.
+     */
+    private void recordLaneRoom(){
+        if(laneRoom == null){
+            return;
+        }
+        for(int lane = 0; lane < counts.length; lane++){
+            laneRoom[lane] = maxLaneLength - counts[lane];
+        }
+    }
+
+    /**
+     * This method returns the number of intersections.
+     * @return
+     *  int
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * This method returns the index of the road with the light at an intersection.
+     * @param node
+     *  index of the intersection, y * width + x
+     * @return
+     *  int
+     */
+    public int getLightIndex(int node){
+        return lightIndexes[node];
+    }
+
+    /**
+     * This method returns the countdown timer of an intersection.
+     * @param node
+     *  index of the intersection, y * width + x
+     * @return
+     *  int
+     */
+    public int getCountdownTimer(int node){
+        return countdownTimers[node];
+    }
+
+    /**
+     * This method returns the number of vehicles waiting on a lane.
+     * @param node
+     *  index of the intersection
+     * @param roadIndex
+     *  0 for east-west, 1 for north-south
+     * @param wayIndex
+     *  the direction of the lane
+     * @param laneIndex
+     *  the index of the lane
+     * @return
+     *  int
+     */
+    public int getLaneLength(int node, int roadIndex, int wayIndex, int laneIndex){
+        return counts[lane(node, roadIndex, wayIndex, laneIndex)];
+    }
+
+    /**
+     * This method returns the serial ID of a vehicle waiting on a lane.
+     * @param node
+     *  index of the intersection
+     * @param roadIndex
+     *  0 for east-west, 1 for north-south
+     * @param wayIndex
+     *  the direction of the lane
+     * @param laneIndex
+     *  the index of the lane
+     * @param index
+     *  position in the lane, 0 being the first vehicle
+     * @return
+     *  int
+     * @throws IndexOutOfBoundsException
+     *  if index &lt; 0 or index &gt;= the lane length
+     */
+    public int getSerialId(int node, int roadIndex, int wayIndex, int laneIndex, int index){
+        int lane = lane(node, roadIndex, wayIndex, laneIndex);
+        return storage(lane)[slot(lane, index)];
+    }
+
+    /**
+     * This method returns the arrival time of a vehicle waiting on a lane.
+     * @param node
+     *  index of the intersection
+     * @param roadIndex
+     *  0 for east-west, 1 for north-south
+     * @param wayIndex
+     *  the direction of the lane
+     * @param laneIndex
+     *  the index of the lane
+     * @param index
+     *  position in the lane, 0 being the first vehicle
+     * @return
+     *  int
+     * @throws IndexOutOfBoundsException
+     *  if index &lt; 0 or index &gt;= the lane length
+     */
+    public int getTimeArrived(int node, int roadIndex, int wayIndex, int laneIndex, int index){
+        int lane = lane(node, roadIndex, wayIndex, laneIndex);
+        return storage(lane)[slot(lane, index) + 1];
+    }
+
+    /**
+     * This method returns the number of vehicles waiting in the whole grid.
+     * @return
+     *  long
+     */
+    public long getVehicleCount(){
+        long count = 0;
+        for(int lane = 0; lane < counts.length; lane++){
+            count += counts[lane];
+        }
+        return count;
+    }
+
+    /**
+     * Computes the same hash as IntersectionNetwork.fingerprint, to check that both engines end in the same state.
+     * @return
+     *  long
+     */
+    public long fingerprint(){
+        long hash = 1;
+        for(int node = 0; node < size; node++){
+            hash = hash * 31 + countdownTimers[node];
+            for(int lane = node * LANES_PER_NODE; lane < (node + 1) * LANES_PER_NODE; lane++){
+                hash = hash * 31 + counts[lane];
+                int[] storage = storage(lane);
+                for(int i = 0; i < counts[lane]; i++){
+                    hash = hash * 31 + storage[slot(lane, i)];
+                    hash = hash * 31 + storage[slot(lane, i) + 1];
+                }
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the index of a lane in the packed arrays.
+     */
+    private static int lane(int node, int roadIndex, int wayIndex, int laneIndex){
+        return node * LANES_PER_NODE + roadIndex * LANES_PER_ROAD + wayIndex * TwoWayRoad.NUM_LANES + laneIndex;
+    }
+
+    /**
+     * Returns the index in the storage of its lane of the serial ID of a vehicle on a lane.
+     */
+    private int slot(int lane, int index){
+        if(index < 0 || index >= counts[lane]){
+            throw new IndexOutOfBoundsException("index " + index + " out of range for size " + counts[lane]);
+        }
+        return (offset(lane) + ((heads[lane] + index) & (capacity(lane) - 1))) * 2;
+    }
+
+    /**
+     * Start for a packed network run, with the same arguments and summary as ParallelNetworkStepper without the threads.
+     * @param args
+     *  the width and height of the grid, the number of time steps and the arrival probability,
+     *  optionally followed by the lane capacity and the overflow policy (reject, divert or block)
+     */
+    public static void main(String[] args){
+        if(args.length < 4){
+            System.out.println("Usage: java PackedIntersectionNetwork <width> <height> <steps> <arrivalProbability> [<laneCapacity> [reject|divert|block]]");
+            return;
+        }
+        int width = Integer.parseInt(args[0]);
+        int height = Integer.parseInt(args[1]);
+        int steps = Integer.parseInt(args[2]);
+        double probability = Double.parseDouble(args[3]);
+        PackedIntersectionNetwork network = new PackedIntersectionNetwork(width, height, 12, 9, probability, 2023L);
+        if(args.length > 4){
+            OverflowPolicy policy = args.length > 5 ? OverflowPolicy.valueOf(args[5].toUpperCase()) : OverflowPolicy.REJECT;
+            network.setLaneCapacity(Integer.parseInt(args[4]), policy);
+        }
+        long start = System.nanoTime();
+        NetworkStats stats = network.run(steps);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println("NETWORK SUMMARY:\n");
+        System.out.println("    Intersections:        " + network.size());
+        System.out.println("    Vehicles entered:     " + stats.getVehiclesEntered());
+        System.out.println("    Vehicles exited:      " + stats.getVehiclesExited());
+        System.out.println("    Vehicles in network:  " + stats.getVehiclesInNetwork());
+        System.out.println("    Intersection passes:  " + stats.getIntersectionPasses());
+        if(network.maxLaneLength != Integer.MAX_VALUE){
+            System.out.println("    Vehicles rejected:    " + stats.getVehiclesRejected());
+            System.out.println("    Vehicles diverted:    " + stats.getVehiclesDiverted());
+            System.out.println("    Departures blocked:   " + stats.getDeparturesBlocked());
+        }
+        System.out.println("    Longest wait time:    " + stats.getLongestWaitTime() + " turns");
+        System.out.println("    Average wait time:    " + String.format("%.2f", stats.getAverageWaitTime()) + " turns");
+        System.out.println("    State fingerprint:    " + Long.toHexString(network.fingerprint()));
+        System.out.println("    Throughput:           " + String.format("%.0f", steps / seconds) + " steps/sec, "
+            + String.format("%.0f", (double)steps * network.size() / seconds) + " intersection steps/sec\n");
+    }
+}
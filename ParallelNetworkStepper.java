@@ -0,0 +1,286 @@
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * This class steps an IntersectionNetwork on several threads. The intersections are split into contiguous
+ * partitions, one per thread, and every time step has two phases separated by a barrier:
+ * a local phase where each partition draws its arrivals, proceeds its intersections and writes the vehicles which
+ * move to another intersection into a hand-off buffer for the target partition, and a transfer phase where each
+ * partition enqueues the vehicles handed to it, reading the buffers in partition order.
+ * Every approach is fed by a single neighboring intersection, whose departures stay in order within a buffer,
+ * so each lane receives its vehicles in the same order and the result is the same for any number of threads.
+ * With bounded lanes and the BLOCK policy, each partition records the room left on the lanes of its intersections at
+ * the end of the transfer phase. In the local phase a vehicle only leaves if that room, less the vehicles already
+ * sent to the lane in the time step, is not used up; otherwise it goes back to the head of its lane and holds the lane
+ * behind it, so queues spill back upstream. The room is only written in the transfer phase by the owner and only
+ * read in the local phase by the single feeding intersection, so it needs no locking and stays deterministic.
+*/
+
+public class ParallelNetworkStepper {
+    private final IntersectionNetwork network;
+    private final int numPartitions;
+    private final int partitionSize;
+    private final HandoffBuffer[][] handoffs;
+    private final DepartureBuffer[] departures;
+    private final NetworkStats[] partitionStats;
+    private final int[] laneRoom;
+    private int time = 1;
+    private static final int LANES_PER_NODE = 2 * TwoWayRoad.NUM_WAYS * TwoWayRoad.NUM_LANES;
+
+    /**
+     * This is the constructor of the class.
+     * @param network
+     *  the network to step
+     * @param threads
+     *  number of threads, and so partitions
+     * @throws IllegalArgumentException
+     *  if threads &lt; 1
+     */
+    public ParallelNetworkStepper(IntersectionNetwork network, int threads) throws IllegalArgumentException{
+        if(threads < 1){
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        this.network = network;
+        this.numPartitions = Math.min(threads, network.size());
+        this.partitionSize = (network.size() + numPartitions - 1) / numPartitions;
+        this.handoffs = new HandoffBuffer[numPartitions][numPartitions];
+        this.departures = new DepartureBuffer[numPartitions];
+        this.partitionStats = new NetworkStats[numPartitions];
+        for(int p = 0; p < numPartitions; p++){
+            for(int q = 0; q < numPartitions; q++){
+                handoffs[p][q] = new HandoffBuffer();
+            }
+            departures[p] = new DepartureBuffer();
+            partitionStats[p] = new NetworkStats();
+        }
+        boolean blocking = network.getOverflowPolicy() == OverflowPolicy.BLOCK && network.getMaxLaneLength() != Integer.MAX_VALUE;
+        this.laneRoom = blocking ? new int[network.size() * LANES_PER_NODE] : null;
+    }
+
+    /**
+     * Runs the network for a number of time steps, continuing from the previous run.
+     * @param steps
+     *  number of time steps
+     * @return
+     *  the statistics of every run so far
+     * @throws IllegalStateException
+     *  if a thread fails or is interrupted
+     * @throws ArithmeticException
+     *  if an intersection numbers more vehicles than an int ID can tell apart
+     */
+    public NetworkStats run(int steps) throws IllegalStateException, ArithmeticException{
+        int firstStep = time;
+        int lastStep = time + steps - 1;
+        for(int p = 0; p < numPartitions; p++){
+            recordLaneRoom(p);
+        }
+        CyclicBarrier barrier = new CyclicBarrier(numPartitions);
+        Thread[] workers = new Thread[numPartitions];
+        RuntimeException[] failures = new RuntimeException[numPartitions];
+        for(int p = 0; p < numPartitions; p++){
+            int partition = p;
+            workers[p] = new Thread(() -> {
+                try{
+                    for(int t = firstStep; t <= lastStep; t++){
+                        stepLocal(partition, t);
+                        barrier.await();
+                        transfer(partition, t);
+                        barrier.await();
+                    }
+                }
+                catch(InterruptedException | BrokenBarrierException e){
+                    failures[partition] = new IllegalStateException("network step interrupted", e);
+                    barrier.reset();
+                }
+                catch(RuntimeException e){
+                    failures[partition] = e;
+                    barrier.reset();
+                }
+            }, "network-partition-" + p);
+            workers[p].start();
+        }
+        for(Thread worker : workers){
+            try{
+                worker.join();
+            }
+            catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while waiting for the network", e);
+            }
+        }
+        //a failing thread breaks the barrier for the others, so report the original failure first
+        for(RuntimeException failure : failures){
+            if(failure != null && !(failure.getCause() instanceof BrokenBarrierException)){
+                throw failure;
+            }
+        }
+        for(RuntimeException failure : failures){
+            if(failure != null){
+                throw failure;
+            }
+        }
+        time = lastStep + 1;
+        NetworkStats total = new NetworkStats();
+        for(NetworkStats stats : partitionStats){
+            total.merge(stats);
+        }
+        return total;
+    }
+
+    /**
+     * The local phase of a partition: arrivals, proceeding and writing the hand-offs.
+     */
+    private void stepLocal(int partition, int t){
+        NetworkStats stats = partitionStats[partition];
+        DepartureBuffer passed = departures[partition];
+        HandoffBuffer[] outgoing = handoffs[partition];
+        int end = Math.min(network.size(), (partition + 1) * partitionSize);
+        for(int node = partition * partitionSize; node < end; node++){
+            Intersection intersection = network.getIntersection(node);
+            stats.recordArrivals(network.enqueueArrivals(node, t, stats));
+            passed.clear();
+            intersection.timeStep(passed);
+            for(int i = 0; i < passed.size(); i++){
+                int heading = IntersectionNetwork.turn(
+                    IntersectionNetwork.heading(passed.getRoadIndex(i), passed.getWayIndex(i)), passed.getLaneIndex(i));
+                int target = network.neighbor(node, heading);
+                if(target >= 0){
+                    int serialId = passed.getSerialId(i);
+                    int roadIndex = IntersectionNetwork.roadOf(heading);
+                    int wayIndex = IntersectionNetwork.wayOf(heading);
+                    int laneIndex = IntersectionNetwork.chooseLane(serialId, target);
+                    if(laneRoom != null){
+                        int slot = target * LANES_PER_NODE + (roadIndex * TwoWayRoad.NUM_WAYS + wayIndex) * TwoWayRoad.NUM_LANES + laneIndex;
+                        if(laneRoom[slot] <= 0){
+                            intersection.getRoad(passed.getRoadIndex(i)).returnVehicle(passed.getWayIndex(i),
+                                passed.getLaneIndex(i), serialId, passed.getTimeArrived(i));
+                            stats.recordBlock();
+                            continue;
+                        }
+                        laneRoom[slot]--;
+                    }
+                    outgoing[target / partitionSize].add(target, roadIndex, wayIndex, laneIndex, serialId);
+                }
+                stats.recordPass(t - passed.getTimeArrived(i), target < 0);
+            }
+            intersection.timeStepPtTwo();
+        }
+    }
+
+    /**
+     * The transfer phase of a partition: enqueueing the vehicles handed to it, which arrive in the next time step.
+     */
+    private void transfer(int partition, int t){
+        NetworkStats stats = partitionStats[partition];
+        for(int source = 0; source < numPartitions; source++){
+            HandoffBuffer incoming = handoffs[source][partition];
+            for(int i = 0; i < incoming.size; i++){
+                int lane = network.getIntersection(incoming.targets[i]).offerVehicle(incoming.roadIndexes[i],
+                    incoming.wayIndexes[i], incoming.laneIndexes[i], incoming.serialIds[i], t + 1);
+                if(lane < 0){
+                    stats.recordRejection(true);
+                }
+                else if(lane != incoming.laneIndexes[i]){
+                    stats.recordDiversion();
+                }
+            }
+            incoming.size = 0;
+        }
+        recordLaneRoom(partition);
+    }
+
+    /**
+     * Records the room left on every lane of the intersections of a partition, when departures can be blocked.
+     */
+    private void recordLaneRoom(int partition){
+        if(laneRoom == null){
+            return;
+        }
+        int end = Math.min(network.size(), (partition + 1) * partitionSize);
+        for(int node = partition * partitionSize; node < end; node++){
+            Intersection intersection = network.getIntersection(node);
+            int slot = node * LANES_PER_NODE;
+            for(int roadIndex = 0; roadIndex < intersection.getNumRoads(); roadIndex++){
+                TwoWayRoad road = intersection.getRoad(roadIndex);
+                for(int wayIndex = 0; wayIndex < TwoWayRoad.NUM_WAYS; wayIndex++){
+                    for(int laneIndex = 0; laneIndex < TwoWayRoad.NUM_LANES; laneIndex++){
+                        laneRoom[slot++] = road.getMaxLaneLength() - road.getLaneLength(wayIndex, laneIndex);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Vehicles moving from one partition to another during a time step.
+     */
+    private static class HandoffBuffer {
+        private int[] targets = new int[16];
+        private int[] roadIndexes = new int[16];
+        private int[] wayIndexes = new int[16];
+        private int[] laneIndexes = new int[16];
+        private int[] serialIds = new int[16];
+        private int size;
+
+        void add(int target, int roadIndex, int wayIndex, int laneIndex, int serialId){
+            if(size == targets.length){
+                int capacity = size * 2;
+                targets = java.util.Arrays.copyOf(targets, capacity);
+                roadIndexes = java.util.Arrays.copyOf(roadIndexes, capacity);
+                wayIndexes = java.util.Arrays.copyOf(wayIndexes, capacity);
+                laneIndexes = java.util.Arrays.copyOf(laneIndexes, capacity);
+                serialIds = java.util.Arrays.copyOf(serialIds, capacity);
+            }
+            targets[size] = target;
+            roadIndexes[size] = roadIndex;
+            wayIndexes[size] = wayIndex;
+            laneIndexes[size] = laneIndex;
+            serialIds[size] = serialId;
+            size++;
+        }
+    }
+
+    /**
+     * Start for a network run.
+     * @param args
+     *  the width and height of the grid, the number of time steps, the number of threads and the arrival probability,
+     *  optionally followed by the lane capacity and the overflow policy (reject, divert or block)
+     */
+    public static void main(String[] args){
+        if(args.length < 5){
+            System.out.println("Usage: java ParallelNetworkStepper <width> <height> <steps> <threads> <arrivalProbability> [<laneCapacity> [reject|divert|block]]");
+            return;
+        }
+        int width = Integer.parseInt(args[0]);
+        int height = Integer.parseInt(args[1]);
+        int steps = Integer.parseInt(args[2]);
+        int threads = Integer.parseInt(args[3]);
+        double probability = Double.parseDouble(args[4]);
+        IntersectionNetwork network = new IntersectionNetwork(width, height, 12, 9, probability, 2023L);
+        if(args.length > 5){
+            OverflowPolicy policy = args.length > 6 ? OverflowPolicy.valueOf(args[6].toUpperCase()) : OverflowPolicy.REJECT;
+            network.setLaneCapacity(Integer.parseInt(args[5]), policy);
+        }
+        ParallelNetworkStepper stepper = new ParallelNetworkStepper(network, threads);
+        long start = System.nanoTime();
+        NetworkStats stats = stepper.run(steps);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println("NETWORK SUMMARY:\n");
+        System.out.println("    Intersections:        " + network.size());
+        System.out.println("    Threads:              " + stepper.numPartitions);
+        System.out.println("    Vehicles entered:     " + stats.getVehiclesEntered());
+        System.out.println("    Vehicles exited:      " + stats.getVehiclesExited());
+        System.out.println("    Vehicles in network:  " + stats.getVehiclesInNetwork());
+        System.out.println("    Intersection passes:  " + stats.getIntersectionPasses());
+        if(network.getMaxLaneLength() != Integer.MAX_VALUE){
+            System.out.println("    Vehicles rejected:    " + stats.getVehiclesRejected());
+            System.out.println("    Vehicles diverted:    " + stats.getVehiclesDiverted());
+            System.out.println("    Departures blocked:   " + stats.getDeparturesBlocked());
+        }
+        System.out.println("    Longest wait time:    " + stats.getLongestWaitTime() + " turns");
+        System.out.println("    Average wait time:    " + String.format("%.2f", stats.getAverageWaitTime()) + " turns");
+        System.out.println("    State fingerprint:    " + Long.toHexString(network.fingerprint()));
+        System.out.println("    Throughput:           " + String.format("%.0f", steps / seconds) + " steps/sec, "
+            + String.format("%.0f", (double)steps * network.size() / seconds) + " intersection steps/sec\n");
+    }
+}
@@ -0,0 +1,384 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class is a fixed-time multi-phase signal plan: a cycle of phases, each releasing a set of movements of any
+ * roads for a number of time steps. Every lane released by a phase lets its first vehicle proceed at every time step
+ * of the phase, so movements of different roads which do not conflict run at the same time, where the round-robin
+ * plan gives the light to one road at a time. The movements of a phase are checked against a ConflictMatrix, and
+ * every movement must be released by some phase, so no vehicle waits forever.
+ * A plan does not change once built and can be shared by any number of intersections with the same number of roads.
+ * <p>
+ * A plan can be written as phases separated by semicolons, each a comma separated list of movements followed by
+ * {@literal @} and its duration. A movement is a road number from 1, a way, F or B, and a lane, L, M or R, where * stands
+ * for both ways or every lane. The round-robin plan of two roads with green times 12 and 9 is
+ * <pre>
+ * 1*M,1*R@8; 1*L@4; 2*M,2*R@6; 2*L@3
+ * </pre>
+ * and the same plan letting the right turns of each road overlap the left turns of the other is
+ * <pre>
+ * 1*M,1*R@8; 1*L,2*R@4; 2*M,2*R@6; 2*L,1*R@3
+ * </pre>
+*/
+
+public class PhasePlan {
+    private static final String WAYS = "FB";
+    private static final String LANES = "LMR";
+    private final ConflictMatrix conflictMatrix;
+    private final int[][] releasedLanes;
+    private final int[] durations;
+    private final int[] leadRoads;
+
+    /**
+     * This is the constructor of the class.
+     * @param conflictMatrix
+     *  the conflicts of the intersection, which also give the number of roads
+     * @param phaseMovements
+     *  the movements released by each phase, numbered as by ConflictMatrix.movement
+     * @param durations
+     *  number of time steps of each phase
+     * @throws IllegalArgumentException
+     *  if there are no phases, the arrays do not match, a duration is not greater than 0, a phase is empty,
+     *  a movement does not exist, two movements of a phase conflict, or a movement is never released
+     */
+    public PhasePlan(ConflictMatrix conflictMatrix, int[][] phaseMovements, int[] durations) throws IllegalArgumentException{
+        if(conflictMatrix == null || phaseMovements == null || durations == null || phaseMovements.length == 0
+            || phaseMovements.length != durations.length){
+            throw new IllegalArgumentException("a plan needs at least one phase and one duration per phase");
+        }
+        int numRoads = conflictMatrix.getNumRoads();
+        int numMovements = conflictMatrix.getNumMovements();
+        boolean[] released = new boolean[numMovements];
+        this.conflictMatrix = conflictMatrix;
+        this.releasedLanes = new int[phaseMovements.length][numRoads];
+        this.durations = durations.clone();
+        this.leadRoads = new int[phaseMovements.length];
+        for(int phase = 0; phase < phaseMovements.length; phase++){
+            int[] movements = phaseMovements[phase];
+            if(durations[phase] <= 0 || movements == null || movements.length == 0){
+                throw new IllegalArgumentException("phase " + (phase + 1) + " must release a movement for more than 0 time steps");
+            }
+            for(int i = 0; i < movements.length; i++){
+                if(movements[i] < 0 || movements[i] >= numMovements){
+                    throw new IllegalArgumentException("phase " + (phase + 1) + " releases a movement of a road which does not exist");
+                }
+                for(int j = 0; j < i; j++){
+                    if(conflictMatrix.conflicts(movements[i], movements[j])){
+                        throw new IllegalArgumentException("phase " + (phase + 1) + " releases conflicting movements "
+                            + name(movements[j]) + " and " + name(movements[i]));
+                    }
+                }
+                released[movements[i]] = true;
+                releasedLanes[phase][ConflictMatrix.roadOf(movements[i])] |= TwoWayRoad.laneBit(ConflictMatrix.wayOf(movements[i]), ConflictMatrix.laneOf(movements[i]));
+            }
+            leadRoads[phase] = numRoads;
+            for(int road = numRoads - 1; road >= 0; road--){
+                if(releasedLanes[phase][road] != 0){
+                    leadRoads[phase] = road;
+                }
+            }
+        }
+        for(int m = 0; m < numMovements; m++){
+            if(!released[m]){
+                throw new IllegalArgumentException("movement " + name(m) + " is never released");
+            }
+        }
+    }
+
+    /**
+     * Builds the phases of the round-robin plan: each road in turn releases its middle and right lanes, then its
+     * left lanes, one phase each, skipping phases of 0 time steps. An intersection running this plan behaves exactly
+     * as one running RoundRobinSignalController with the same green and left signal times.
+     * @param conflictMatrix
+     *  the conflicts of the intersection
+     * @param greenTimes
+     *  green time of each road
+     * @param leftSignalGreenTimes
+     *  time steps at the end of each green time during which the left lanes have the left signal
+     * @return
+     *  PhasePlan
+     * @throws IllegalArgumentException
+     *  if the arrays do not have one entry per road, or a left signal time is not between 1 and the green time
+     */
+    public static PhasePlan roundRobin(ConflictMatrix conflictMatrix, int[] greenTimes, int[] leftSignalGreenTimes) throws IllegalArgumentException{
+        int numRoads = conflictMatrix.getNumRoads();
+        if(greenTimes.length != numRoads || leftSignalGreenTimes.length != numRoads){
+            throw new IllegalArgumentException("greenTimes and leftSignalGreenTimes must have one entry per road");
+        }
+        List<int[]> phases = new ArrayList<int[]>();
+        List<Integer> durations = new ArrayList<Integer>();
+        for(int road = 0; road < numRoads; road++){
+            if(leftSignalGreenTimes[road] < 1 || leftSignalGreenTimes[road] > greenTimes[road]){
+                throw new IllegalArgumentException("left signal times must be between 1 and the green time");
+            }
+            if(greenTimes[road] > leftSignalGreenTimes[road]){
+                phases.add(movements(road, TwoWayRoad.GREEN_MOVEMENTS));
+                durations.add(greenTimes[road] - leftSignalGreenTimes[road]);
+            }
+            phases.add(movements(road, TwoWayRoad.LEFT_MOVEMENTS));
+            durations.add(leftSignalGreenTimes[road]);
+        }
+        int[] durationArray = new int[durations.size()];
+        for(int i = 0; i < durationArray.length; i++){
+            durationArray[i] = durations.get(i);
+        }
+        return new PhasePlan(conflictMatrix, phases.toArray(new int[0][]), durationArray);
+    }
+
+    /**
+     * Returns the movements of a road in a list of {wayIndex, laneIndex} pairs.
+     */
+    private static int[] movements(int road, int[][] lanes){
+        int[] movements = new int[lanes.length];
+        for(int i = 0; i < lanes.length; i++){
+            movements[i] = ConflictMatrix.movement(road, lanes[i][0], lanes[i][1]);
+        }
+        return movements;
+    }
+
+    /**
+     * Returns the plan with overlaps: every phase also releases each movement which conflicts with none of the
+     * movements it already releases, trying the movements in order of their numbers. The phases and their durations
+     * stay the same, so each lane is released at least as long in every cycle, and lanes which only ran in their own
+     * road's phases also run alongside other roads.
+     * @return
+     *  PhasePlan
+     */
+    public PhasePlan withOverlaps(){
+        int numMovements = conflictMatrix.getNumMovements();
+        int[][] phaseMovements = new int[durations.length][];
+        for(int phase = 0; phase < durations.length; phase++){
+            int[] movements = new int[numMovements];
+            int count = 0;
+            for(int m = 0; m < numMovements; m++){
+                if(isReleased(phase, m)){
+                    movements[count++] = m;
+                }
+            }
+            for(int m = 0; m < numMovements; m++){
+                if(isReleased(phase, m)){
+                    continue;
+                }
+                boolean compatible = true;
+                for(int i = 0; i < count && compatible; i++){
+                    compatible = !conflictMatrix.conflicts(m, movements[i]);
+                }
+                if(compatible){
+                    movements[count++] = m;
+                }
+            }
+            phaseMovements[phase] = java.util.Arrays.copyOf(movements, count);
+        }
+        return new PhasePlan(conflictMatrix, phaseMovements, durations);
+    }
+
+    /**
+     * Parses a plan written as in the description of the class.
+     * @param plan
+     *  the plan
+     * @param conflictMatrix
+     *  the conflicts of the intersection
+     * @return
+     *  PhasePlan
+     * @throws IllegalArgumentException
+     *  if the plan cannot be parsed or is invalid
+     */
+    public static PhasePlan parse(String plan, ConflictMatrix conflictMatrix) throws IllegalArgumentException{
+        String[] phases = plan.split(";");
+        int[][] phaseMovements = new int[phases.length][];
+        int[] durations = new int[phases.length];
+        for(int phase = 0; phase < phases.length; phase++){
+            String[] parts = phases[phase].trim().split("@");
+            if(parts.length != 2){
+                throw new IllegalArgumentException("phase " + (phase + 1) + " must be movements@duration");
+            }
+            try{
+                durations[phase] = Integer.parseInt(parts[1].trim());
+            }
+            catch(NumberFormatException e){
+                throw new IllegalArgumentException("phase " + (phase + 1) + " has an invalid duration");
+            }
+            List<Integer> movements = new ArrayList<Integer>();
+            for(String token : parts[0].split(",")){
+                token = token.trim();
+                int wayAt = token.length() - 2;
+                if(wayAt < 1){
+                    throw new IllegalArgumentException("movement " + token + " must be a road number, a way and a lane");
+                }
+                int road;
+                try{
+                    road = Integer.parseInt(token.substring(0, wayAt)) - 1;
+                }
+                catch(NumberFormatException e){
+                    throw new IllegalArgumentException("movement " + token + " must start with a road number");
+                }
+                char way = Character.toUpperCase(token.charAt(wayAt));
+                char lane = Character.toUpperCase(token.charAt(wayAt + 1));
+                if((way != '*' && WAYS.indexOf(way) < 0) || (lane != '*' && LANES.indexOf(lane) < 0)){
+                    throw new IllegalArgumentException("movement " + token + " must have a way F, B or * and a lane L, M, R or *");
+                }
+                if(road < 0 || road >= conflictMatrix.getNumRoads()){
+                    throw new IllegalArgumentException("movement " + token + " is on a road which does not exist");
+                }
+                for(int wayIndex = 0; wayIndex < TwoWayRoad.NUM_WAYS; wayIndex++){
+                    for(int laneIndex = 0; laneIndex < TwoWayRoad.NUM_LANES; laneIndex++){
+                        if((way == '*' || WAYS.indexOf(way) == wayIndex) && (lane == '*' || LANES.indexOf(lane) == laneIndex)
+                            && !movements.contains(ConflictMatrix.movement(road, wayIndex, laneIndex))){
+                            movements.add(ConflictMatrix.movement(road, wayIndex, laneIndex));
+                        }
+                    }
+                }
+            }
+            phaseMovements[phase] = new int[movements.size()];
+            for(int i = 0; i < phaseMovements[phase].length; i++){
+                phaseMovements[phase][i] = movements.get(i);
+            }
+        }
+        return new PhasePlan(conflictMatrix, phaseMovements, durations);
+    }
+
+    /**
+     * Builds the plan of an intersection from the roads crossing at one point, see ConflictMatrix.crossing:
+     * "round-robin" for the round-robin plan of the green and left signal times of its roads, "overlap" for the same
+     * plan with overlaps, or a plan written as in the description of the class.
+     * @param plan
+     *  round-robin, overlap or a written plan
+     * @param intersection
+     *  the intersection, which gives the number of roads and their green and left signal times
+     * @return
+     *  PhasePlan
+     * @throws IllegalArgumentException
+     *  if the plan cannot be parsed or is invalid
+     */
+    public static PhasePlan parse(String plan, Intersection intersection) throws IllegalArgumentException{
+        ConflictMatrix conflictMatrix = ConflictMatrix.crossing(intersection.getNumRoads());
+        if(!plan.equals("round-robin") && !plan.equals("overlap")){
+            return parse(plan, conflictMatrix);
+        }
+        int[] greenTimes = new int[intersection.getNumRoads()];
+        int[] leftSignalGreenTimes = new int[greenTimes.length];
+        for(int i = 0; i < greenTimes.length; i++){
+            greenTimes[i] = intersection.getRoad(i).getGreenTime();
+            leftSignalGreenTimes[i] = intersection.getRoad(i).getLeftSignalGreenTime();
+        }
+        PhasePlan roundRobin = roundRobin(conflictMatrix, greenTimes, leftSignalGreenTimes);
+        return plan.equals("overlap") ? roundRobin.withOverlaps() : roundRobin;
+    }
+
+    /**
+     * Returns the name of a movement, such as 2FL.
+     */
+    private static String name(int movement){
+        return (ConflictMatrix.roadOf(movement) + 1) + "" + WAYS.charAt(ConflictMatrix.wayOf(movement)) + LANES.charAt(ConflictMatrix.laneOf(movement));
+    }
+
+    /**
+     * This method returns whether a phase releases a movement.
+     * @param phase
+     *  index of the phase
+     * @param movement
+     *  number of the movement
+     * @return
+     *  boolean
+     */
+    public boolean isReleased(int phase, int movement){
+        return (releasedLanes[phase][ConflictMatrix.roadOf(movement)] & TwoWayRoad.laneBit(ConflictMatrix.wayOf(movement), ConflictMatrix.laneOf(movement))) != 0;
+    }
+
+    /**
+     * This method returns the lanes of a road released by a phase, as the bits of TwoWayRoad.laneBit.
+     * @param phase
+     *  index of the phase
+     * @param roadIndex
+     *  index of the road
+     * @return
+     *  int
+     */
+    public int getReleasedLanes(int phase, int roadIndex){
+        return releasedLanes[phase][roadIndex];
+    }
+
+    /**
+     * This method returns the first road with a lane released by a phase.
+     * @param phase
+     *  index of the phase
+     * @return
+     *  int
+     */
+    public int getLeadRoad(int phase){
+        return leadRoads[phase];
+    }
+
+    /**
+     * This method returns the number of time steps of a phase.
+     * @param phase
+     *  index of the phase
+     * @return
+     *  int
+     */
+    public int getDuration(int phase){
+        return durations[phase];
+    }
+
+    /**
+     * This method returns the number of phases.
+     * @return
+     *  int
+     */
+    public int getNumPhases(){
+        return durations.length;
+    }
+
+    /**
+     * This method returns the number of time steps of a cycle through every phase.
+     * @return
+     *  int
+     */
+    public int getCycleLength(){
+        int cycle = 0;
+        for(int duration : durations){
+            cycle += duration;
+        }
+        return cycle;
+    }
+
+    /**
+     * This method returns the number of roads.
+     * @return
+     *  int
+     */
+    public int getNumRoads(){
+        return conflictMatrix.getNumRoads();
+    }
+
+    /**
+     * This method returns the conflict matrix the plan was checked against.
+     * @return
+     *  ConflictMatrix
+     */
+    public ConflictMatrix getConflictMatrix(){
+        return conflictMatrix;
+    }
+
+    /**
+     * Returns the plan written as parse reads it, with every movement listed.
+     */
+    @Override
+    public String toString(){
+        StringBuilder sb = new StringBuilder();
+        for(int phase = 0; phase < durations.length; phase++){
+            if(phase > 0){
+                sb.append("; ");
+            }
+            String separator = "";
+            for(int m = 0; m < conflictMatrix.getNumMovements(); m++){
+                if(isReleased(phase, m)){
+                    sb.append(separator).append(name(m));
+                    separator = ",";
+                }
+            }
+            sb.append('@').append(durations[phase]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,159 @@
+import java.util.SplittableRandom;
+
+/**
+ * This class generates arrivals from an ArrivalProfile in bulk, one time step with arrivals at a time.
+ * Every lane keeps the time of its next arrival, drawn from a geometric distribution with the probability of the
+ * lane's current segment and drawn again at segment boundaries, which gives the same arrivals in distribution as
+ * one Bernoulli trial per lane per time step while the work is proportional to the number of arrivals.
+ * At most maxArrivalsPerStep vehicles arrive in a time step. When more lanes have an arrival, the ones which arrive
+ * are a uniformly random subset of them, so no road is starved because of its position in the lane order.
+*/
+
+public class ProfileArrivalSchedule implements ArrivalSchedule {
+    private final ArrivalProfile profile;
+    private final SplittableRandom random;
+    private final int simulationTime;
+    private final int maxArrivalsPerStep;
+    private final long[] nextTimes;
+    private final int[] stepLanes;
+    private int stepSize;
+    private int stepPosition;
+    private int time;
+    private long droppedArrivals;
+
+    /**
+     * This is the constructor of the class.
+     * @param profile
+     *  the demand profile
+     * @param seed
+     *  seed of the random generator
+     * @param simulationTime
+     *  number of time steps during which vehicles arrive
+     * @param maxArrivalsPerStep
+     *  the most vehicles which may arrive in one time step, e.g. 6 like the tick engine
+     * @throws IllegalArgumentException
+     *  if maxArrivalsPerStep &lt; 1
+     */
+    public ProfileArrivalSchedule(ArrivalProfile profile, long seed, int simulationTime, int maxArrivalsPerStep) throws IllegalArgumentException{
+        if(maxArrivalsPerStep < 1){
+            throw new IllegalArgumentException("maxArrivalsPerStep must be at least 1");
+        }
+        this.profile = profile;
+        this.random = new SplittableRandom(seed);
+        this.simulationTime = simulationTime;
+        this.maxArrivalsPerStep = maxArrivalsPerStep;
+        this.nextTimes = new long[profile.getNumLanes()];
+        this.stepLanes = new int[nextTimes.length];
+        for(int lane = 0; lane < nextTimes.length; lane++){
+            nextTimes[lane] = nextArrival(lane, 0);
+        }
+    }
+
+    /**
+     * Draws the first arrival on a lane after a time step, moving through segments with no arrival.
+     * @return
+     *  the time step, or Long.MAX_VALUE if there is none before the end of the simulation time
+     */
+    private long nextArrival(int lane, long after){
+        long t = after;
+        while(t < simulationTime){
+            int segment = profile.segmentAt((int)t + 1);
+            long end = segment + 1 < profile.getNumSegments() ? profile.getStartTime(segment + 1) : Long.MAX_VALUE;
+            double p = profile.getProbability(segment, lane);
+            if(p > 0.0){
+                long arrival = t + gap(p);
+                if(arrival < end){
+                    return arrival <= simulationTime ? arrival : Long.MAX_VALUE;
+                }
+            }
+            t = end - 1;
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Draws the number of time steps until the next success of a Bernoulli trial per time step, at least 1.
+     */
+    private long gap(double p){
+        if(p >= 1.0){
+            return 1;
+        }
+        double u = 1.0 - random.nextDouble();
+        double steps = Math.floor(Math.log(u) / Math.log1p(-p));
+        return steps >= simulationTime ? simulationTime + 1L : 1 + (long)steps;
+    }
+
+    /**
+     * Collects the lanes with an arrival at the next time step with any, keeping a random subset if there are too many.
+     * @return
+     *  false if there are no more arrivals
+     */
+    private boolean nextStep(){
+        long next = Long.MAX_VALUE;
+        for(long nextTime : nextTimes){
+            next = Math.min(next, nextTime);
+        }
+        if(next == Long.MAX_VALUE){
+            return false;
+        }
+        time = (int)next;
+        stepSize = 0;
+        for(int lane = 0; lane < nextTimes.length; lane++){
+            if(nextTimes[lane] == next){
+                stepLanes[stepSize++] = lane;
+                nextTimes[lane] = nextArrival(lane, next);
+            }
+        }
+        if(stepSize > maxArrivalsPerStep){
+            for(int i = 0; i < maxArrivalsPerStep; i++){
+                int j = i + random.nextInt(stepSize - i);
+                int lane = stepLanes[i];
+                stepLanes[i] = stepLanes[j];
+                stepLanes[j] = lane;
+            }
+            droppedArrivals += stepSize - maxArrivalsPerStep;
+            stepSize = maxArrivalsPerStep;
+            java.util.Arrays.sort(stepLanes, 0, stepSize);
+        }
+        stepPosition = 0;
+        return true;
+    }
+
+    @Override
+    public boolean advance(){
+        stepPosition++;
+        if(stepPosition >= stepSize){
+            return nextStep();
+        }
+        return true;
+    }
+
+    @Override
+    public int time(){
+        return time;
+    }
+
+    @Override
+    public int roadIndex(){
+        return stepLanes[stepPosition] / (TwoWayRoad.NUM_WAYS * TwoWayRoad.NUM_LANES);
+    }
+
+    @Override
+    public int wayIndex(){
+        return stepLanes[stepPosition] / TwoWayRoad.NUM_LANES % TwoWayRoad.NUM_WAYS;
+    }
+
+    @Override
+    public int laneIndex(){
+        return stepLanes[stepPosition] % TwoWayRoad.NUM_LANES;
+    }
+
+    /**
+     * This method returns the number of arrivals which did not happen because their time step was full.
+     * @return
+     *  long
+     */
+    public long getDroppedArrivals(){
+        return droppedArrivals;
+    }
+}
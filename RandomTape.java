@@ -0,0 +1,227 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+/**
+ * This class is a memory-mapped tape of random doubles in the binary tape format, read lazily and without copying.
+ * The format is a 16 byte header (the magic number, the format version and the number of draws) followed by
+ * one big-endian double per draw. Files are mapped in chunks, so a tape may hold hundreds of millions of draws.
+ * The static methods convert the hw4 text files to this format and generate longer tapes from a seed.
+*/
+
+public class RandomTape implements java.io.Closeable {
+    public static final int MAGIC = 0x48573454;
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 16;
+    private static final int CHUNK_DRAWS = 1 << 27;
+    private final FileChannel channel;
+    private final long size;
+    private final MappedByteBuffer[] chunks;
+
+    /**
+     * Opens a tape. No draws are mapped until they are read.
+     * @param path
+     *  path of the tape
+     * @throws IOException
+     *  if the file cannot be read or is not a tape
+     */
+    public RandomTape(Path path) throws IOException{
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while(header.hasRemaining()){
+            if(channel.read(header) < 0){
+                break;
+            }
+        }
+        header.flip();
+        if(header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION){
+            channel.close();
+            throw new IOException(path + " is not a random tape");
+        }
+        size = header.getLong();
+        if(size < 0 || HEADER_SIZE + size * 8 > channel.size()){
+            channel.close();
+            throw new IOException(path + " is truncated");
+        }
+        chunks = new MappedByteBuffer[(int)((size + CHUNK_DRAWS - 1) / CHUNK_DRAWS)];
+    }
+
+    /**
+     * This method returns the number of draws on the tape.
+     * @return
+     *  long
+     */
+    public long size(){
+        return size;
+    }
+
+    /**
+     * Reads a draw.
+     * @param index
+     *  index of the draw, 0 &lt;= index &lt; size()
+     * @return
+     *  the draw
+     * @throws IndexOutOfBoundsException
+     *  if index is out of range
+     */
+    public double get(long index) throws IndexOutOfBoundsException{
+        if(index < 0 || index >= size){
+            throw new IndexOutOfBoundsException("draw " + index + " out of range for tape of " + size);
+        }
+        int chunkIndex = (int)(index / CHUNK_DRAWS);
+        MappedByteBuffer chunk = chunks[chunkIndex];
+        if(chunk == null){
+            chunk = map(chunkIndex);
+        }
+        return chunk.getDouble((int)(index % CHUNK_DRAWS) * 8);
+    }
+
+    /**
+     * Maps one chunk of the tape.
+     */
+    private MappedByteBuffer map(int chunkIndex){
+        long first = (long)chunkIndex * CHUNK_DRAWS;
+        long draws = Math.min(CHUNK_DRAWS, size - first);
+        try{
+            MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * 8, draws * 8);
+            chunks[chunkIndex] = chunk;
+            return chunk;
+        }
+        catch(IOException e){
+            throw new java.io.UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Closes the file. Mapped chunks stay readable until they are garbage collected.
+     * @throws IOException
+     *  if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException{
+        channel.close();
+    }
+
+    /**
+     * Converts a text file with one double per line, such as hw4randomFlags.txt, to a tape.
+     * @param textFile
+     *  the text file
+     * @param tapeFile
+     *  the tape to write
+     * @return
+     *  number of draws written
+     * @throws IOException
+     *  if a file cannot be read or written, or a line is not a number
+     */
+    public static long convert(Path textFile, Path tapeFile) throws IOException{
+        try(BufferedReader reader = new BufferedReader(new FileReader(textFile.toFile()));
+            TapeWriter writer = new TapeWriter(tapeFile)){
+            String line;
+            while((line = reader.readLine()) != null){
+                line = line.trim();
+                if(!line.isEmpty()){
+                    try{
+                        writer.write(Double.parseDouble(line));
+                    }
+                    catch(NumberFormatException e){
+                        throw new IOException("invalid draw \"" + line + "\" in " + textFile, e);
+                    }
+                }
+            }
+            return writer.count;
+        }
+    }
+
+    /**
+     * Writes a tape of uniform draws between 0.0 and 1.0 from a seed.
+     * @param tapeFile
+     *  the tape to write
+     * @param count
+     *  number of draws
+     * @param seed
+     *  seed of the random generator
+     * @throws IOException
+     *  if the file cannot be written
+     */
+    public static void generate(Path tapeFile, long count, long seed) throws IOException{
+        SplittableRandom random = new SplittableRandom(seed);
+        try(TapeWriter writer = new TapeWriter(tapeFile)){
+            for(long i = 0; i < count; i++){
+                writer.write(random.nextDouble());
+            }
+        }
+    }
+
+    /**
+     * Writes draws through a large buffer and fills in the header when closed.
+     */
+    private static class TapeWriter implements AutoCloseable {
+        private final FileChannel out;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+        private long count;
+
+        TapeWriter(Path tapeFile) throws IOException{
+            out = FileChannel.open(tapeFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            out.position(HEADER_SIZE);
+        }
+
+        void write(double draw) throws IOException{
+            if(!buffer.hasRemaining()){
+                flush();
+            }
+            buffer.putDouble(draw);
+            count++;
+        }
+
+        private void flush() throws IOException{
+            buffer.flip();
+            while(buffer.hasRemaining()){
+                out.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException{
+            try{
+                flush();
+                buffer.putInt(MAGIC).putInt(VERSION).putLong(count).flip();
+                out.position(0);
+                while(buffer.hasRemaining()){
+                    out.write(buffer);
+                }
+            }
+            finally{
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Start for the converter.
+     * @param args
+     *  either &lt;text file&gt; &lt;tape file&gt; to convert, or --generate &lt;tape file&gt; &lt;count&gt; &lt;seed&gt;
+     * @throws IOException
+     *  if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException{
+        if(args.length == 4 && args[0].equals("--generate")){
+            generate(Path.of(args[1]), Long.parseLong(args[2]), Long.parseLong(args[3]));
+            System.out.println("Wrote " + args[2] + " draws to " + args[1]);
+        }
+        else if(args.length == 2){
+            long count = convert(Path.of(args[0]), Path.of(args[1]));
+            System.out.println("Wrote " + count + " draws to " + args[1]);
+        }
+        else{
+            System.out.println("Usage: java RandomTape <text file> <tape file>");
+            System.out.println("       java RandomTape --generate <tape file> <count> <seed>");
+        }
+    }
+}
@@ -0,0 +1,17 @@
+/**
+ * This interface is an ArrivalSource which can be rewound and reconfigured for another run,
+ * so repeated runs reuse one source instead of building a new one each time.
+*/
+
+public interface ResettableArrivalSource extends ArrivalSource {
+    /**
+     * Moves the source back to its first draw with a new probability.
+     * @param p
+     *  probability of an arrival
+     * @param seed
+     *  seed of the draws, ignored by sources which replay recorded draws
+     * @throws IllegalArgumentException
+     *  if p is not between 0.0 and 1.0
+     */
+    void reset(double p, long seed) throws IllegalArgumentException;
+}
@@ -0,0 +1,31 @@
+/**
+ * This class is the fixed-time signal plan of the original simulator: every road gets the light in turn
+ * for its full green time, the last third of which is a left signal, whether or not any vehicle is waiting.
+*/
+
+public class RoundRobinSignalController implements SignalController {
+    /**
+     * The shared instance, used by every intersection which is not given a controller.
+     */
+    public static final RoundRobinSignalController INSTANCE = new RoundRobinSignalController();
+
+    @Override
+    public int startTurn(Intersection intersection, int roadIndex){
+        return intersection.getRoad(roadIndex).getGreenTime();
+    }
+
+    @Override
+    public int nextTimer(Intersection intersection, int roadIndex, int countdownTimer, int elapsed){
+        return countdownTimer - 1;
+    }
+
+    @Override
+    public int nextRoad(Intersection intersection, int roadIndex){
+        return (roadIndex + 1) % intersection.getNumRoads();
+    }
+
+    @Override
+    public String toString(){
+        return "round-robin";
+    }
+}
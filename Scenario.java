@@ -0,0 +1,291 @@
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * This class is one validated scenario of a scenario file, loaded by ScenarioLoader.
+ * Everything a run needs is checked and compiled when the file is loaded: the road names and green times, the
+ * arrival probability or the parsed ArrivalProfile, the engine, signal controller, parsed PhasePlan, reporter and seed.
+ * A scenario does not change once loaded, so it can be run any number of times, from any thread, without parsing
+ * anything again; every run builds its own roads, intersection and arrival source from these templates.
+*/
+
+public class Scenario {
+    /**
+     * The engines a scenario can run on.
+     */
+    public enum Engine { TICK, EVENT }
+
+    private final String name;
+    private final int simulationTime;
+    private final String[] roadNames;
+    private final int[] greenTimes;
+    private final double arrivalProbability;
+    private final ArrivalProfile profile;
+    private final int maxArrivals;
+    private final Engine engine;
+    private final SignalController signalController;
+    private final String reporter;
+    private final Long seed;
+    private final int replications;
+    private final int maxLaneLength;
+    private final OverflowPolicy overflowPolicy;
+    private final PhasePlan phasePlan;
+
+    /**
+     * This is the constructor of the class, used by ScenarioLoader once every value is validated.
+     */
+    Scenario(String name, int simulationTime, String[] roadNames, int[] greenTimes, double arrivalProbability, ArrivalProfile profile,
+        int maxArrivals, Engine engine, SignalController signalController, String reporter, Long seed, int replications,
+        int maxLaneLength, OverflowPolicy overflowPolicy, PhasePlan phasePlan){
+        this.name = name;
+        this.simulationTime = simulationTime;
+        this.roadNames = roadNames.clone();
+        this.greenTimes = greenTimes.clone();
+        this.arrivalProbability = arrivalProbability;
+        this.profile = profile;
+        this.maxArrivals = maxArrivals;
+        this.engine = engine;
+        this.signalController = signalController;
+        this.reporter = reporter;
+        this.seed = seed;
+        this.replications = replications;
+        this.maxLaneLength = maxLaneLength;
+        this.overflowPolicy = overflowPolicy;
+        this.phasePlan = phasePlan;
+    }
+
+    /**
+     * Runs every replication of the scenario with its reporter.
+     * Replication r draws from a seed derived from the scenario seed the same way SweepRunner derives it.
+     * @return
+     *  the statistics of each replication
+     * @throws IOException
+     *  if the reporter cannot write its output
+     */
+    public SimulationStats[] run() throws IOException{
+        SimulationStats[] results = new SimulationStats[replications];
+        for(int r = 0; r < replications; r++){
+            AsyncTraceRenderer renderer = null;
+            BinaryTraceRecorder recorder = null;
+            SimulationListener listener;
+            if(reporter.equals("console")){
+                listener = new ConsoleReporter();
+            }
+            else if(reporter.equals("headless")){
+                listener = new ThroughputReporter();
+            }
+            else if(reporter.equals("async")){
+                renderer = AsyncTraceRenderer.toStdout();
+                listener = renderer;
+            }
+            else if(reporter.startsWith("trace-file:")){
+                renderer = AsyncTraceRenderer.toFile(outputPath(reporter.substring("trace-file:".length()), r));
+                listener = renderer;
+            }
+            else if(reporter.startsWith("record:")){
+                recorder = new BinaryTraceRecorder(outputPath(reporter.substring("record:".length()), r));
+                listener = recorder;
+            }
+            else{
+                listener = new SimulationListener(){};
+            }
+            try{
+                results[r] = run(listener, seed == null ? null : SweepRunner.replicationSeed(seed, r));
+            }
+            finally{
+                if(renderer != null){
+                    renderer.close();
+                }
+                if(recorder != null){
+                    recorder.close();
+                }
+            }
+            if(recorder != null){
+                ConsoleReporter.printSummary(results[r]);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Runs the scenario once with a listener instead of its reporter.
+     * The event engine only calls onSimulationStart, onDeparture and onSimulationEnd.
+     * @param listener
+     *  listener which receives the events
+     * @param seed
+     *  seed of the arrivals, or null to draw from BooleanSourceHW4
+     * @return
+     *  the final statistics
+     */
+    public SimulationStats run(SimulationListener listener, Long seed){
+        long arrivalSeed = seed != null ? seed : System.nanoTime();
+        if(engine == Engine.EVENT){
+            ArrivalSchedule schedule;
+            if(profile != null){
+                schedule = new ProfileArrivalSchedule(profile, arrivalSeed, simulationTime, maxArrivals);
+            }
+            else{
+                schedule = new SourceArrivalSchedule(newSource(seed), simulationTime, roadNames.length);
+            }
+            return new EventDrivenSimulation(simulationTime, roadNames, greenTimes, schedule, listener).run();
+        }
+        Simulation simulation;
+        if(profile != null){
+            simulation = new Simulation(simulationTime, roadNames, greenTimes,
+                new ProfileArrivalSchedule(profile, arrivalSeed, simulationTime, maxArrivals), signalController, listener);
+        }
+        else{
+            simulation = new Simulation(simulationTime, roadNames, greenTimes, newSource(seed), signalController, listener);
+        }
+        simulation.getIntersection().setLaneCapacity(maxLaneLength, overflowPolicy);
+        if(phasePlan != null){
+            simulation.setPhasePlan(phasePlan);
+        }
+        return simulation.run();
+    }
+
+    /**
+     * Builds a fresh arrival source for one run.
+     */
+    private ArrivalSource newSource(Long seed){
+        return seed != null ? new SeededArrivalSource(arrivalProbability, seed) : new BooleanSourceHW4(arrivalProbability);
+    }
+
+    /**
+     * Returns the output file of a replication, numbering the files when there is more than one replication.
+     */
+    private Path outputPath(String file, int replication){
+        return replications == 1 ? Path.of(file) : Path.of(file + "." + (replication + 1));
+    }
+
+    /**
+     * This method returns the name of the scenario.
+     * @return
+     *  String
+     */
+    public String getName(){
+        return name;
+    }
+
+    /**
+     * This method returns the simulation time.
+     * @return
+     *  int
+     */
+    public int getSimulationTime(){
+        return simulationTime;
+    }
+
+    /**
+     * This method returns a copy of the road names.
+     * @return
+     *  String[]
+     */
+    public String[] getRoadNames(){
+        return roadNames.clone();
+    }
+
+    /**
+     * This method returns a copy of the green time of each road.
+     * @return
+     *  int[]
+     */
+    public int[] getGreenTimes(){
+        return greenTimes.clone();
+    }
+
+    /**
+     * This method returns the arrival probability, used when there is no profile.
+     * @return
+     *  double
+     */
+    public double getArrivalProbability(){
+        return arrivalProbability;
+    }
+
+    /**
+     * This method returns the arrival profile, or null.
+     * @return
+     *  ArrivalProfile
+     */
+    public ArrivalProfile getProfile(){
+        return profile;
+    }
+
+    /**
+     * This method returns the engine.
+     * @return
+     *  Engine
+     */
+    public Engine getEngine(){
+        return engine;
+    }
+
+    /**
+     * This method returns the signal controller.
+     * @return
+     *  SignalController
+     */
+    public SignalController getSignalController(){
+        return signalController;
+    }
+
+    /**
+     * This method returns the reporter: console, headless, async, none, trace-file:&lt;file&gt; or record:&lt;file&gt;.
+     * @return
+     *  String
+     */
+    public String getReporter(){
+        return reporter;
+    }
+
+    /**
+     * This method returns the seed, or null to draw from BooleanSourceHW4.
+     * @return
+     *  Long
+     */
+    public Long getSeed(){
+        return seed;
+    }
+
+    /**
+     * This method returns the number of replications.
+     * @return
+     *  int
+     */
+    public int getReplications(){
+        return replications;
+    }
+
+    /**
+     * This method returns the most vehicles a lane can hold, Integer.MAX_VALUE for no limit.
+     * @return
+     *  int
+     */
+    public int getMaxLaneLength(){
+        return maxLaneLength;
+    }
+
+    /**
+     * This method returns the policy for vehicles arriving at a full lane.
+     * @return
+     *  OverflowPolicy
+     */
+    public OverflowPolicy getOverflowPolicy(){
+        return overflowPolicy;
+    }
+
+    /**
+     * This method returns the phase plan run instead of the signal controller, or null.
+     * @return
+     *  PhasePlan
+     */
+    public PhasePlan getPhasePlan(){
+        return phasePlan;
+    }
+
+    @Override
+    public String toString(){
+        return name;
+    }
+}
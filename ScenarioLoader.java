@@ -0,0 +1,248 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class loads a scenario file: any number of scenarios, each a section of key = value lines.
+ * Keys before the first section are defaults for every scenario. Empty lines and lines starting with # are skipped.
+ * <pre>
+ * # defaults
+ * reporter = headless
+ * seed = 2023
+ *
+ * [scenario evening-rush]
+ * time = 2000
+ * roads = Main:12, Oak:7, Elm:20
+ * profile = evening.csv
+ * controller = actuated:4
+ *
+ * [scenario baseline]
+ * time = 2000
+ * roads = Main:12, Oak:7, Elm:20
+ * probability = 0.2
+ * engine = event
+ * reporter = none
+ * replications = 8
+ * </pre>
+ * The keys are time, roads (name:greenTime pairs, 1 to 4 roads), probability or profile (an ArrivalProfile demand
+ * file, relative to the scenario file), max-arrivals (per time step with a profile, default 6), engine (tick or event),
+ * controller (fixed or actuated:n), reporter (console, headless, async, none, trace-file:&lt;file&gt; or
+ * record:&lt;file&gt;; the event engine reports no time steps, so it only runs with none), seed (without one
+ * arrivals come from BooleanSourceHW4), replications, lane-capacity (the most vehicles on a lane, tick engine only),
+ * overflow (reject, divert or block, see OverflowPolicy) and phases (round-robin, overlap or a written PhasePlan run
+ * instead of the controller, tick engine only).
+ * Every scenario is validated while loading, so a mistake anywhere in the file is reported before anything runs.
+*/
+
+public class ScenarioLoader {
+    private static final String[] KEYS = {"time", "roads", "probability", "profile", "max-arrivals", "engine",
+        "controller", "reporter", "seed", "replications", "lane-capacity", "overflow", "phases"};
+
+    /**
+     * Loads and validates every scenario of a file.
+     * @param file
+     *  the scenario file
+     * @return
+     *  the scenarios, in the order of the file
+     * @throws IOException
+     *  if the file or a profile cannot be read, or a scenario is invalid
+     */
+    public static List<Scenario> load(Path file) throws IOException{
+        Map<String, String> defaults = new HashMap<String, String>();
+        Map<String, Map<String, String>> sections = new LinkedHashMap<String, Map<String, String>>();
+        Map<String, Integer> sectionLines = new HashMap<String, Integer>();
+        Map<String, String> current = defaults;
+        try(BufferedReader reader = new BufferedReader(new FileReader(file.toFile()))){
+            String line;
+            int lineNumber = 0;
+            while((line = reader.readLine()) != null){
+                lineNumber++;
+                line = line.trim();
+                if(line.isEmpty() || line.startsWith("#")){
+                    continue;
+                }
+                if(line.startsWith("[") && line.endsWith("]")){
+                    String[] header = line.substring(1, line.length() - 1).trim().split("\\s+", 2);
+                    if(header.length != 2 || !header[0].equals("scenario")){
+                        throw new IOException(file + ":" + lineNumber + ": expected [scenario <name>]");
+                    }
+                    if(sections.containsKey(header[1])){
+                        throw new IOException(file + ":" + lineNumber + ": duplicate scenario " + header[1]);
+                    }
+                    current = new HashMap<String, String>(defaults);
+                    sections.put(header[1], current);
+                    sectionLines.put(header[1], lineNumber);
+                    continue;
+                }
+                int equals = line.indexOf('=');
+                if(equals < 0){
+                    throw new IOException(file + ":" + lineNumber + ": expected key = value");
+                }
+                String key = line.substring(0, equals).trim();
+                if(!java.util.Arrays.asList(KEYS).contains(key)){
+                    throw new IOException(file + ":" + lineNumber + ": unknown key " + key);
+                }
+                current.put(key, line.substring(equals + 1).trim());
+            }
+        }
+        Map<Path, ArrivalProfile> profiles = new HashMap<Path, ArrivalProfile>();
+        List<Scenario> scenarios = new ArrayList<Scenario>();
+        for(Map.Entry<String, Map<String, String>> section : sections.entrySet()){
+            try{
+                scenarios.add(compile(file, section.getKey(), section.getValue(), profiles));
+            }
+            catch(IllegalArgumentException e){
+                throw new IOException(file + ":" + sectionLines.get(section.getKey()) + ": scenario " + section.getKey() + ": " + e.getMessage(), e);
+            }
+        }
+        return scenarios;
+    }
+
+    /**
+     * Validates one scenario and compiles it, loading each profile file once.
+     * @throws IllegalArgumentException
+     *  if a value is missing or invalid
+     */
+    private static Scenario compile(Path file, String name, Map<String, String> values, Map<Path, ArrivalProfile> profiles) throws IOException, IllegalArgumentException{
+        int simulationTime = parseInt(values, "time", null);
+        if(simulationTime < 0){
+            throw new IllegalArgumentException("time cannot be negative");
+        }
+        String roadsValue = values.get("roads");
+        if(roadsValue == null){
+            throw new IllegalArgumentException("roads is missing");
+        }
+        String[] roads = roadsValue.split(",");
+        if(roads.length > 4){
+            throw new IllegalArgumentException("at most 4 roads");
+        }
+        String[] roadNames = new String[roads.length];
+        int[] greenTimes = new int[roads.length];
+        for(int i = 0; i < roads.length; i++){
+            int colon = roads[i].lastIndexOf(':');
+            if(colon < 0){
+                throw new IllegalArgumentException("road " + roads[i].trim() + " must be name:greenTime");
+            }
+            roadNames[i] = roads[i].substring(0, colon).trim();
+            greenTimes[i] = Integer.parseInt(roads[i].substring(colon + 1).trim());
+            if(roadNames[i].isEmpty() || greenTimes[i] <= 0){
+                throw new IllegalArgumentException("road " + roads[i].trim() + " needs a name and a green time greater than 0");
+            }
+            for(int j = 0; j < i; j++){
+                if(roadNames[j].equals(roadNames[i])){
+                    throw new IllegalArgumentException("duplicate road " + roadNames[i]);
+                }
+            }
+        }
+        ArrivalProfile profile = null;
+        double probability = 0.0;
+        if(values.containsKey("profile")){
+            Path profileFile = file.toAbsolutePath().resolveSibling(values.get("profile")).normalize();
+            profile = profiles.get(profileFile);
+            if(profile == null){
+                profile = ArrivalProfile.load(profileFile, roadNames.length);
+                profiles.put(profileFile, profile);
+            }
+            if(profile.getNumRoads() != roadNames.length){
+                throw new IllegalArgumentException("profile " + profileFile + " is shared by scenarios with different numbers of roads");
+            }
+        }
+        else{
+            if(!values.containsKey("probability")){
+                throw new IllegalArgumentException("probability or profile is missing");
+            }
+            probability = Double.parseDouble(values.get("probability"));
+            if(!(probability >= 0.0 && probability <= 1.0)){
+                throw new IllegalArgumentException("probability must be between 0.0 and 1.0");
+            }
+        }
+        int maxArrivals = parseInt(values, "max-arrivals", 6);
+        if(maxArrivals < 1){
+            throw new IllegalArgumentException("max-arrivals must be at least 1");
+        }
+        String engineValue = values.getOrDefault("engine", "tick");
+        Scenario.Engine engine;
+        if(engineValue.equals("tick")){
+            engine = Scenario.Engine.TICK;
+        }
+        else if(engineValue.equals("event")){
+            engine = Scenario.Engine.EVENT;
+        }
+        else{
+            throw new IllegalArgumentException("engine must be tick or event");
+        }
+        SignalController controller = SweepRunner.parseController(values.getOrDefault("controller", "fixed"));
+        if(engine == Scenario.Engine.EVENT && controller != RoundRobinSignalController.INSTANCE){
+            throw new IllegalArgumentException("the event engine only runs the fixed controller");
+        }
+        String reporter = values.getOrDefault("reporter", "console");
+        if(!(reporter.equals("console") || reporter.equals("headless") || reporter.equals("async") || reporter.equals("none")
+            || (reporter.startsWith("trace-file:") && reporter.length() > "trace-file:".length())
+            || (reporter.startsWith("record:") && reporter.length() > "record:".length()))){
+            throw new IllegalArgumentException("unknown reporter " + reporter);
+        }
+        if(engine == Scenario.Engine.EVENT && !reporter.equals("none")){
+            throw new IllegalArgumentException("the event engine reports no time steps, so its reporter must be none");
+        }
+        Long seed = values.containsKey("seed") ? Long.valueOf(values.get("seed")) : null;
+        int replications = parseInt(values, "replications", 1);
+        if(replications < 1){
+            throw new IllegalArgumentException("replications must be at least 1");
+        }
+        int maxLaneLength = parseInt(values, "lane-capacity", Integer.MAX_VALUE);
+        if(maxLaneLength < 1){
+            throw new IllegalArgumentException("lane-capacity must be at least 1");
+        }
+        if(engine == Scenario.Engine.EVENT && maxLaneLength != Integer.MAX_VALUE){
+            throw new IllegalArgumentException("the event engine only runs unbounded lanes");
+        }
+        OverflowPolicy overflowPolicy;
+        try{
+            overflowPolicy = OverflowPolicy.valueOf(values.getOrDefault("overflow", "reject").toUpperCase());
+        }
+        catch(IllegalArgumentException e){
+            throw new IllegalArgumentException("overflow must be reject, divert or block");
+        }
+        String phases = values.get("phases");
+        PhasePlan phasePlan = null;
+        if(phases != null){
+            if(engine == Scenario.Engine.EVENT){
+                throw new IllegalArgumentException("the event engine only runs the fixed controller");
+            }
+            TwoWayRoad[] roadTemplates = new TwoWayRoad[roadNames.length];
+            for(int i = 0; i < roadTemplates.length; i++){
+                roadTemplates[i] = new TwoWayRoad(roadNames[i], greenTimes[i]);
+            }
+            phasePlan = PhasePlan.parse(phases, new Intersection(roadTemplates));
+        }
+        return new Scenario(name, simulationTime, roadNames, greenTimes, probability, profile, maxArrivals, engine, controller, reporter, seed, replications,
+            maxLaneLength, overflowPolicy, phasePlan);
+    }
+
+    /**
+     * Parses an int value, or returns the default if the key is missing.
+     * @throws IllegalArgumentException
+     *  if the key is missing without a default, or the value is not an int
+     */
+    private static int parseInt(Map<String, String> values, String key, Integer defaultValue) throws IllegalArgumentException{
+        String value = values.get(key);
+        if(value == null){
+            if(defaultValue == null){
+                throw new IllegalArgumentException(key + " is missing");
+            }
+            return defaultValue;
+        }
+        try{
+            return Integer.parseInt(value);
+        }
+        catch(NumberFormatException e){
+            throw new IllegalArgumentException(key + " must be an integer");
+        }
+    }
+}
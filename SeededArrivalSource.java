@@ -0,0 +1,71 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * This class draws arrivals from a random generator seeded for one simulation, so runs are reproducible
+ * and independent runs never share a random generator. The generator is the SplitMix64 algorithm of
+ * java.util.SplittableRandom, and draws the same numbers as new SplittableRandom(seed).nextDouble(),
+ * but its whole state is one long which can be saved in a checkpoint.
+*/
+
+public class SeededArrivalSource implements CheckpointableArrivalSource, ResettableArrivalSource {
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private double probability;
+    private long state;
+
+    /**
+     * This is the constructor of the class.
+     * @param p
+     *  probability of an arrival
+     * @param seed
+     *  seed of the random generator
+     * @throws IllegalArgumentException
+     *  if p is not between 0.0 and 1.0
+     */
+    public SeededArrivalSource(double p, long seed) throws IllegalArgumentException{
+        if(p < 0.0 || p > 1.0){
+            throw new IllegalArgumentException("p must be between 0.0 and 1.0");
+        }
+        this.probability = p;
+        this.state = seed;
+    }
+
+    @Override
+    public boolean occurs(){
+        return nextDouble() < probability;
+    }
+
+    /**
+     * Draws a random number between 0.0 and 1.0.
+     * @return
+     *  double
+     */
+    public double nextDouble(){
+        state += GOLDEN_GAMMA;
+        long z = state;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        z = z ^ (z >>> 31);
+        return (z >>> 11) * 0x1.0p-53;
+    }
+
+    @Override
+    public void reset(double p, long seed) throws IllegalArgumentException{
+        if(p < 0.0 || p > 1.0){
+            throw new IllegalArgumentException("p must be between 0.0 and 1.0");
+        }
+        this.probability = p;
+        this.state = seed;
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException{
+        out.writeLong(state);
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException{
+        state = in.readLong();
+    }
+}
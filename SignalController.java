@@ -0,0 +1,46 @@
+/**
+ * This interface decides which road of an intersection has the light and for how long.
+ * The countdown timer of the road with the light works as before: the road has a green light while the timer
+ * is greater than its left signal green time, then a left signal, and its turn ends when the timer reaches 0.
+ * A controller chooses the timer at the start of each turn, how the timer moves after each time step,
+ * and which road is next. Controllers keep no state of their own, so one can be shared by many intersections.
+*/
+
+public interface SignalController {
+    /**
+     * Starts the turn of a road, which may also set the road's left signal green time.
+     * @param intersection
+     *  the intersection
+     * @param roadIndex
+     *  index of the road getting the light
+     * @return
+     *  the countdown timer of the first time step of the turn, at least 1
+     */
+    int startTurn(Intersection intersection, int roadIndex);
+
+    /**
+     * Moves the countdown timer after a time step of a road's turn.
+     * @param intersection
+     *  the intersection, after the vehicles of the time step have passed
+     * @param roadIndex
+     *  index of the road with the light
+     * @param countdownTimer
+     *  the timer of the time step which just ended
+     * @param elapsed
+     *  number of time steps of the turn so far, including the one which just ended
+     * @return
+     *  the timer of the next time step, or 0 to end the turn
+     */
+    int nextTimer(Intersection intersection, int roadIndex, int countdownTimer, int elapsed);
+
+    /**
+     * Chooses the road which gets the light after a road's turn has ended.
+     * @param intersection
+     *  the intersection
+     * @param roadIndex
+     *  index of the road whose turn ended
+     * @return
+     *  index of the next road
+     */
+    int nextRoad(Intersection intersection, int roadIndex);
+}
@@ -0,0 +1,563 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * This class runs one simulation of an intersection and reports every event to a SimulationListener.
+ * It holds no reporting code itself, so a run with a listener that ignores the step events only collects statistics.
+ * Serial IDs are numbered per simulation, so simulations can run in parallel without sharing any state.
+ * A simulation drawing from a CheckpointableArrivalSource can be checkpointed between time steps and resumed later.
+*/
+
+public class Simulation {
+    private int simulationTime;
+    private final TwoWayRoad[] roads;
+    private final Intersection intersection;
+    private final ArrivalSource arrivalSource;
+    private ArrivalSchedule arrivalSchedule;
+    private boolean scheduledArrival;
+    private final SimulationListener listener;
+    private final SimulationStats stats;
+    private final DepartureConsumer departureRecorder = this::recordDeparture;
+    private int timeStep = 1;
+    private int serialCounter = 0;
+    private Checkpointer checkpointer;
+    private int checkpointInterval;
+    private boolean fastForwardDrain;
+    private static final int CHECKPOINT_MAGIC = 0x49534350;
+    private static final int CHECKPOINT_VERSION = 4;
+
+    /**
+     * Constructor which builds the roads and the intersection.
+     * @param simulationTime
+     *  number of time steps during which vehicles arrive
+     * @param arrivalProbability
+     *  probability of a vehicle arriving on each lane at each time step
+     * @param roadNames
+     *  names of the roads
+     * @param maxGreenTimes
+     *  green time of each road
+     * @param listener
+     *  listener which receives the events of the simulation
+     * @throws IllegalArgumentException
+     *  If roadNames and maxGreenTimes differ in length, or listener is null.
+     */
+    public Simulation(int simulationTime, double arrivalProbability, String[] roadNames, int[] maxGreenTimes, SimulationListener listener) throws IllegalArgumentException{
+        this(simulationTime, roadNames, maxGreenTimes, new BooleanSourceHW4(arrivalProbability), listener);
+    }
+
+    /**
+     * Constructor which builds the roads and the intersection, drawing arrivals from the given source.
+     * @param simulationTime
+     *  number of time steps during which vehicles arrive
+     * @param roadNames
+     *  names of the roads
+     * @param maxGreenTimes
+     *  green time of each road
+     * @param arrivalSource
+     *  source of the arrivals, owned by this simulation
+     * @param listener
+     *  listener which receives the events of the simulation
+     * @throws IllegalArgumentException
+     *  If roadNames and maxGreenTimes differ in length, or arrivalSource or listener is null.
+     */
+    public Simulation(int simulationTime, String[] roadNames, int[] maxGreenTimes, ArrivalSource arrivalSource, SimulationListener listener) throws IllegalArgumentException{
+        this(simulationTime, roadNames, maxGreenTimes, arrivalSource, RoundRobinSignalController.INSTANCE, listener);
+    }
+
+    /**
+     * Constructor which builds the roads and an intersection run by a signal controller, drawing arrivals from the given source.
+     * @param simulationTime
+     *  number of time steps during which vehicles arrive
+     * @param roadNames
+     *  names of the roads
+     * @param maxGreenTimes
+     *  green time of each road
+     * @param arrivalSource
+     *  source of the arrivals, owned by this simulation
+     * @param signalController
+     *  controller which decides which road has the light and for how long
+     * @param listener
+     *  listener which receives the events of the simulation
+     * @throws IllegalArgumentException
+     *  If roadNames and maxGreenTimes differ in length, or arrivalSource, signalController or listener is null.
+     */
+    public Simulation(int simulationTime, String[] roadNames, int[] maxGreenTimes, ArrivalSource arrivalSource, SignalController signalController, SimulationListener listener) throws IllegalArgumentException{
+        this(simulationTime, roadNames, maxGreenTimes, arrivalSource, null, signalController, listener);
+    }
+
+    /**
+     * Constructor which builds the roads and an intersection run by a signal controller, taking arrivals from
+     * a schedule instead of drawing them lane by lane, e.g. a ProfileArrivalSchedule for time-varying demand.
+     * Arrivals of the schedule after the simulation time are ignored.
+     * @param simulationTime
+     *  number of time steps during which vehicles arrive
+     * @param roadNames
+     *  names of the roads
+     * @param maxGreenTimes
+     *  green time of each road
+     * @param arrivalSchedule
+     *  the arrivals, in time order, owned by this simulation
+     * @param signalController
+     *  controller which decides which road has the light and for how long
+     * @param listener
+     *  listener which receives the events of the simulation
+     * @throws IllegalArgumentException
+     *  If roadNames and maxGreenTimes differ in length, or arrivalSchedule, signalController or listener is null.
+     */
+    public Simulation(int simulationTime, String[] roadNames, int[] maxGreenTimes, ArrivalSchedule arrivalSchedule, SignalController signalController, SimulationListener listener) throws IllegalArgumentException{
+        this(simulationTime, roadNames, maxGreenTimes, null, arrivalSchedule, signalController, listener);
+    }
+
+    /**
+     * Builds the simulation with either an arrival source or an arrival schedule.
+     */
+    private Simulation(int simulationTime, String[] roadNames, int[] maxGreenTimes, ArrivalSource arrivalSource, ArrivalSchedule arrivalSchedule, SignalController signalController, SimulationListener listener) throws IllegalArgumentException{
+        if(roadNames.length != maxGreenTimes.length || (arrivalSource == null && arrivalSchedule == null) || signalController == null || listener == null){
+            throw new IllegalArgumentException("roadNames and maxGreenTimes must match and arrivals, signalController or listener cannot be null");
+        }
+        this.simulationTime = simulationTime;
+        this.roads = new TwoWayRoad[roadNames.length];
+        for(int i = 0; i < roads.length; i++){
+            roads[i] = new TwoWayRoad(roadNames[i], maxGreenTimes[i]);
+        }
+        this.intersection = new Intersection(roads, signalController);
+        this.arrivalSource = arrivalSource;
+        this.arrivalSchedule = arrivalSchedule;
+        this.scheduledArrival = arrivalSchedule != null && arrivalSchedule.advance();
+        this.stats = new SimulationStats(roads.length);
+        this.listener = listener;
+    }
+
+    /**
+     * Reconfigures the simulation for another run and rewinds it to its first time step, reusing the roads,
+     * intersection, lanes, statistics and arrival source instead of building new ones. The checkpointer is removed.
+     * Used by callers which run many short simulations, such as an optimizer trying green times.
+     * @param config
+     *  the simulation time, arrival probability, green times, left signal fractions and signal controller of the
+     *  next run; it must have as many roads as this simulation, which are named as by config.getRoadNames()
+     * @param seed
+     *  seed of the arrivals of the next run
+     * @throws IllegalArgumentException
+     *  if config does not have as many roads as this simulation
+     * @throws IllegalStateException
+     *  if the arrivals do not come from a ResettableArrivalSource
+     */
+    public void reset(SweepConfig config, long seed) throws IllegalArgumentException, IllegalStateException{
+        if(!(arrivalSource instanceof ResettableArrivalSource)){
+            throw new IllegalStateException("arrival source cannot be reset");
+        }
+        resetIntersection(config);
+        ((ResettableArrivalSource) arrivalSource).reset(config.getArrivalProbability(), seed);
+    }
+
+    /**
+     * Reconfigures the simulation like reset(config, seed) for a simulation which draws its arrivals from a schedule,
+     * such as a fresh ProfileArrivalSchedule for each run. The arrival probability of config is not used.
+     * @param config
+     *  the simulation time, green times, left signal fractions and signal controller of the next run; it must have
+     *  as many roads as this simulation, which are named as by config.getRoadNames()
+     * @param arrivalSchedule
+     *  the arrivals of the next run, which have not been advanced yet
+     * @throws IllegalArgumentException
+     *  if config does not have as many roads as this simulation, or arrivalSchedule is null
+     * @throws IllegalStateException
+     *  if the simulation was built with an ArrivalSource instead of a schedule
+     */
+    public void reset(SweepConfig config, ArrivalSchedule arrivalSchedule) throws IllegalArgumentException, IllegalStateException{
+        if(this.arrivalSchedule == null){
+            throw new IllegalStateException("simulation does not draw from an arrival schedule");
+        }
+        if(arrivalSchedule == null){
+            throw new IllegalArgumentException("arrivalSchedule cannot be null");
+        }
+        resetIntersection(config);
+        this.arrivalSchedule = arrivalSchedule;
+        this.scheduledArrival = arrivalSchedule.advance();
+    }
+
+    /**
+     * Reconfigures the intersection and rewinds everything but the arrivals.
+     */
+    private void resetIntersection(SweepConfig config) throws IllegalArgumentException{
+        if(config.getNumRoads() != roads.length){
+            throw new IllegalArgumentException("config must have " + roads.length + " roads");
+        }
+        intersection.reset(config.getRoadNames(), config.getMaxGreenTimes(), config.getLeftSignalFractions(), config.getSignalController());
+        stats.clear();
+        simulationTime = config.getSimulationTime();
+        timeStep = 1;
+        serialCounter = 0;
+        checkpointer = null;
+    }
+
+    /**
+     * Runs the simulation until the simulation time is over and the intersection is empty.
+     * A resumed simulation does not report the start of the simulation again.
+     * @return
+     *  the final statistics
+     */
+    public SimulationStats run(){
+        if(timeStep == 1){
+            listener.onSimulationStart();
+        }
+        boolean running = true;
+        while(running){
+            running = step();
+        }
+        listener.onSimulationEnd(stats);
+        return stats;
+    }
+
+    /**
+     * Performs a single time step: with arrivals until the simulation time is over, then draining the intersection.
+     * With setFastForwardDrain, the first call after the simulation time instead runs the whole drain in closed form,
+     * reporting its departures but no step events, and returns false.
+     * Once the simulation is running, a step does not allocate unless a lane grows past its capacity or the listener allocates.
+     * @return
+     *  false once the simulation time is over and the intersection is empty, without doing anything if it already was
+     *  empty, or after the fast-forwarded drain has emptied it
+     */
+    public boolean step(){
+        boolean arrivalsOpen = timeStep <= simulationTime;
+        if(!arrivalsOpen && intersection.isEmpty()){
+            return false;
+        }
+        if(!arrivalsOpen && fastForwardDrain && intersection.getSignalController() == RoundRobinSignalController.INSTANCE
+            && intersection.getPhasePlan() == null){
+            drain();
+            return false;
+        }
+        listener.onStepStart(timeStep, intersection, arrivalsOpen);
+        if(arrivalsOpen){
+            if(arrivalSchedule != null){
+                enqueueScheduledArrivals();
+            }
+            else{
+                enqueueArrivals();
+            }
+        }
+        listener.onArrivalsEnd(timeStep);
+        intersection.timeStep(departureRecorder);
+        stats.endStep(timeStep);
+        listener.onStepEnd(timeStep, intersection, stats);
+        intersection.timeStepPtTwo();
+        timeStep++;
+        if(checkpointer != null && (timeStep - 1) % checkpointInterval == 0){
+            checkpointer.save(this);
+        }
+        return true;
+    }
+
+    /**
+     * Makes the simulation compute the drain after the simulation time in closed form instead of step by step,
+     * when the intersection runs the fixed round-robin plan without a PhasePlan. Once arrivals stop, the light
+     * schedule is fixed and every lane discharges one vehicle per time step of its movement, so the departure time
+     * of every waiting vehicle is known from the turns of its road. The statistics, the final light state and the next time step are the same as
+     * stepping gives, and the listener receives onDeparture for every drained vehicle, lane by lane rather than in
+     * time order, but no step events, and no checkpoint is saved during the drain.
+     * @param fastForwardDrain
+     *  true to fast-forward the drain
+     */
+    public void setFastForwardDrain(boolean fastForwardDrain){
+        this.fastForwardDrain = fastForwardDrain;
+    }
+
+    /**
+     * Empties the intersection turn by turn: in a turn of road r with countdown c, the green lanes of r discharge in
+     * the first c - leftSignalGreenTime time steps and the left lanes in the rest, one vehicle per lane per time step.
+     * @throws IllegalStateException
+     *  if a vehicle waits on a lane of a road whose turn never releases it, which stepping would never empty
+     */
+    private void drain() throws IllegalStateException{
+        for(int i = 0; i < roads.length; i++){
+            if((roads[i].getLeftSignalGreenTime() == 0 && roads[i].getLeftDemand() > 0)
+                || (roads[i].getLeftSignalGreenTime() >= roads[i].getGreenTime() && roads[i].getGreenDemand() > 0)){
+                throw new IllegalStateException("vehicles are waiting on a lane which never gets a signal");
+            }
+        }
+        int t = timeStep;
+        int lightIndex = intersection.getLightIndex();
+        int timer = intersection.getCountdownTimer();
+        int elapsed = intersection.getTurnElapsed();
+        while(true){
+            TwoWayRoad road = roads[lightIndex];
+            int leftSignalGreenTime = road.getLeftSignalGreenTime();
+            int greenSteps = Math.max(0, timer - leftSignalGreenTime);
+            int last = Math.max(drainMovements(lightIndex, TwoWayRoad.GREEN_MOVEMENTS, t, greenSteps),
+                drainMovements(lightIndex, TwoWayRoad.LEFT_MOVEMENTS, t + greenSteps, timer - greenSteps));
+            if(intersection.isEmpty()){
+                road.setLightValue(timer - (last - t) > leftSignalGreenTime ? LightValue.GREEN : LightValue.LEFT_SIGNAL);
+                timer -= last - t + 1;
+                elapsed += last - t + 1;
+                if(timer <= 0){
+                    road.setLightValue(LightValue.RED);
+                    lightIndex = (lightIndex + 1) % roads.length;
+                    timer = roads[lightIndex].getGreenTime();
+                    elapsed = 0;
+                }
+                intersection.setLightState(lightIndex, timer, elapsed);
+                stats.endStep(last);
+                timeStep = last + 1;
+                return;
+            }
+            road.setLightValue(LightValue.RED);
+            t += timer;
+            lightIndex = (lightIndex + 1) % roads.length;
+            timer = roads[lightIndex].getGreenTime();
+            elapsed = 0;
+        }
+    }
+
+    /**
+     * Lets up to steps vehicles leave each lane in movements, one per time step from start.
+     * @return
+     *  the last time step a vehicle left at, or Integer.MIN_VALUE if none did
+     */
+    private int drainMovements(int roadIndex, int[][] movements, int start, int steps){
+        int last = Integer.MIN_VALUE;
+        TwoWayRoad road = roads[roadIndex];
+        for(int i = 0; i < movements.length; i++){
+            int wayIndex = movements[i][0];
+            int laneIndex = movements[i][1];
+            VehicleQueue lane = road.getLanes()[wayIndex][laneIndex];
+            int count = Math.min(lane.size(), steps);
+            for(int j = 0; j < count; j++){
+                int waitTime = start + j - lane.peekTimeArrived();
+                int serialId = road.removeFirstVehicle(wayIndex, laneIndex);
+                stats.recordDeparture(roadIndex, wayIndex, laneIndex, waitTime);
+                listener.onDeparture(start + j, roadIndex, wayIndex, laneIndex, serialId, waitTime);
+            }
+            if(count > 0){
+                last = Math.max(last, start + count - 1);
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Makes the intersection run a multi-phase signal plan instead of its signal controller, starting at the first
+     * phase, or go back to its signal controller, like Intersection.setPhasePlan.
+     * @param phasePlan
+     *  the plan, or null for the signal controller
+     * @throws IllegalArgumentException
+     *  if the plan is not for as many roads as the intersection has
+     * @throws IllegalStateException
+     *  if a plan is given while a checkpointer is set, since checkpoints do not record phase plans
+     */
+    public void setPhasePlan(PhasePlan phasePlan) throws IllegalArgumentException, IllegalStateException{
+        if(phasePlan != null && checkpointer != null){
+            throw new IllegalStateException("checkpoints do not record phase plans");
+        }
+        intersection.setPhasePlan(phasePlan);
+    }
+
+    /**
+     * Makes the simulation save a checkpoint after every interval time steps.
+     * @param checkpointer
+     *  the checkpointer which writes the checkpoints, or null to stop checkpointing
+     * @param interval
+     *  number of time steps between two checkpoints
+     * @throws IllegalArgumentException
+     *  if interval &lt; 1, or the arrival source is not a CheckpointableArrivalSource
+     * @throws IllegalStateException
+     *  if the intersection runs a PhasePlan, which checkpoints do not record
+     */
+    public void setCheckpointer(Checkpointer checkpointer, int interval) throws IllegalArgumentException, IllegalStateException{
+        if(checkpointer != null && (interval < 1 || !(arrivalSource instanceof CheckpointableArrivalSource))){
+            throw new IllegalArgumentException("interval must be at least 1 and the arrival source must be checkpointable");
+        }
+        if(checkpointer != null && intersection.getPhasePlan() != null){
+            throw new IllegalStateException("checkpoints do not record phase plans");
+        }
+        this.checkpointer = checkpointer;
+        this.checkpointInterval = interval;
+    }
+
+    /**
+     * Writes the configuration and the complete state of the simulation, including its arrival source.
+     * It must be called between two time steps.
+     * @param out
+     *  the checkpoint being written
+     * @throws IOException
+     *  if the checkpoint cannot be written
+     * @throws IllegalStateException
+     *  if the arrival source is not a CheckpointableArrivalSource, or the intersection runs a PhasePlan,
+     *  which checkpoints do not record
+     */
+    public void writeCheckpoint(DataOutput out) throws IOException, IllegalStateException{
+        if(!(arrivalSource instanceof CheckpointableArrivalSource)){
+            throw new IllegalStateException("arrival source cannot be checkpointed");
+        }
+        if(intersection.getPhasePlan() != null){
+            throw new IllegalStateException("checkpoints do not record phase plans");
+        }
+        out.writeInt(CHECKPOINT_MAGIC);
+        out.writeInt(CHECKPOINT_VERSION);
+        out.writeInt(simulationTime);
+        out.writeInt(roads.length);
+        for(int i = 0; i < roads.length; i++){
+            out.writeUTF(roads[i].getName());
+            out.writeInt(roads[i].getGreenTime());
+        }
+        out.writeInt(timeStep);
+        out.writeInt(serialCounter);
+        intersection.writeTo(out);
+        stats.writeTo(out);
+        ((CheckpointableArrivalSource) arrivalSource).writeState(out);
+    }
+
+    /**
+     * Rebuilds a simulation from a checkpoint, so that running it continues the checkpointed run step for step.
+     * @param in
+     *  the checkpoint being read
+     * @param arrivalSource
+     *  a fresh source of the same kind and arrival probability as the checkpointed one, whose position is restored
+     * @param listener
+     *  listener which receives the events of the rest of the simulation
+     * @return
+     *  the resumed simulation
+     * @throws IOException
+     *  if the checkpoint cannot be read or is not a checkpoint
+     * @throws IllegalArgumentException
+     *  if arrivalSource is not a CheckpointableArrivalSource, or listener is null
+     */
+    public static Simulation resume(DataInput in, ArrivalSource arrivalSource, SimulationListener listener) throws IOException, IllegalArgumentException{
+        return resume(in, arrivalSource, RoundRobinSignalController.INSTANCE, listener);
+    }
+
+    /**
+     * Rebuilds a simulation from a checkpoint of a simulation run by a signal controller.
+     * @param in
+     *  the checkpoint being read
+     * @param arrivalSource
+     *  a fresh source of the same kind and arrival probability as the checkpointed one, whose position is restored
+     * @param signalController
+     *  a controller of the same kind and parameters as the checkpointed one
+     * @param listener
+     *  listener which receives the events of the rest of the simulation
+     * @return
+     *  the resumed simulation
+     * @throws IOException
+     *  if the checkpoint cannot be read or is not a checkpoint
+     * @throws IllegalArgumentException
+     *  if arrivalSource is not a CheckpointableArrivalSource, or signalController or listener is null
+     */
+    public static Simulation resume(DataInput in, ArrivalSource arrivalSource, SignalController signalController, SimulationListener listener) throws IOException, IllegalArgumentException{
+        if(!(arrivalSource instanceof CheckpointableArrivalSource)){
+            throw new IllegalArgumentException("arrival source cannot be checkpointed");
+        }
+        if(in.readInt() != CHECKPOINT_MAGIC){
+            throw new IOException("not a simulation checkpoint");
+        }
+        int version = in.readInt();
+        if(version != CHECKPOINT_VERSION){
+            throw new IOException("unsupported checkpoint version " + version);
+        }
+        int simulationTime = in.readInt();
+        int numRoads = in.readInt();
+        if(numRoads < 1){
+            throw new IOException("invalid number of roads " + numRoads);
+        }
+        String[] roadNames = new String[numRoads];
+        int[] maxGreenTimes = new int[numRoads];
+        for(int i = 0; i < numRoads; i++){
+            roadNames[i] = in.readUTF();
+            maxGreenTimes[i] = in.readInt();
+        }
+        Simulation simulation = new Simulation(simulationTime, roadNames, maxGreenTimes, arrivalSource, signalController, listener);
+        simulation.timeStep = in.readInt();
+        simulation.serialCounter = in.readInt();
+        simulation.intersection.readFrom(in);
+        simulation.stats.readFrom(in);
+        ((CheckpointableArrivalSource) arrivalSource).readState(in);
+        return simulation;
+    }
+
+    /**
+     * Records a vehicle which passed through the intersection in the current time step.
+     */
+    private void recordDeparture(int roadIndex, int wayIndex, int laneIndex, int serialId, int timeArrived){
+        int waitTime = timeStep - timeArrived;
+        stats.recordDeparture(roadIndex, wayIndex, laneIndex, waitTime);
+        listener.onDeparture(timeStep, roadIndex, wayIndex, laneIndex, serialId, waitTime);
+    }
+
+    /**
+     * Draws an arrival for every lane, stopping after six vehicles.
+     */
+    private void enqueueArrivals(){
+        outerLoop:
+        for(int i = 0, maxVehicles = 0 ; i < roads.length; i++){
+            for(int wayIndex = 0; wayIndex < TwoWayRoad.NUM_WAYS; wayIndex++){
+                for(int laneIndex = 0; laneIndex < TwoWayRoad.NUM_LANES; laneIndex++){
+                    if(arrivalSource.occurs()){
+                        admit(i, wayIndex, laneIndex);
+                        maxVehicles++;
+                        if(maxVehicles == 6){
+                            break outerLoop;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Enqueues the arrivals of the schedule in the current time step, in the order the schedule gives them.
+     */
+    private void enqueueScheduledArrivals(){
+        while(scheduledArrival && arrivalSchedule.time() <= timeStep){
+            int roadIndex = arrivalSchedule.roadIndex();
+            int wayIndex = arrivalSchedule.wayIndex();
+            int laneIndex = arrivalSchedule.laneIndex();
+            admit(roadIndex, wayIndex, laneIndex);
+            scheduledArrival = arrivalSchedule.advance();
+        }
+    }
+
+    /**
+     * Enqueues an arriving vehicle if its lane, or with the DIVERT policy an adjacent lane, has room.
+     * A rejected vehicle is counted but gets no serial ID, since it never enters the intersection.
+     */
+    private void admit(int roadIndex, int wayIndex, int laneIndex){
+        int lane = intersection.offerVehicle(roadIndex, wayIndex, laneIndex, serialCounter + 1, timeStep);
+        if(lane < 0){
+            stats.recordRejection();
+            return;
+        }
+        if(lane != laneIndex){
+            stats.recordDiversion();
+        }
+        serialCounter++;
+        stats.recordArrival();
+        listener.onArrival(timeStep, intersection, roadIndex, wayIndex, lane, serialCounter);
+    }
+
+    /**
+     * This method returns the simulated intersection.
+     * @return
+     *  Intersection
+     */
+    public Intersection getIntersection(){
+        return intersection;
+    }
+
+    /**
+     * This method returns the next time step to be simulated.
+     * @return
+     *  int
+     */
+    public int getTimeStep(){
+        return timeStep;
+    }
+
+    /**
+     * This method returns the running statistics.
+     * @return
+     *  SimulationStats
+     */
+    public SimulationStats getStats(){
+        return stats;
+    }
+}
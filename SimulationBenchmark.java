@@ -0,0 +1,407 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * This class benchmarks the per-step path of the simulation: TwoWayRoad.proceed, Intersection.timeStep and
+ * timeStepPtTwo, VehicleQueue enqueue and dequeue, TwoWayRoad.getVehicles and a full headless simulation.
+ * Every benchmark runs at several queue depths or road counts, with warmup iterations before it is measured,
+ * and reports the time and the bytes allocated per operation together with the collections it caused.
+ * The Buffer variants and Simulation.step measure the allocation-free paths and should report 0 bytes per operation.
+ * Simulation.coldRun and Simulation.warmRun compare whole short runs built from scratch with runs of one reused
+ * simulation rewound by Simulation.reset, one operation per run.
+ * Run with a benchmark name or part of it to only run matching benchmarks.
+ * The JMH benchmarks of the benchmarks directory run these same workloads with forks and error bounds, and report
+ * allocation through -prof gc (see pom.xml); this harness is a quick check which needs nothing but the JDK.
+*/
+
+public class SimulationBenchmark {
+    private static final int[] QUEUE_DEPTHS = {16, 256, 4096};
+    private static final int[] ROAD_COUNTS = {1, 2, 4};
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASURED_ITERATIONS = 5;
+    private static final long TARGET_ITERATION_NANOS = 200_000_000L;
+    private static final int RUN_TIME = 200;
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+    private static long sink;
+
+    /**
+     * A benchmarked operation, run a given number of times per call.
+     */
+    interface Operation {
+        void run(int ops);
+
+        /**
+         * Checks that the operation still measures the state it was built for, such as the depth of its lanes.
+         * @throws IllegalStateException
+         *  if the state has drifted
+         */
+        default void verify() throws IllegalStateException{
+        }
+    }
+
+    /**
+     * Pairs an operation with a check of its state.
+     */
+    static Operation checked(Operation operation, Runnable check){
+        return new Operation(){
+            @Override
+            public void run(int ops){
+                operation.run(ops);
+            }
+
+            @Override
+            public void verify(){
+                check.run();
+            }
+        };
+    }
+
+    /**
+     * Checks that every lane of a road holds depth vehicles.
+     * @throws IllegalStateException
+     *  if a lane holds another number of vehicles
+     */
+    static void checkDepth(TwoWayRoad road, int depth) throws IllegalStateException{
+        for(int wayIndex = 0; wayIndex < TwoWayRoad.NUM_WAYS; wayIndex++){
+            for(int laneIndex = 0; laneIndex < TwoWayRoad.NUM_LANES; laneIndex++){
+                if(road.getLaneLength(wayIndex, laneIndex) != depth){
+                    throw new IllegalStateException(road.getName() + " lane " + wayIndex + "/" + laneIndex + " holds "
+                        + road.getLaneLength(wayIndex, laneIndex) + " vehicles instead of " + depth);
+                }
+            }
+        }
+    }
+
+    /**
+     * Start for the benchmarks.
+     * @param args
+     *  optional filter on the benchmark names
+     */
+    public static void main(String[] args){
+        String filter = args.length > 0 ? args[0] : "";
+        System.out.println(String.format("%-28s %-18s %12s %12s %6s", "BENCHMARK", "PARAMS", "NS/OP", "B/OP", "GCS"));
+        for(int depth : QUEUE_DEPTHS){
+            run(filter, "VehicleQueue.enqueueDequeue", "depth=" + depth, queueEnqueueDequeue(depth));
+        }
+        for(int depth : QUEUE_DEPTHS){
+            run(filter, "TwoWayRoad.proceed", "depth=" + depth, roadProceed(depth));
+        }
+        for(int depth : QUEUE_DEPTHS){
+            run(filter, "TwoWayRoad.proceedBuffer", "depth=" + depth, roadProceedBuffer(depth));
+        }
+        for(int depth : QUEUE_DEPTHS){
+            run(filter, "TwoWayRoad.getVehicles", "depth=" + depth, roadGetVehicles(depth));
+        }
+        for(int roads : ROAD_COUNTS){
+            for(int depth : QUEUE_DEPTHS){
+                run(filter, "Intersection.timeStep", "roads=" + roads + ",depth=" + depth, intersectionTimeStep(roads, depth));
+            }
+        }
+        for(int roads : ROAD_COUNTS){
+            for(int depth : QUEUE_DEPTHS){
+                run(filter, "Intersection.timeStepBuffer", "roads=" + roads + ",depth=" + depth, intersectionTimeStepBuffer(roads, depth));
+            }
+        }
+        for(int roads : ROAD_COUNTS){
+            run(filter, "Simulation.step", "roads=" + roads, headlessStep(roads));
+        }
+        for(int roads : ROAD_COUNTS){
+            run(filter, "Simulation.coldRun", "roads=" + roads, coldRun(roads));
+        }
+        for(int roads : ROAD_COUNTS){
+            run(filter, "Simulation.warmRun", "roads=" + roads, warmRun(roads));
+        }
+        if(sink == 42){
+            System.out.println();
+        }
+    }
+
+    /**
+     * Fills every lane of a road with depth vehicles.
+     */
+    static TwoWayRoad filledRoad(String name, int greenTime, int depth){
+        TwoWayRoad road = new TwoWayRoad(name, greenTime);
+        int serialId = 0;
+        for(int i = 0; i < depth; i++){
+            for(int wayIndex = 0; wayIndex < TwoWayRoad.NUM_WAYS; wayIndex++){
+                for(int laneIndex = 0; laneIndex < TwoWayRoad.NUM_LANES; laneIndex++){
+                    road.enqueueVehicle(wayIndex, laneIndex, ++serialId, 1);
+                }
+            }
+        }
+        return road;
+    }
+
+    /**
+     * Dequeues from the front and enqueues at the back of a queue holding depth vehicles.
+     */
+    static Operation queueEnqueueDequeue(int depth){
+        VehicleQueue queue = new VehicleQueue();
+        for(int i = 0; i < depth; i++){
+            queue.enqueue(i + 1, 1);
+        }
+        return checked(ops -> {
+            for(int i = 0; i < ops; i++){
+                int serialId = queue.peekSerialId();
+                int timeArrived = queue.peekTimeArrived();
+                queue.remove();
+                queue.enqueue(serialId, timeArrived);
+            }
+            sink += queue.peekSerialId();
+        }, () -> {
+            if(queue.size() != depth){
+                throw new IllegalStateException("queue holds " + queue.size() + " vehicles instead of " + depth);
+            }
+        });
+    }
+
+    /**
+     * Proceeds a road through its whole green cycle, putting the passed vehicles back so the depth stays the same.
+     */
+    static Operation roadProceed(int depth){
+        TwoWayRoad road = filledRoad("Benchmark Road", 9, depth);
+        int[] timer = {9};
+        int[] wayIndexes = new int[TwoWayRoad.GREEN_MOVEMENTS.length];
+        int[] laneIndexes = new int[TwoWayRoad.GREEN_MOVEMENTS.length];
+        return checked(ops -> {
+            for(int i = 0; i < ops; i++){
+                passingLanes(road, timer[0], wayIndexes, laneIndexes);
+                Vehicle[] passed = road.proceed(timer[0]);
+                sink += passed.length;
+                requeue(road, passed, wayIndexes, laneIndexes);
+                timer[0] = timer[0] == 1 ? road.getGreenTime() : timer[0] - 1;
+            }
+        }, () -> checkDepth(road, depth));
+    }
+
+    /**
+     * Proceeds a road into a reusable DepartureBuffer, putting the passed vehicles back so the depth stays the same.
+     */
+    static Operation roadProceedBuffer(int depth){
+        TwoWayRoad road = filledRoad("Benchmark Road", 9, depth);
+        DepartureBuffer passed = new DepartureBuffer();
+        int[] timer = {9};
+        return checked(ops -> {
+            for(int i = 0; i < ops; i++){
+                passed.clear();
+                sink += road.proceed(timer[0], 0, passed);
+                requeue(road, passed);
+                timer[0] = timer[0] == 1 ? road.getGreenTime() : timer[0] - 1;
+            }
+        }, () -> checkDepth(road, depth));
+    }
+
+    /**
+     * Renders every lane of a road.
+     */
+    static Operation roadGetVehicles(int depth){
+        TwoWayRoad road = filledRoad("Benchmark Road", 9, depth);
+        return ops -> {
+            for(int i = 0; i < ops; i++){
+                for(int wayIndex = 0; wayIndex < TwoWayRoad.NUM_WAYS; wayIndex++){
+                    for(int laneIndex = 0; laneIndex < TwoWayRoad.NUM_LANES; laneIndex++){
+                        sink += road.getVehicles(wayIndex, laneIndex).length();
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Steps an intersection, putting the passed vehicles back on the road they left.
+     */
+    static Operation intersectionTimeStep(int numRoads, int depth){
+        TwoWayRoad[] roads = new TwoWayRoad[numRoads];
+        for(int i = 0; i < numRoads; i++){
+            roads[i] = filledRoad("Road " + (i + 1), 6 + i, depth);
+        }
+        Intersection intersection = new Intersection(roads);
+        int[] wayIndexes = new int[TwoWayRoad.GREEN_MOVEMENTS.length];
+        int[] laneIndexes = new int[TwoWayRoad.GREEN_MOVEMENTS.length];
+        return checked(ops -> {
+            for(int i = 0; i < ops; i++){
+                TwoWayRoad road = roads[intersection.getLightIndex()];
+                passingLanes(road, intersection.getCountdownTimer(), wayIndexes, laneIndexes);
+                Vehicle[] passed = intersection.timeStep();
+                sink += passed.length;
+                requeue(road, passed, wayIndexes, laneIndexes);
+                intersection.timeStepPtTwo();
+            }
+        }, () -> {
+            for(TwoWayRoad road : roads){
+                checkDepth(road, depth);
+            }
+        });
+    }
+
+    /**
+     * Steps an intersection into a reusable DepartureBuffer, putting the passed vehicles back on the road they left.
+     */
+    static Operation intersectionTimeStepBuffer(int numRoads, int depth){
+        TwoWayRoad[] roads = new TwoWayRoad[numRoads];
+        for(int i = 0; i < numRoads; i++){
+            roads[i] = filledRoad("Road " + (i + 1), 6 + i, depth);
+        }
+        Intersection intersection = new Intersection(roads);
+        DepartureBuffer passed = new DepartureBuffer();
+        return checked(ops -> {
+            for(int i = 0; i < ops; i++){
+                passed.clear();
+                sink += intersection.timeStep(passed);
+                for(int j = 0; j < passed.size(); j++){
+                    roads[passed.getRoadIndex(j)].enqueueVehicle(passed.getWayIndex(j), passed.getLaneIndex(j),
+                        passed.getSerialId(j), passed.getTimeArrived(j));
+                }
+                intersection.timeStepPtTwo();
+            }
+        }, () -> {
+            for(TwoWayRoad road : roads){
+                checkDepth(road, depth);
+            }
+        });
+    }
+
+    /**
+     * Steps one long headless simulation, one operation per time step, to measure the steady-state cost of a step.
+     */
+    static Operation headlessStep(int numRoads){
+        String[] names = new String[numRoads];
+        int[] greenTimes = new int[numRoads];
+        for(int i = 0; i < numRoads; i++){
+            names[i] = "Road " + (i + 1);
+            greenTimes[i] = 6 + i;
+        }
+        Simulation simulation = new Simulation(Integer.MAX_VALUE, names, greenTimes,
+            new SeededArrivalSource(0.25 / numRoads, 1), new SimulationListener(){});
+        return ops -> {
+            for(int i = 0; i < ops; i++){
+                simulation.step();
+            }
+            sink += simulation.getStats().getTotalWaitTime();
+        };
+    }
+
+    /**
+     * Returns the configuration of a short run, with green times which change from run to run like an optimizer's.
+     */
+    private static SweepConfig runConfig(int numRoads, int run){
+        int[] greenTimes = new int[numRoads];
+        for(int i = 0; i < numRoads; i++){
+            greenTimes[i] = 6 + (run + i) % 8;
+        }
+        return new SweepConfig(RUN_TIME, 0.25, greenTimes);
+    }
+
+    /**
+     * Builds a new simulation, roads, intersection and arrival source for every run.
+     */
+    static Operation coldRun(int numRoads){
+        int[] run = {0};
+        return ops -> {
+            for(int i = 0; i < ops; i++){
+                SweepConfig config = runConfig(numRoads, run[0]);
+                Simulation simulation = new Simulation(config.getSimulationTime(), config.getRoadNames(), config.getMaxGreenTimes(),
+                    new SeededArrivalSource(config.getArrivalProbability(), run[0]), config.getSignalController(), new SimulationListener(){});
+                sink += simulation.run().getTotalWaitTime();
+                run[0]++;
+            }
+        };
+    }
+
+    /**
+     * Resets one simulation for every run.
+     */
+    static Operation warmRun(int numRoads){
+        SweepConfig first = runConfig(numRoads, 0);
+        Simulation simulation = new Simulation(first.getSimulationTime(), first.getRoadNames(), first.getMaxGreenTimes(),
+            new SeededArrivalSource(first.getArrivalProbability(), 0), new SimulationListener(){});
+        int[] run = {0};
+        return ops -> {
+            for(int i = 0; i < ops; i++){
+                simulation.reset(runConfig(numRoads, run[0]), run[0]);
+                sink += simulation.run().getTotalWaitTime();
+                run[0]++;
+            }
+        };
+    }
+
+    /**
+     * Puts passed vehicles back onto the lanes they left.
+     */
+    private static void requeue(TwoWayRoad road, DepartureBuffer passed){
+        for(int j = 0; j < passed.size(); j++){
+            road.enqueueVehicle(passed.getWayIndex(j), passed.getLaneIndex(j), passed.getSerialId(j), passed.getTimeArrived(j));
+        }
+    }
+
+    /**
+     * Records the lanes a road dequeues from at a timer value, in the order proceed returns their vehicles:
+     * the non-empty lanes of the movements its light releases.
+     */
+    private static void passingLanes(TwoWayRoad road, int timerVal, int[] wayIndexes, int[] laneIndexes){
+        int[][] movements = timerVal > road.getLeftSignalGreenTime() ? TwoWayRoad.GREEN_MOVEMENTS : TwoWayRoad.LEFT_MOVEMENTS;
+        int count = 0;
+        for(int i = 0; i < movements.length; i++){
+            if(!road.isLaneEmpty(movements[i][0], movements[i][1])){
+                wayIndexes[count] = movements[i][0];
+                laneIndexes[count] = movements[i][1];
+                count++;
+            }
+        }
+    }
+
+    /**
+     * Puts passed vehicles back onto the lanes they left, recorded by passingLanes before they passed.
+     */
+    private static void requeue(TwoWayRoad road, Vehicle[] passed, int[] wayIndexes, int[] laneIndexes){
+        for(int j = 0; j < passed.length; j++){
+            road.enqueueVehicle(wayIndexes[j], laneIndexes[j], passed[j].getSerialID(), passed[j].getTimeArrived());
+        }
+    }
+
+    /**
+     * Calibrates, warms up and measures one benchmark, then prints its result.
+     */
+    private static void run(String filter, String name, String params, Operation operation){
+        if(!name.contains(filter)){
+            return;
+        }
+        int ops = 1;
+        while(true){
+            long start = System.nanoTime();
+            operation.run(ops);
+            if(System.nanoTime() - start >= TARGET_ITERATION_NANOS / 10 || ops >= (1 << 30)){
+                break;
+            }
+            ops *= 2;
+        }
+        ops = Math.max(1, ops * 10);
+        for(int i = 0; i < WARMUP_ITERATIONS; i++){
+            operation.run(ops);
+        }
+        long gcsBefore = gcCount();
+        long bytesBefore = THREADS.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for(int i = 0; i < MEASURED_ITERATIONS; i++){
+            operation.run(ops);
+        }
+        long nanos = System.nanoTime() - start;
+        long bytes = THREADS.getCurrentThreadAllocatedBytes() - bytesBefore;
+        long gcs = gcCount() - gcsBefore;
+        operation.verify();
+        double totalOps = (double)ops * MEASURED_ITERATIONS;
+        System.out.println(String.format("%-28s %-18s %12.1f %12.1f %6d", name, params, nanos / totalOps, bytes / totalOps, gcs));
+    }
+
+    /**
+     * This method returns the number of collections of all collectors so far.
+     */
+    private static long gcCount(){
+        long count = 0;
+        for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()){
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * This interface receives the events of a running simulation, so reporting is decoupled from the engine.
+ * Every method does nothing by default; a headless run uses a listener which only overrides onSimulationEnd.
+*/
+
+public interface SimulationListener {
+    /**
+     * Called once before the first time step.
+     */
+    default void onSimulationStart(){}
+
+    /**
+     * Called at the start of every time step, before any vehicle arrives.
+     * @param timeStep
+     *  the current time step
+     * @param intersection
+     *  the simulated intersection
+     * @param arrivalsOpen
+     *  false once the simulation time is over and the intersection is being drained
+     */
+    default void onStepStart(int timeStep, Intersection intersection, boolean arrivalsOpen){}
+
+    /**
+     * Called for every vehicle which arrives at the intersection.
+     * @param timeStep
+     *  the current time step
+     * @param intersection
+     *  the simulated intersection
+     * @param roadIndex
+     *  index of the road the vehicle entered
+     * @param wayIndex
+     *  direction of the vehicle
+     * @param laneIndex
+     *  lane of the vehicle
+     * @param serialId
+     *  serial ID of the vehicle
+     */
+    default void onArrival(int timeStep, Intersection intersection, int roadIndex, int wayIndex, int laneIndex, int serialId){}
+
+    /**
+     * Called once all arrivals of a time step are enqueued, before any vehicle passes.
+     * @param timeStep
+     *  the current time step
+     */
+    default void onArrivalsEnd(int timeStep){}
+
+    /**
+     * Called for every vehicle which passes through the intersection.
+     * @param timeStep
+     *  the current time step
+     * @param serialId
+     *  serial ID of the vehicle
+     * @param waitTime
+     *  number of time steps the vehicle waited
+     */
+    default void onDeparture(int timeStep, int serialId, int waitTime){}
+
+    /**
+     * Called for every vehicle which passes through the intersection, with the lane it left.
+     * By default it calls onDeparture without the lane, so listeners only override the one they need.
+     * @param timeStep
+     *  the current time step
+     * @param roadIndex
+     *  index of the road the vehicle left
+     * @param wayIndex
+     *  direction of the vehicle
+     * @param laneIndex
+     *  lane the vehicle left
+     * @param serialId
+     *  serial ID of the vehicle
+     * @param waitTime
+     *  number of time steps the vehicle waited
+     */
+    default void onDeparture(int timeStep, int roadIndex, int wayIndex, int laneIndex, int serialId, int waitTime){
+        onDeparture(timeStep, serialId, waitTime);
+    }
+
+    /**
+     * Called at the end of every time step, after the statistics are updated and before the light advances.
+     * @param timeStep
+     *  the current time step
+     * @param intersection
+     *  the simulated intersection
+     * @param stats
+     *  the running statistics
+     */
+    default void onStepEnd(int timeStep, Intersection intersection, SimulationStats stats){}
+
+    /**
+     * Called once after the intersection is empty.
+     * @param stats
+     *  the final statistics
+     */
+    default void onSimulationEnd(SimulationStats stats){}
+}
@@ -0,0 +1,295 @@
+/**
+ * This class holds the running statistics of a simulation. Totals are 64-bit, and every wait time is recorded
+ * into a bounded-memory WaitTimeHistogram for the whole intersection, for each road and for each lane,
+ * so percentiles are available without keeping every vehicle. The histograms only allocate buckets up to the
+ * longest wait they have recorded, so a lane whose vehicles wait less than 128 steps costs 1KB rather than 25KB.
+*/
+
+public class SimulationStats {
+    private int totalTime = 1;
+    private long totalCarsEntered;
+    private long totalCarsPassed;
+    private long totalCarsRejected;
+    private long totalCarsDiverted;
+    private long totalWaitTime;
+    private int longestWaitTime;
+    private double averageWaitTime;
+    private final WaitTimeHistogram waitTimes = new WaitTimeHistogram();
+    private final WaitTimeHistogram[] roadWaitTimes;
+    private final WaitTimeHistogram[][][] laneWaitTimes;
+
+    /**
+     * This is the constructor of the class.
+     * @param numRoads
+     *  number of roads of the intersection
+     */
+    public SimulationStats(int numRoads){
+        roadWaitTimes = new WaitTimeHistogram[numRoads];
+        laneWaitTimes = new WaitTimeHistogram[numRoads][TwoWayRoad.NUM_WAYS][TwoWayRoad.NUM_LANES];
+        for(int roadIndex = 0; roadIndex < numRoads; roadIndex++){
+            roadWaitTimes[roadIndex] = new WaitTimeHistogram();
+            for(int wayIndex = 0; wayIndex < TwoWayRoad.NUM_WAYS; wayIndex++){
+                for(int laneIndex = 0; laneIndex < TwoWayRoad.NUM_LANES; laneIndex++){
+                    laneWaitTimes[roadIndex][wayIndex][laneIndex] = new WaitTimeHistogram();
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets every statistic back to that of a new simulation, keeping the histograms.
+     */
+    public void clear(){
+        totalTime = 1;
+        totalCarsEntered = 0;
+        totalCarsPassed = 0;
+        totalCarsRejected = 0;
+        totalCarsDiverted = 0;
+        totalWaitTime = 0;
+        longestWaitTime = 0;
+        averageWaitTime = 0.0;
+        waitTimes.clear();
+        for(int roadIndex = 0; roadIndex < roadWaitTimes.length; roadIndex++){
+            roadWaitTimes[roadIndex].clear();
+            for(int wayIndex = 0; wayIndex < TwoWayRoad.NUM_WAYS; wayIndex++){
+                for(int laneIndex = 0; laneIndex < TwoWayRoad.NUM_LANES; laneIndex++){
+                    laneWaitTimes[roadIndex][wayIndex][laneIndex].clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts a vehicle entering the intersection.
+     */
+    public void recordArrival(){
+        totalCarsEntered++;
+    }
+
+    /**
+     * Counts a vehicle which did not enter the intersection because its lane was full.
+     */
+    public void recordRejection(){
+        totalCarsRejected++;
+    }
+
+    /**
+     * Counts a vehicle which entered another lane than the one it arrived at because that lane was full.
+     */
+    public void recordDiversion(){
+        totalCarsDiverted++;
+    }
+
+    /**
+     * Counts a vehicle passing through the intersection.
+     * @param roadIndex
+     *  index of the road the vehicle left
+     * @param wayIndex
+     *  direction of the vehicle
+     * @param laneIndex
+     *  lane the vehicle left
+     * @param waitTime
+     *  number of time steps the vehicle waited
+     */
+    public void recordDeparture(int roadIndex, int wayIndex, int laneIndex, int waitTime){
+        totalCarsPassed++;
+        totalWaitTime += waitTime;
+        if(waitTime > longestWaitTime){
+            longestWaitTime = waitTime;
+        }
+        waitTimes.record(waitTime);
+        roadWaitTimes[roadIndex].record(waitTime);
+        laneWaitTimes[roadIndex][wayIndex][laneIndex].record(waitTime);
+    }
+
+    /**
+     * Updates the average wait time and total time at the end of a time step.
+     * @param timeStep
+     *  the time step which just ended
+     */
+    public void endStep(int timeStep){
+        if(totalWaitTime != 0){
+            averageWaitTime = (double)totalWaitTime/totalCarsPassed;
+        }
+        totalTime = timeStep + 1;
+    }
+
+    /**
+     * This method returns the total time, which is one past the last time step simulated.
+     * @return
+     *  int
+     */
+    public int getTotalTime(){
+        return totalTime;
+    }
+
+    /**
+     * This method returns the number of vehicles that entered the intersection.
+     * @return
+     *  long
+     */
+    public long getTotalCarsEntered(){
+        return totalCarsEntered;
+    }
+
+    /**
+     * This method returns the number of vehicles that passed through the intersection.
+     * @return
+     *  long
+     */
+    public long getTotalCarsPassed(){
+        return totalCarsPassed;
+    }
+
+    /**
+     * This method returns the number of vehicles that did not enter the intersection because their lane was full.
+     * @return
+     *  long
+     */
+    public long getTotalCarsRejected(){
+        return totalCarsRejected;
+    }
+
+    /**
+     * This method returns the number of vehicles that were diverted to an adjacent lane because their lane was full.
+     * @return
+     *  long
+     */
+    public long getTotalCarsDiverted(){
+        return totalCarsDiverted;
+    }
+
+    /**
+     * This method returns the number of vehicles still waiting at the intersection.
+     * @return
+     *  long
+     */
+    public long getCarsWaiting(){
+        return totalCarsEntered - totalCarsPassed;
+    }
+
+    /**
+     * This method returns the sum of the wait times of all passed vehicles.
+     * @return
+     *  long
+     */
+    public long getTotalWaitTime(){
+        return totalWaitTime;
+    }
+
+    /**
+     * This method returns the longest wait time of a passed vehicle.
+     * @return
+     *  int
+     */
+    public int getLongestWaitTime(){
+        return longestWaitTime;
+    }
+
+    /**
+     * This method returns the average wait time of the passed vehicles.
+     * @return
+     *  double
+     */
+    public double getAverageWaitTime(){
+        return averageWaitTime;
+    }
+
+    /**
+     * This method returns the wait times of every passed vehicle.
+     * @return
+     *  WaitTimeHistogram
+     */
+    public WaitTimeHistogram getWaitTimes(){
+        return waitTimes;
+    }
+
+    /**
+     * This method returns the wait times of the vehicles which passed from a road.
+     * @param roadIndex
+     *  index of the road
+     * @return
+     *  WaitTimeHistogram
+     */
+    public WaitTimeHistogram getWaitTimes(int roadIndex){
+        return roadWaitTimes[roadIndex];
+    }
+
+    /**
+     * This method returns the wait times of the vehicles which passed from a lane.
+     * @param roadIndex
+     *  index of the road
+     * @param wayIndex
+     *  direction of the lane
+     * @param laneIndex
+     *  index of the lane
+     * @return
+     *  WaitTimeHistogram
+     */
+    public WaitTimeHistogram getWaitTimes(int roadIndex, int wayIndex, int laneIndex){
+        return laneWaitTimes[roadIndex][wayIndex][laneIndex];
+    }
+
+    /**
+     * Writes the statistics to a checkpoint.
+     * @param out
+     *  the checkpoint being written
+     * @throws java.io.IOException
+     *  if the checkpoint cannot be written
+     */
+    public void writeTo(java.io.DataOutput out) throws java.io.IOException{
+        out.writeInt(totalTime);
+        out.writeLong(totalCarsEntered);
+        out.writeLong(totalCarsPassed);
+        out.writeLong(totalCarsRejected);
+        out.writeLong(totalCarsDiverted);
+        out.writeLong(totalWaitTime);
+        out.writeInt(longestWaitTime);
+        out.writeDouble(averageWaitTime);
+        waitTimes.writeTo(out);
+        for(int roadIndex = 0; roadIndex < roadWaitTimes.length; roadIndex++){
+            roadWaitTimes[roadIndex].writeTo(out);
+            for(int wayIndex = 0; wayIndex < TwoWayRoad.NUM_WAYS; wayIndex++){
+                for(int laneIndex = 0; laneIndex < TwoWayRoad.NUM_LANES; laneIndex++){
+                    laneWaitTimes[roadIndex][wayIndex][laneIndex].writeTo(out);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the statistics with those written by writeTo for the same number of roads.
+     * @param in
+     *  the checkpoint being read
+     * @throws java.io.IOException
+     *  if the checkpoint cannot be read
+     */
+    public void readFrom(java.io.DataInput in) throws java.io.IOException{
+        totalTime = in.readInt();
+        totalCarsEntered = in.readLong();
+        totalCarsPassed = in.readLong();
+        totalCarsRejected = in.readLong();
+        totalCarsDiverted = in.readLong();
+        totalWaitTime = in.readLong();
+        longestWaitTime = in.readInt();
+        averageWaitTime = in.readDouble();
+        waitTimes.readFrom(in);
+        for(int roadIndex = 0; roadIndex < roadWaitTimes.length; roadIndex++){
+            roadWaitTimes[roadIndex].readFrom(in);
+            for(int wayIndex = 0; wayIndex < TwoWayRoad.NUM_WAYS; wayIndex++){
+                for(int laneIndex = 0; laneIndex < TwoWayRoad.NUM_LANES; laneIndex++){
+                    laneWaitTimes[roadIndex][wayIndex][laneIndex].readFrom(in);
+                }
+            }
+        }
+    }
+
+    /**
+     * This method returns the number of roads the statistics are kept for.
+     * @return
+     *  int
+     */
+    public int getNumRoads(){
+        return roadWaitTimes.length;
+    }
+}
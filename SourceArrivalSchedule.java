@@ -0,0 +1,71 @@
+/**
+ * This class draws arrivals from an ArrivalSource exactly the way the tick engine does: one draw per lane per
+ * time step, in road, way and lane order, stopping for the time step after six vehicles.
+ * An event-driven run over this schedule sees the same vehicles as a Simulation over the same source.
+*/
+
+public class SourceArrivalSchedule implements ArrivalSchedule {
+    private static final int MAX_ARRIVALS_PER_STEP = 6;
+    private final ArrivalSource source;
+    private final int simulationTime;
+    private final int numRoads;
+    private int time = 1;
+    private int lane = -1;
+    private int arrivalsThisStep;
+
+    /**
+     * This is the constructor of the class.
+     * @param source
+     *  source of the arrivals
+     * @param simulationTime
+     *  number of time steps during which vehicles arrive
+     * @param numRoads
+     *  number of roads
+     */
+    public SourceArrivalSchedule(ArrivalSource source, int simulationTime, int numRoads){
+        this.source = source;
+        this.simulationTime = simulationTime;
+        this.numRoads = numRoads;
+    }
+
+    @Override
+    public boolean advance(){
+        int lanesPerStep = numRoads * TwoWayRoad.NUM_WAYS * TwoWayRoad.NUM_LANES;
+        while(time <= simulationTime){
+            lane++;
+            if(lane == lanesPerStep || arrivalsThisStep == MAX_ARRIVALS_PER_STEP){
+                time++;
+                lane = 0;
+                arrivalsThisStep = 0;
+                if(time > simulationTime){
+                    break;
+                }
+            }
+            if(source.occurs()){
+                arrivalsThisStep++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int time(){
+        return time;
+    }
+
+    @Override
+    public int roadIndex(){
+        return lane / (TwoWayRoad.NUM_WAYS * TwoWayRoad.NUM_LANES);
+    }
+
+    @Override
+    public int wayIndex(){
+        return lane / TwoWayRoad.NUM_LANES % TwoWayRoad.NUM_WAYS;
+    }
+
+    @Override
+    public int laneIndex(){
+        return lane % TwoWayRoad.NUM_LANES;
+    }
+}
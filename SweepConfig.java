@@ -0,0 +1,163 @@
+/**
+ * This class is one point of a parameter sweep: an arrival probability, the green time of each road and a signal controller,
+ * and optionally the fraction of each green time given to the left signal.
+ * The number of roads is the length of the green time array.
+*/
+
+public class SweepConfig {
+    private final int simulationTime;
+    private final double arrivalProbability;
+    private final int[] maxGreenTimes;
+    private final double[] leftSignalFractions;
+    private final SignalController signalController;
+
+    /**
+     * This is the constructor of the class, for the fixed round-robin signal plan.
+     * @param simulationTime
+     *  number of time steps during which vehicles arrive
+     * @param arrivalProbability
+     *  probability of a vehicle arriving on each lane at each time step
+     * @param maxGreenTimes
+     *  green time of each road
+     * @throws IllegalArgumentException
+     *  if simulationTime is negative, arrivalProbability is not between 0.0 and 1.0,
+     *  or maxGreenTimes is null, empty or longer than 4
+     */
+    public SweepConfig(int simulationTime, double arrivalProbability, int[] maxGreenTimes) throws IllegalArgumentException{
+        this(simulationTime, arrivalProbability, maxGreenTimes, RoundRobinSignalController.INSTANCE);
+    }
+
+    /**
+     * This is the constructor of the class.
+     * @param simulationTime
+     *  number of time steps during which vehicles arrive
+     * @param arrivalProbability
+     *  probability of a vehicle arriving on each lane at each time step
+     * @param maxGreenTimes
+     *  green time of each road
+     * @param signalController
+     *  controller of the intersection, shared by every replication
+     * @throws IllegalArgumentException
+     *  if simulationTime is negative, arrivalProbability is not between 0.0 and 1.0,
+     *  maxGreenTimes is null, empty or longer than 4, or signalController is null
+     */
+    public SweepConfig(int simulationTime, double arrivalProbability, int[] maxGreenTimes, SignalController signalController) throws IllegalArgumentException{
+        this(simulationTime, arrivalProbability, maxGreenTimes, null, signalController);
+    }
+
+    /**
+     * This is the constructor of the class, with the fraction of each green time given to the left signal.
+     * @param simulationTime
+     *  number of time steps during which vehicles arrive
+     * @param arrivalProbability
+     *  probability of a vehicle arriving on each lane at each time step
+     * @param maxGreenTimes
+     *  green time of each road
+     * @param leftSignalFractions
+     *  left signal fraction of each road, or null for TwoWayRoad.DEFAULT_LEFT_SIGNAL_FRACTION
+     * @param signalController
+     *  controller of the intersection, shared by every replication
+     * @throws IllegalArgumentException
+     *  if simulationTime is negative, arrivalProbability is not between 0.0 and 1.0,
+     *  maxGreenTimes is null, empty or longer than 4, leftSignalFractions does not have one fraction per road
+     *  which is valid for its green time (see TwoWayRoad.isValidLeftSignalFraction), or signalController is null
+     */
+    public SweepConfig(int simulationTime, double arrivalProbability, int[] maxGreenTimes, double[] leftSignalFractions, SignalController signalController) throws IllegalArgumentException{
+        if(simulationTime < 0 || arrivalProbability < 0.0 || arrivalProbability > 1.0 ||
+            maxGreenTimes == null || maxGreenTimes.length < 1 || maxGreenTimes.length > 4 || signalController == null ||
+            (leftSignalFractions != null && leftSignalFractions.length != maxGreenTimes.length)){
+            throw new IllegalArgumentException("invalid sweep configuration");
+        }
+        if(leftSignalFractions != null){
+            for(int i = 0; i < leftSignalFractions.length; i++){
+                if(!TwoWayRoad.isValidLeftSignalFraction(leftSignalFractions[i], maxGreenTimes[i])){
+                    throw new IllegalArgumentException("invalid sweep configuration");
+                }
+            }
+        }
+        this.simulationTime = simulationTime;
+        this.arrivalProbability = arrivalProbability;
+        this.maxGreenTimes = maxGreenTimes.clone();
+        this.leftSignalFractions = leftSignalFractions == null ? null : leftSignalFractions.clone();
+        this.signalController = signalController;
+    }
+
+    /**
+     * This method returns the simulation time.
+     * @return
+     *  int
+     */
+    public int getSimulationTime(){
+        return simulationTime;
+    }
+
+    /**
+     * This method returns the arrival probability.
+     * @return
+     *  double
+     */
+    public double getArrivalProbability(){
+        return arrivalProbability;
+    }
+
+    /**
+     * This method returns a copy of the green time of each road.
+     * @return
+     *  int[]
+     */
+    public int[] getMaxGreenTimes(){
+        return maxGreenTimes.clone();
+    }
+
+    /**
+     * This method returns a copy of the left signal fraction of each road, or null if every road has the default.
+     * @return
+     *  double[]
+     */
+    public double[] getLeftSignalFractions(){
+        return leftSignalFractions == null ? null : leftSignalFractions.clone();
+    }
+
+    /**
+     * This method returns the signal controller.
+     * @return
+     *  SignalController
+     */
+    public SignalController getSignalController(){
+        return signalController;
+    }
+
+    /**
+     * This method returns the number of roads.
+     * @return
+     *  int
+     */
+    public int getNumRoads(){
+        return maxGreenTimes.length;
+    }
+
+    /**
+     * This method returns generated names for the roads, "Road 1" to "Road n".
+     * @return
+     *  String[]
+     */
+    public String[] getRoadNames(){
+        String[] names = new String[maxGreenTimes.length];
+        for(int i = 0; i < names.length; i++){
+            names[i] = "Road " + (i + 1);
+        }
+        return names;
+    }
+
+    @Override
+    public String toString(){
+        String str = "p=" + arrivalProbability + " green=" + java.util.Arrays.toString(maxGreenTimes);
+        if(leftSignalFractions != null){
+            str += " left=" + java.util.Arrays.toString(leftSignalFractions);
+        }
+        if(signalController != RoundRobinSignalController.INSTANCE){
+            str += " " + signalController;
+        }
+        return str;
+    }
+}
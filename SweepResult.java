@@ -0,0 +1,125 @@
+/**
+ * This class holds the wait times of all replications of one sweep configuration, aggregated over every vehicle.
+*/
+
+public class SweepResult {
+    private final SweepConfig config;
+    private final int replications;
+    private final WaitTimeHistogram waitTimes = new WaitTimeHistogram();
+    private long totalSteps;
+
+    /**
+     * This is the constructor of the class.
+     * @param config
+     *  the configuration the replications ran with
+     * @param replications
+     *  number of replications
+     */
+    public SweepResult(SweepConfig config, int replications){
+        this.config = config;
+        this.replications = replications;
+    }
+
+    /**
+     * Adds the wait time of one vehicle.
+     * @param waitTime
+     *  number of time steps the vehicle waited
+     */
+    void recordWaitTime(int waitTime){
+        waitTimes.record(waitTime);
+    }
+
+    /**
+     * Adds the number of time steps one replication took to serve every vehicle.
+     * @param steps
+     *  number of time steps, including the ones after arrivals stopped
+     */
+    void recordSteps(int steps){
+        totalSteps += steps;
+    }
+
+    /**
+     * Adds all wait times of another result of the same configuration.
+     * @param other
+     *  the result to merge into this one
+     */
+    void merge(SweepResult other){
+        waitTimes.merge(other.waitTimes);
+        totalSteps += other.totalSteps;
+    }
+
+    /**
+     * This method returns the configuration.
+     * @return
+     *  SweepConfig
+     */
+    public SweepConfig getConfig(){
+        return config;
+    }
+
+    /**
+     * This method returns the number of replications.
+     * @return
+     *  int
+     */
+    public int getReplications(){
+        return replications;
+    }
+
+    /**
+     * This method returns the number of vehicles over all replications.
+     * @return
+     *  long
+     */
+    public long getTotalVehicles(){
+        return waitTimes.getTotalCount();
+    }
+
+    /**
+     * This method returns the number of vehicles which passed through the intersection per time step,
+     * over every time step of every replication until the intersection was empty.
+     * @return
+     *  double
+     */
+    public double getThroughput(){
+        return totalSteps == 0 ? 0.0 : (double)waitTimes.getTotalCount() / totalSteps;
+    }
+
+    /**
+     * This method returns the mean wait time over every vehicle of every replication.
+     * @return
+     *  double
+     */
+    public double getMeanWaitTime(){
+        return waitTimes.getMean();
+    }
+
+    /**
+     * This method returns the wait time at a percentile over every vehicle of every replication.
+     * @param percentile
+     *  between 0.0 and 100.0, e.g. 95.0
+     * @return
+     *  int
+     */
+    public int getPercentileWaitTime(double percentile){
+        return waitTimes.getValueAtPercentile(percentile);
+    }
+
+    /**
+     * This method returns the longest wait time of any vehicle of any replication.
+     * @return
+     *  int
+     */
+    public int getLongestWaitTime(){
+        return waitTimes.getMaxValue();
+    }
+
+    /**
+     * This method returns the wait times over every vehicle of every replication.
+     * @return
+     *  WaitTimeHistogram
+     */
+    public WaitTimeHistogram getWaitTimes(){
+        return waitTimes;
+    }
+}
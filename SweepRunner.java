@@ -0,0 +1,231 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * This class runs a grid of configurations with several replications each, in parallel on a fork-join pool.
+ * Every replication builds its own roads, intersection and arrival source. Replication r of every configuration
+ * uses the same seed, so configurations are compared on common random numbers.
+*/
+
+public class SweepRunner {
+    private final ForkJoinPool pool;
+    private final long baseSeed;
+
+    /**
+     * This is the constructor of the class.
+     * @param parallelism
+     *  number of worker threads
+     * @param baseSeed
+     *  seed from which the seed of every replication is derived
+     */
+    public SweepRunner(int parallelism, long baseSeed){
+        this.pool = new ForkJoinPool(parallelism);
+        this.baseSeed = baseSeed;
+    }
+
+    /**
+     * Builds the grid of every arrival probability combined with every green time plan.
+     * @param simulationTime
+     *  number of time steps during which vehicles arrive
+     * @param probabilities
+     *  arrival probabilities to sweep
+     * @param greenTimePlans
+     *  green time arrays to sweep; each array's length is its road count
+     * @return
+     *  the configurations, grouped by probability
+     */
+    public static List<SweepConfig> grid(int simulationTime, double[] probabilities, int[][] greenTimePlans){
+        return grid(simulationTime, probabilities, greenTimePlans, new SignalController[]{RoundRobinSignalController.INSTANCE});
+    }
+
+    /**
+     * Builds the grid of every arrival probability combined with every green time plan and every signal controller.
+     * @param simulationTime
+     *  number of time steps during which vehicles arrive
+     * @param probabilities
+     *  arrival probabilities to sweep
+     * @param greenTimePlans
+     *  green time arrays to sweep; each array's length is its road count
+     * @param signalControllers
+     *  controllers to compare on each plan
+     * @return
+     *  the configurations, grouped by probability, then by plan
+     */
+    public static List<SweepConfig> grid(int simulationTime, double[] probabilities, int[][] greenTimePlans, SignalController[] signalControllers){
+        List<SweepConfig> configs = new ArrayList<SweepConfig>();
+        for(double p : probabilities){
+            for(int[] plan : greenTimePlans){
+                for(SignalController controller : signalControllers){
+                    configs.add(new SweepConfig(simulationTime, p, plan, controller));
+                }
+            }
+        }
+        return configs;
+    }
+
+    /**
+     * Runs every configuration replications times and aggregates the wait times per configuration.
+     * @param configs
+     *  the configurations to run
+     * @param replications
+     *  number of replications of each configuration
+     * @return
+     *  one result per configuration, in the same order
+     * @throws IllegalArgumentException
+     *  if replications &lt; 1
+     */
+    public List<SweepResult> run(List<SweepConfig> configs, int replications) throws IllegalArgumentException{
+        if(replications < 1){
+            throw new IllegalArgumentException("replications must be at least 1");
+        }
+        List<Callable<SweepResult>> tasks = new ArrayList<Callable<SweepResult>>();
+        for(SweepConfig config : configs){
+            for(int r = 0; r < replications; r++){
+                long seed = replicationSeed(baseSeed, r);
+                tasks.add(() -> runReplication(config, replications, seed));
+            }
+        }
+        List<Future<SweepResult>> futures = pool.invokeAll(tasks);
+        List<SweepResult> results = new ArrayList<SweepResult>();
+        for(int c = 0; c < configs.size(); c++){
+            SweepResult result = new SweepResult(configs.get(c), replications);
+            for(int r = 0; r < replications; r++){
+                result.merge(join(futures.get(c * replications + r)));
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * Shuts down the worker threads.
+     */
+    public void shutdown(){
+        pool.shutdown();
+    }
+
+    /**
+     * Runs a single headless replication.
+     */
+    private static SweepResult runReplication(SweepConfig config, int replications, long seed){
+        SweepResult result = new SweepResult(config, replications);
+        SimulationListener collector = new SimulationListener(){
+            @Override
+            public void onDeparture(int timeStep, int serialId, int waitTime){
+                result.recordWaitTime(waitTime);
+            }
+        };
+        Simulation simulation = new Simulation(config.getSimulationTime(), config.getRoadNames(), config.getMaxGreenTimes(),
+            new SeededArrivalSource(config.getArrivalProbability(), seed), config.getSignalController(), collector);
+        if(config.getLeftSignalFractions() != null){
+            simulation.reset(config, seed);
+        }
+        simulation.setFastForwardDrain(true);
+        simulation.run();
+        result.recordSteps(simulation.getTimeStep() - 1);
+        return result;
+    }
+
+    /**
+     * Derives the seed of a replication from a base seed.
+     * @param baseSeed
+     *  the seed of the sweep or scenario
+     * @param replication
+     *  index of the replication
+     * @return
+     *  long
+     */
+    static long replicationSeed(long baseSeed, int replication){
+        long z = baseSeed + (replication + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Waits for a replication, rethrowing its failure.
+     */
+    private static SweepResult join(Future<SweepResult> future){
+        try{
+            return future.get();
+        }
+        catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("sweep interrupted", e);
+        }
+        catch(ExecutionException e){
+            throw new IllegalStateException("replication failed", e.getCause());
+        }
+    }
+
+    /**
+     * Parses "fixed" or "actuated:&lt;maxExtension&gt;" into a signal controller.
+     * @throws IllegalArgumentException
+     *  if the name is not a known controller
+     */
+    static SignalController parseController(String name) throws IllegalArgumentException{
+        if(name.equals("fixed")){
+            return RoundRobinSignalController.INSTANCE;
+        }
+        if(name.startsWith("actuated:")){
+            return new ActuatedSignalController(Integer.parseInt(name.substring("actuated:".length())));
+        }
+        throw new IllegalArgumentException("unknown signal controller " + name);
+    }
+
+    /**
+     * Start for the sweep.
+     * @param args
+     *  the simulation time, the number of replications, comma separated probabilities and
+     *  green time plans separated by semicolons, e.g. 1000 8 0.1,0.2 "5,4;10,10;3,3,3",
+     *  optionally followed by comma separated signal controllers to compare, "fixed" or "actuated:&lt;maxExtension&gt;",
+     *  e.g. fixed,actuated:4
+     */
+    public static void main(String[] args){
+        if(args.length < 4){
+            System.out.println("Usage: java SweepRunner <simulationTime> <replications> <p1,p2,...> <g1,g2;g1,g2,g3;...> [fixed,actuated:n,...]");
+            return;
+        }
+        int simulationTime = Integer.parseInt(args[0]);
+        int replications = Integer.parseInt(args[1]);
+        String[] probabilityArgs = args[2].split(",");
+        double[] probabilities = new double[probabilityArgs.length];
+        for(int i = 0; i < probabilities.length; i++){
+            probabilities[i] = Double.parseDouble(probabilityArgs[i].trim());
+        }
+        String[] planArgs = args[3].split(";");
+        int[][] plans = new int[planArgs.length][];
+        for(int i = 0; i < plans.length; i++){
+            String[] greenArgs = planArgs[i].split(",");
+            plans[i] = new int[greenArgs.length];
+            for(int j = 0; j < greenArgs.length; j++){
+                plans[i][j] = Integer.parseInt(greenArgs[j].trim());
+            }
+        }
+        SignalController[] controllers = {RoundRobinSignalController.INSTANCE};
+        if(args.length > 4){
+            String[] controllerArgs = args[4].split(",");
+            controllers = new SignalController[controllerArgs.length];
+            for(int i = 0; i < controllers.length; i++){
+                controllers[i] = parseController(controllerArgs[i].trim());
+            }
+        }
+
+        SweepRunner runner = new SweepRunner(Runtime.getRuntime().availableProcessors(), 2023L);
+        long start = System.nanoTime();
+        List<SweepResult> results = runner.run(grid(simulationTime, probabilities, plans, controllers), replications);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        runner.shutdown();
+
+        System.out.println(String.format("%-48s %10s %10s %10s %8s %8s", "CONFIGURATION", "VEHICLES", "PER STEP", "MEAN WAIT", "P95", "MAX"));
+        for(SweepResult result : results){
+            System.out.println(String.format("%-48s %10d %10.3f %10.2f %8d %8d", result.getConfig(), result.getTotalVehicles(),
+                result.getThroughput(), result.getMeanWaitTime(), result.getPercentileWaitTime(95.0), result.getLongestWaitTime()));
+        }
+        System.out.println(String.format("%n%d runs in %.3f s", results.size() * replications, seconds));
+    }
+}
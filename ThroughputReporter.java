@@ -0,0 +1,66 @@
+/**
+ * This class is the reporter for headless runs. It prints nothing per time step, only the
+ * SIMULATION SUMMARY, the wait time percentiles of each road and lane and the number of time steps simulated per second.
+*/
+
+public class ThroughputReporter implements SimulationListener {
+    private long startNanos;
+    private int steps;
+    private Intersection intersection;
+
+    @Override
+    public void onSimulationStart(){
+        startNanos = System.nanoTime();
+    }
+
+    @Override
+    public void onStepEnd(int timeStep, Intersection intersection, SimulationStats stats){
+        steps++;
+        this.intersection = intersection;
+    }
+
+    @Override
+    public void onSimulationEnd(SimulationStats stats){
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        ConsoleReporter.printSummary(stats);
+        printPercentiles(stats, intersection);
+        System.out.println("    Steps simulated:      " + steps + " steps");
+        System.out.println("    Elapsed time:         " + String.format("%.3f", seconds) + " s");
+        System.out.println("    Throughput:           " + String.format("%.0f", steps / seconds) + " steps/sec\n");
+    }
+
+    /**
+     * Prints the p50, p95 and p99 wait times of the intersection, each road and each lane which had vehicles.
+     * @param stats
+     *  the final statistics
+     * @param intersection
+     *  the intersection, for the road names; may be null
+     */
+    public static void printPercentiles(SimulationStats stats, Intersection intersection){
+        String[] wayNames = {"FORWARD", "BACKWARD"};
+        String[] laneNames = {"LEFT", "MIDDLE", "RIGHT"};
+        System.out.println("    WAIT TIME PERCENTILES:        p50      p95      p99      max");
+        printPercentiles("All roads", stats.getWaitTimes());
+        for(int roadIndex = 0; roadIndex < stats.getNumRoads(); roadIndex++){
+            String roadName = intersection == null ? "Road " + (roadIndex + 1) : intersection.getRoad(roadIndex).getName();
+            printPercentiles(roadName, stats.getWaitTimes(roadIndex));
+            for(int wayIndex = 0; wayIndex < TwoWayRoad.NUM_WAYS; wayIndex++){
+                for(int laneIndex = 0; laneIndex < TwoWayRoad.NUM_LANES; laneIndex++){
+                    WaitTimeHistogram lane = stats.getWaitTimes(roadIndex, wayIndex, laneIndex);
+                    if(lane.getTotalCount() > 0){
+                        printPercentiles("  " + wayNames[wayIndex] + " " + laneNames[laneIndex], lane);
+                    }
+                }
+            }
+        }
+        System.out.println();
+    }
+
+    /**
+     * Prints one line of percentiles.
+     */
+    private static void printPercentiles(String label, WaitTimeHistogram histogram){
+        System.out.println(String.format("        %-22s %8d %8d %8d %8d", label, histogram.getValueAtPercentile(50.0),
+            histogram.getValueAtPercentile(95.0), histogram.getValueAtPercentile(99.0), histogram.getMaxValue()));
+    }
+}
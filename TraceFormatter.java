@@ -0,0 +1,148 @@
+/**
+ * This class formats the verbose simulation trace into a StringBuilder. Both ConsoleReporter and
+ * AsyncTraceRenderer use it, so the trace is the same byte for byte whichever of them writes it.
+*/
+
+public class TraceFormatter {
+    public static final String NEW_LINE = System.lineSeparator();
+    private static final String[] LANE_NAMES = {" in LEFT lane.", " in MIDDLE lane.", " in RIGHT lane."};
+
+    private TraceFormatter(){}
+
+    /**
+     * Appends the banner printed before the first time step.
+     * @param sb
+     *  the StringBuilder to append to
+     */
+    public static void appendSimulationStart(StringBuilder sb){
+        sb.append(NEW_LINE).append("Starting Simulation...").append(NEW_LINE);
+    }
+
+    /**
+     * Appends the header of a time step, up to the ARRIVING CARS line.
+     * @param sb
+     *  the StringBuilder to append to
+     * @param timeStep
+     *  the current time step
+     * @param intersection
+     *  the simulated intersection
+     * @param arrivalsOpen
+     *  false once the intersection is being drained
+     */
+    public static void appendStepStart(StringBuilder sb, int timeStep, Intersection intersection, boolean arrivalsOpen){
+        sb.append(NEW_LINE).append("################################################################################").append(NEW_LINE).append(NEW_LINE);
+        sb.append("Time Step: ").append(timeStep).append(NEW_LINE).append(NEW_LINE);
+        sb.append("    ").append(intersection.getLightValueWithRoadName(intersection.getCountdownTimer())).append(NEW_LINE);
+        sb.append("    Timer = ").append(intersection.getCountdownTimer()).append(NEW_LINE);
+        if(arrivalsOpen){
+            sb.append(NEW_LINE);
+            sb.append("    ARRIVING CARS:").append(NEW_LINE);
+        }
+        else{
+            sb.append(NEW_LINE).append("Cars no longer arriving.").append(NEW_LINE);
+            sb.append(NEW_LINE);
+            sb.append("    ARRIVING CARS:").append(NEW_LINE).append(NEW_LINE);
+        }
+    }
+
+    /**
+     * Appends the line of an arriving vehicle.
+     * @param sb
+     *  the StringBuilder to append to
+     * @param intersection
+     *  the simulated intersection
+     * @param roadIndex
+     *  index of the road the vehicle entered
+     * @param wayIndex
+     *  direction of the vehicle
+     * @param laneIndex
+     *  lane of the vehicle
+     * @param serialId
+     *  serial ID of the vehicle
+     */
+    public static void appendArrival(StringBuilder sb, Intersection intersection, int roadIndex, int wayIndex, int laneIndex, int serialId){
+        sb.append("        Car[");
+        TwoWayRoad.appendSerialId(sb, serialId);
+        sb.append("] entered ").append(intersection.getRoad(roadIndex).getName()).append(", going ");
+        sb.append(wayIndex == 0 ? "FORWARD" : "BACKWARD");
+        sb.append(LANE_NAMES[Math.min(laneIndex, 2)]).append(NEW_LINE);
+    }
+
+    /**
+     * Appends the PASSING CARS header.
+     * @param sb
+     *  the StringBuilder to append to
+     */
+    public static void appendArrivalsEnd(StringBuilder sb){
+        sb.append(NEW_LINE).append("    PASSING CARS:").append(NEW_LINE);
+    }
+
+    /**
+     * Appends the line of a passing vehicle.
+     * @param sb
+     *  the StringBuilder to append to
+     * @param serialId
+     *  serial ID of the vehicle
+     * @param waitTime
+     *  number of time steps the vehicle waited
+     */
+    public static void appendDeparture(StringBuilder sb, int serialId, int waitTime){
+        sb.append("        Car[");
+        TwoWayRoad.appendSerialId(sb, serialId);
+        sb.append("] passes through. Wait time of ").append(waitTime).append('.').append(NEW_LINE);
+    }
+
+    /**
+     * Appends the intersection and the statistics at the end of a time step.
+     * @param sb
+     *  the StringBuilder to append to
+     * @param intersection
+     *  the simulated intersection
+     * @param stats
+     *  the running statistics
+     */
+    public static void appendStepEnd(StringBuilder sb, Intersection intersection, SimulationStats stats){
+        sb.append(NEW_LINE).append(NEW_LINE);
+        intersection.display(sb);
+        sb.append(NEW_LINE).append("    STATISTICS:").append(NEW_LINE);
+        sb.append("        Cars currently waiting:  ").append(intersection.getVehicleCount()).append(" cars").append(NEW_LINE);
+        sb.append("        Total cars passed:      ").append(stats.getTotalCarsPassed()).append(" cars").append(NEW_LINE);
+        sb.append("        Total wait time:        ").append(stats.getTotalWaitTime()).append(" turns").append(NEW_LINE);
+        sb.append("        Average wait time:      ").append(String.format("%.2f", stats.getAverageWaitTime())).append(" turns").append(NEW_LINE);
+        sb.append(NEW_LINE);
+    }
+
+    /**
+     * Appends the separator and the SIMULATION SUMMARY block.
+     * @param sb
+     *  the StringBuilder to append to
+     * @param stats
+     *  the final statistics
+     */
+    public static void appendSimulationEnd(StringBuilder sb, SimulationStats stats){
+        sb.append(NEW_LINE).append("################################################################################").append(NEW_LINE);
+        sb.append("################################################################################").append(NEW_LINE);
+        sb.append("################################################################################").append(NEW_LINE);
+        appendSummary(sb, stats);
+    }
+
+    /**
+     * Appends the SIMULATION SUMMARY block.
+     * @param sb
+     *  the StringBuilder to append to
+     * @param stats
+     *  the final statistics
+     */
+    public static void appendSummary(StringBuilder sb, SimulationStats stats){
+        sb.append(NEW_LINE).append("SIMULATION SUMMARY:").append(NEW_LINE).append(NEW_LINE);
+        sb.append("    Total Time:           ").append(stats.getTotalTime()).append(" steps").append(NEW_LINE);
+        sb.append("    Total vehicles:       ").append(stats.getTotalCarsPassed()).append(" vehicles").append(NEW_LINE);
+        if(stats.getTotalCarsRejected() != 0 || stats.getTotalCarsDiverted() != 0){
+            sb.append("    Rejected vehicles:    ").append(stats.getTotalCarsRejected()).append(" vehicles").append(NEW_LINE);
+            sb.append("    Diverted vehicles:    ").append(stats.getTotalCarsDiverted()).append(" vehicles").append(NEW_LINE);
+        }
+        sb.append("    Longest wait time:    ").append(stats.getLongestWaitTime()).append(" turns").append(NEW_LINE);
+        sb.append("    Total wait time:      ").append(stats.getTotalWaitTime()).append(" turns").append(NEW_LINE);
+        sb.append("    Average wait time:    ").append(String.format("%.2f", stats.getAverageWaitTime())).append(" turns").append(NEW_LINE).append(NEW_LINE);
+    }
+}
@@ -10,11 +10,25 @@ public class TwoWayRoad {
     public static final int MIDDLE_LANE = 1;
     public static final int RIGHT_LANE = 2;
     public static final int NUM_LANES = 3;
+    //{wayIndex, laneIndex} of the lanes which proceed on a green light and on a left signal, in the order they are dequeued.
+    static final int[][] GREEN_MOVEMENTS = {{FORWARD_WAY, MIDDLE_LANE}, {FORWARD_WAY, RIGHT_LANE}, {BACKWARD_WAY, RIGHT_LANE}, {BACKWARD_WAY, MIDDLE_LANE}};
+    static final int[][] LEFT_MOVEMENTS = {{FORWARD_WAY, LEFT_LANE}, {BACKWARD_WAY, LEFT_LANE}};
+    private static final int GREEN_LANES = laneBits(GREEN_MOVEMENTS);
+    private static final int LEFT_LANES = laneBits(LEFT_MOVEMENTS);
+    //fraction of the green time given to the left signal unless another one is chosen.
+    public static final double DEFAULT_LEFT_SIGNAL_FRACTION = 1.0/NUM_LANES;
     private String name;
     private int greenTime;
     private int leftSignalGreenTime;
+    private double leftSignalFraction;
     private VehicleQueue[][] lanes;
     private LightValue lightValue;
+    private int releasedLanes;
+    private int vehicleCount;
+    private int maxLaneLength = Integer.MAX_VALUE;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.REJECT;
+    private Intersection intersection;
+    private final StringBuilder vehiclesBuilder = new StringBuilder();
 
     /**
      * This is the constructor of the class.
@@ -26,9 +40,36 @@ public class TwoWayRoad {
      *  if the name is null or initGreenTime is negative or 0
      */
     public TwoWayRoad(String initName, int initGreenTime) throws IllegalArgumentException{
+        this(initName, initGreenTime, DEFAULT_LEFT_SIGNAL_FRACTION, false);
+    }
+
+    /**
+     * This is the constructor of the class, with the fraction of the green time given to the left signal.
+     * @param initName
+     *  name of the road
+     * @param initGreenTime
+     *  green time of the road
+     * @param initLeftSignalFraction
+     *  fraction of the green time, rounded down, during which the left lanes have the left signal
+     * @throws IllegalArgumentException
+     *  if the name is null, initGreenTime is negative or 0, or initLeftSignalFraction is not valid for
+     *  initGreenTime, see isValidLeftSignalFraction
+     */
+    public TwoWayRoad(String initName, int initGreenTime, double initLeftSignalFraction) throws IllegalArgumentException{
+        this(initName, initGreenTime, initLeftSignalFraction, true);
+    }
+
+    /**
+     * Builds a road, checking the fraction only if it was chosen by the caller: the default fraction leaves no left
+     * signal step for green times of 1 and 2, as it always has.
+     */
+    private TwoWayRoad(String initName, int initGreenTime, double initLeftSignalFraction, boolean checkFraction) throws IllegalArgumentException{
         if(initGreenTime <=0 || initName == null){
             throw new IllegalArgumentException("initGreenTime must be greater than 0 or initName cannot be null");
         }
+        if(checkFraction && !isValidLeftSignalFraction(initLeftSignalFraction, initGreenTime)){
+            throw new IllegalArgumentException("initLeftSignalFraction must leave a green step and a left signal step of initGreenTime");
+        }
         lanes = new VehicleQueue[NUM_WAYS][NUM_LANES];///////
         for(int i = 0; i < lanes.length; i++){
             for(int j = 0; j < lanes[i].length; j++){
@@ -37,15 +78,111 @@ public class TwoWayRoad {
         }
         this.name = initName;
         this.greenTime = initGreenTime;
-        leftSignalGreenTime = (int)Math.floor(1.0/NUM_LANES * initGreenTime);
+        this.leftSignalFraction = initLeftSignalFraction;
+        leftSignalGreenTime = leftSignalGreenTime(initLeftSignalFraction, initGreenTime);
+    }
+
+    /**
+     * Empties the road and gives it a new name and green time, keeping the lanes and the buffers they have grown to,
+     * so a road can be reused for another run. The light, the left signal green time and the lane capacity are
+     * set back to those of a new road.
+     * @param name
+     *  name of the road
+     * @param greenTime
+     *  green time of the road
+     * @throws IllegalArgumentException
+     *  if the name is null or greenTime is negative or 0
+     */
+    public void reset(String name, int greenTime) throws IllegalArgumentException{
+        reset(name, greenTime, DEFAULT_LEFT_SIGNAL_FRACTION, false);
+    }
+
+    /**
+     * Empties the road like reset(name, greenTime), with the fraction of the green time given to the left signal.
+     * @param name
+     *  name of the road
+     * @param greenTime
+     *  green time of the road
+     * @param leftSignalFraction
+     *  fraction of the green time, rounded down, during which the left lanes have the left signal
+     * @throws IllegalArgumentException
+     *  if the name is null, greenTime is negative or 0, or leftSignalFraction is not valid for greenTime,
+     *  see isValidLeftSignalFraction
+     */
+    public void reset(String name, int greenTime, double leftSignalFraction) throws IllegalArgumentException{
+        reset(name, greenTime, leftSignalFraction, true);
+    }
+
+    /**
+     * Empties and reconfigures the road, checking the fraction only if it was chosen by the caller.
+     */
+    private void reset(String name, int greenTime, double leftSignalFraction, boolean checkFraction) throws IllegalArgumentException{
+        if(greenTime <= 0 || name == null){
+            throw new IllegalArgumentException("greenTime must be greater than 0 or name cannot be null");
+        }
+        if(checkFraction && !isValidLeftSignalFraction(leftSignalFraction, greenTime)){
+            throw new IllegalArgumentException("leftSignalFraction must leave a green step and a left signal step of greenTime");
+        }
+        for(int i = 0; i < lanes.length; i++){
+            for(int j = 0; j < lanes[i].length; j++){
+                lanes[i][j].clear();
+            }
+        }
+        addVehicles(-vehicleCount);
+        this.name = name;
+        this.greenTime = greenTime;
+        this.leftSignalFraction = leftSignalFraction;
+        leftSignalGreenTime = leftSignalGreenTime(leftSignalFraction, greenTime);
+        lightValue = null;
+        releasedLanes = 0;
+        maxLaneLength = Integer.MAX_VALUE;
+        overflowPolicy = OverflowPolicy.REJECT;
     }
 
     /**
-     * This method sets the lightValue of the road.
+     * This method sets the lightValue of the road, releasing the lanes that light lets proceed.
      * @param lightValue
      */
     public void setLightValue(LightValue lightValue){
         this.lightValue = lightValue;
+        this.releasedLanes = lightValue == LightValue.GREEN ? GREEN_LANES : lightValue == LightValue.LEFT_SIGNAL ? LEFT_LANES : 0;
+    }
+
+    /**
+     * This method returns the bit of a lane in the released lanes of a road, see PhasePlan.getReleasedLanes.
+     * @param wayIndex
+     *  The direction of the lane.
+     * @param laneIndex
+     *  The index of the lane.
+     * @return
+     *  int
+     */
+    public static int laneBit(int wayIndex, int laneIndex){
+        return 1 << (wayIndex * NUM_LANES + laneIndex);
+    }
+
+    /**
+     * Returns the bits of every lane in movements.
+     */
+    private static int laneBits(int[][] movements){
+        int bits = 0;
+        for(int i = 0; i < movements.length; i++){
+            bits |= laneBit(movements[i][0], movements[i][1]);
+        }
+        return bits;
+    }
+
+    /**
+     * This method returns whether a lane may proceed under the current light of the road.
+     * @param wayIndex
+     *  The direction of the lane.
+     * @param laneIndex
+     *  The index of the lane.
+     * @return
+     *  boolean
+     */
+    public boolean isLaneReleased(int wayIndex, int laneIndex){
+        return (releasedLanes & laneBit(wayIndex, laneIndex)) != 0;
     }
 
     /**
@@ -57,36 +194,159 @@ public class TwoWayRoad {
     }
 
     /**
-     * THis method returns the cars on a specific lane
+     * This method returns the fraction of the green time the road was given for the left signal.
+     * @return
+     *  double
+     */
+    public double getLeftSignalFraction(){
+        return leftSignalFraction;
+    }
+
+    /**
+     * This method returns whether a left signal fraction can be chosen for a green time: between 0.0 and 1.0, and
+     * once rounded down leaving at least one green step and, if the green time is 2 or more, one left signal step.
+     * Without a green step the middle and right lanes are never served, and without a left signal step the left
+     * lanes are never served, so a run with vehicles on them would never end.
+     * @param leftSignalFraction
+     *  fraction of the green time during which the left lanes have the left signal
+     * @param greenTime
+     *  green time of the road, greater than 0
+     * @return
+     *  boolean
+     */
+    public static boolean isValidLeftSignalFraction(double leftSignalFraction, int greenTime){
+        if(!(leftSignalFraction >= 0.0 && leftSignalFraction <= 1.0)){
+            return false;
+        }
+        int leftSignalGreenTime = leftSignalGreenTime(leftSignalFraction, greenTime);
+        return leftSignalGreenTime < greenTime && (leftSignalGreenTime > 0 || greenTime == 1);
+    }
+
+    /**
+     * This method returns the left signal green time a road is given for a fraction of its green time, rounded down.
+     * @param leftSignalFraction
+     *  fraction of the green time during which the left lanes have the left signal
+     * @param greenTime
+     *  green time of the road
+     * @return
+     *  int
+     */
+    public static int leftSignalGreenTime(double leftSignalFraction, int greenTime){
+        return (int)Math.floor(leftSignalFraction * greenTime);
+    }
+
+    /**
+     * THis method returns the cars on a specific lane, without changing the lane.
      * @param wayIndex
      *  The direction the car is going in.
      * @param laneIndex
      *  The lane the car arrives in.
      * @return
-     *  a String array of cars on the lane
+     *  a String of cars on the lane
      */
     public String getVehicles(int wayIndex, int laneIndex){
-        String vehicles = "";
+        vehiclesBuilder.setLength(0);
+        appendVehicles(vehiclesBuilder, wayIndex, laneIndex);
+        return vehiclesBuilder.toString();
+    }
+
+    /**
+     * Appends the cars on a specific lane to a StringBuilder, in the same format as getVehicles.
+     * Forward lanes are written last car first so the front of the queue is next to the intersection.
+     * @param sb
+     *  The StringBuilder to append to.
+     * @param wayIndex
+     *  The direction the car is going in.
+     * @param laneIndex
+     *  The lane the car arrives in.
+     */
+    public void appendVehicles(StringBuilder sb, int wayIndex, int laneIndex){
         VehicleQueue curQueue = lanes[wayIndex][laneIndex];
-        VehicleQueue temp = new VehicleQueue();
-        while(!curQueue.isEmpty()){
-            if(wayIndex == 0){
-                Vehicle curVehicle = curQueue.dequeue();
-                vehicles = "[" + String.format("%03d", curVehicle.getSerialID()) + "]" + " " + vehicles;
-                temp.enqueue(curVehicle);
+        if(wayIndex == FORWARD_WAY){
+            for(int i = curQueue.size() - 1; i >= 0; i--){
+                sb.append('[');
+                appendSerialId(sb, curQueue.getSerialId(i));
+                sb.append("] ");
             }
-            else if(wayIndex == 1){
-                Vehicle curVehicle = curQueue.dequeue();
-                vehicles = vehicles + " " + "[" + String.format("%03d", curVehicle.getSerialID()) + "]" ;
-                temp.enqueue(curVehicle);
+        }
+        else if(wayIndex == BACKWARD_WAY){
+            for(int i = 0; i < curQueue.size(); i++){
+                sb.append(" [");
+                appendSerialId(sb, curQueue.getSerialId(i));
+                sb.append(']');
             }
         }
-        lanes[wayIndex][laneIndex] = temp;
-        return vehicles;
     }
 
     /**
-     * This method returns the lanes of the road.
+     * Appends a serial ID zero padded to three digits, the same as String.format("%03d", serialId).
+     */
+    static void appendSerialId(StringBuilder sb, int serialId){
+        if(serialId >= 0 && serialId < 10){
+            sb.append("00");
+        }
+        else if(serialId >= 0 && serialId < 100){
+            sb.append('0');
+        }
+        sb.append(serialId);
+    }
+
+    /**
+     * This is the getter method for the number of time steps at the end of the green time which are a left signal.
+     * @return
+     *  int
+     */
+    public int getLeftSignalGreenTime(){
+        return leftSignalGreenTime;
+    }
+
+    /**
+     * This method sets the number of time steps at the end of the green time which are a left signal.
+     * Used by signal controllers which size the left signal to the waiting vehicles.
+     * @param leftSignalGreenTime
+     *  the left signal green time
+     * @throws IllegalArgumentException
+     *  if leftSignalGreenTime is negative or greater than the green time
+     */
+    public void setLeftSignalGreenTime(int leftSignalGreenTime) throws IllegalArgumentException{
+        if(leftSignalGreenTime < 0 || leftSignalGreenTime > greenTime){
+            throw new IllegalArgumentException("leftSignalGreenTime must be between 0 and the green time");
+        }
+        this.leftSignalGreenTime = leftSignalGreenTime;
+    }
+
+    /**
+     * This method returns the number of vehicles in the longest lane which proceeds on a green light.
+     * @return
+     *  int
+     */
+    public int getGreenDemand(){
+        return longestLane(GREEN_MOVEMENTS);
+    }
+
+    /**
+     * This method returns the number of vehicles in the longest lane which proceeds on a left signal.
+     * @return
+     *  int
+     */
+    public int getLeftDemand(){
+        return longestLane(LEFT_MOVEMENTS);
+    }
+
+    /**
+     * Returns the size of the longest lane in movements.
+     */
+    private int longestLane(int[][] movements){
+        int longest = 0;
+        for(int i = 0; i < movements.length; i++){
+            longest = Math.max(longest, lanes[movements[i][0]][movements[i][1]].size());
+        }
+        return longest;
+    }
+
+    /**
+     * This method returns the lanes of the road. Vehicles must be added and removed through enqueueVehicle
+     * and proceed, not on the lanes directly, so the vehicle counts stay correct.
      * @return
      */
     public VehicleQueue[][] getLanes(){
@@ -131,40 +391,133 @@ public class TwoWayRoad {
         if(timerVal <= 0){
             throw new IllegalArgumentException("timerVal must be greater than 0");
         }
-        VehicleQueue vehiclesQueue = new VehicleQueue();
-
+        int count = 0;
+        Vehicle[] vehicleArray;
         if(timerVal > leftSignalGreenTime){
             this.lightValue = LightValue.GREEN;
-            if(!lanes[0][1].isEmpty()){
-                vehiclesQueue.enqueue(lanes[0][1].dequeue());
-            }
-            if(!lanes[0][2].isEmpty()){
-                vehiclesQueue.enqueue(lanes[0][2].dequeue());
-            }
-            if(!lanes[1][2].isEmpty()){
-                vehiclesQueue.enqueue(lanes[1][2].dequeue());
+            this.releasedLanes = GREEN_LANES;
+            for(int i = 0; i < GREEN_MOVEMENTS.length; i++){
+                if(!lanes[GREEN_MOVEMENTS[i][0]][GREEN_MOVEMENTS[i][1]].isEmpty()){
+                    count++;
+                }
             }
-            if(!lanes[1][1].isEmpty()){
-                vehiclesQueue.enqueue(lanes[1][1].dequeue());
+            vehicleArray = new Vehicle[count];
+            dequeueMovements(GREEN_MOVEMENTS, vehicleArray);
+            addVehicles(-count);
+        }
+        else{
+            this.lightValue = LightValue.LEFT_SIGNAL;
+            this.releasedLanes = LEFT_LANES;
+            for(int i = 0; i < LEFT_MOVEMENTS.length; i++){
+                if(!lanes[LEFT_MOVEMENTS[i][0]][LEFT_MOVEMENTS[i][1]].isEmpty()){
+                    count++;
+                }
             }
+            vehicleArray = new Vehicle[count];
+            dequeueMovements(LEFT_MOVEMENTS, vehicleArray);
+            addVehicles(-count);
+        }
+        return vehicleArray;
+    }
+
+    /**
+     * Executes the passage of time in the simulation, handing the vehicles that pass to a consumer, such as a
+     * caller-owned DepartureBuffer, instead of returning a new array. Does not allocate.
+     * @param timerVal
+     *  The current timer value, determines the state of the light.
+     * @param roadIndex
+     *  The index of this road in its intersection, passed with each departure.
+     * @param departures
+     *  The consumer of the dequeued vehicles, called in the same order as proceed(timerVal) returns them.
+     * @return
+     *  The number of vehicles dequeued.
+     * @throws IllegalArgumentException
+     *  If timerval ≤ 0.
+     */
+    public int proceed(int timerVal, int roadIndex, DepartureConsumer departures) throws IllegalArgumentException{
+        if(timerVal <= 0){
+            throw new IllegalArgumentException("timerVal must be greater than 0");
+        }
+        int[][] movements;
+        if(timerVal > leftSignalGreenTime){
             this.lightValue = LightValue.GREEN;
+            this.releasedLanes = GREEN_LANES;
+            movements = GREEN_MOVEMENTS;
         }
-        else if(timerVal <= leftSignalGreenTime){
+        else{
             this.lightValue = LightValue.LEFT_SIGNAL;
-            if(!lanes[0][0].isEmpty()){
-                vehiclesQueue.enqueue(lanes[0][0].dequeue());
+            this.releasedLanes = LEFT_LANES;
+            movements = LEFT_MOVEMENTS;
+        }
+        int count = 0;
+        for(int i = 0; i < movements.length; i++){
+            VehicleQueue lane = lanes[movements[i][0]][movements[i][1]];
+            if(!lane.isEmpty()){
+                int serialId = lane.peekSerialId();
+                int timeArrived = lane.peekTimeArrived();
+                lane.remove();
+                addVehicles(-1);
+                departures.accept(roadIndex, movements[i][0], movements[i][1], serialId, timeArrived);
+                count++;
             }
-            if(!lanes[1][0].isEmpty()){
-                vehiclesQueue.enqueue(lanes[1][0].dequeue());
+        }
+        return count;
+    }
+
+    /**
+     * Executes the passage of time for the phase of a PhasePlan, which may release any lanes of the road at once.
+     * The released lanes proceed in the order of proceed: the middle and right lanes, then the left lanes.
+     * The light of the road becomes GREEN if a middle or right lane is released, LEFT_SIGNAL if only left lanes are,
+     * and RED if none are; isLaneReleased gives the exact lanes.
+     * @param releasedLanes
+     *  The lanes which may proceed, as the bits of laneBit.
+     * @param roadIndex
+     *  The index of this road in its intersection, passed with each departure.
+     * @param departures
+     *  The consumer of the dequeued vehicles.
+     * @return
+     *  The number of vehicles dequeued.
+     */
+    public int release(int releasedLanes, int roadIndex, DepartureConsumer departures){
+        this.lightValue = (releasedLanes & GREEN_LANES) != 0 ? LightValue.GREEN : releasedLanes != 0 ? LightValue.LEFT_SIGNAL : LightValue.RED;
+        this.releasedLanes = releasedLanes;
+        return releaseMovements(GREEN_MOVEMENTS, releasedLanes, roadIndex, departures) + releaseMovements(LEFT_MOVEMENTS, releasedLanes, roadIndex, departures);
+    }
+
+    /**
+     * Dequeues the first vehicle of every non-empty released lane in movements, in order, to a consumer.
+     */
+    private int releaseMovements(int[][] movements, int releasedLanes, int roadIndex, DepartureConsumer departures){
+        int count = 0;
+        for(int i = 0; i < movements.length; i++){
+            VehicleQueue lane = lanes[movements[i][0]][movements[i][1]];
+            if((releasedLanes & laneBit(movements[i][0], movements[i][1])) != 0 && !lane.isEmpty()){
+                int serialId = lane.peekSerialId();
+                int timeArrived = lane.peekTimeArrived();
+                lane.remove();
+                addVehicles(-1);
+                departures.accept(roadIndex, movements[i][0], movements[i][1], serialId, timeArrived);
+                count++;
             }
-            this.lightValue = LightValue.LEFT_SIGNAL;
         }
+        return count;
+    }
 
-        Vehicle[] vehicleArray = new Vehicle[vehiclesQueue.size()];
-        for(int i = 0; i < vehicleArray.length; i++){
-            vehicleArray[i] = vehiclesQueue.dequeue(); 
+    /**
+     * Dequeues the first vehicle of every non-empty lane in movements, in order, into vehicleArray.
+     * @param movements
+     *  {wayIndex, laneIndex} pairs of the lanes which may proceed.
+     * @param vehicleArray
+     *  array sized to the number of non-empty lanes in movements.
+     */
+    private void dequeueMovements(int[][] movements, Vehicle[] vehicleArray){
+        int count = 0;
+        for(int i = 0; i < movements.length; i++){
+            VehicleQueue lane = lanes[movements[i][0]][movements[i][1]];
+            if(!lane.isEmpty()){
+                vehicleArray[count++] = lane.dequeue();
+            }
         }
-        return vehicleArray;
     }
 
     /**
@@ -183,6 +536,155 @@ public class TwoWayRoad {
             throw new IllegalArgumentException("wayIndex, laneIndex or vehicle is invalid");
         }
         lanes[wayIndex][laneIndex].enqueue(vehicle);
+        addVehicles(1);
+    }
+
+    /**
+     * Enqueues a vehicle into the specified lane by its serial ID and arrival time, without a Vehicle object.
+     * @param wayIndex
+     *  The direction the car is going in.
+     * @param laneIndex
+     *  The lane the car arrives in.
+     * @param serialId
+     *  The serial ID of the vehicle.
+     * @param timeArrived
+     *  The time step the vehicle arrived at.
+     * @throws IllegalArgumentException
+     *  If wayIndex > 1 || wayIndex < 0 || laneIndex < 0 || laneIndex > 2
+     */
+    public void enqueueVehicle(int wayIndex, int laneIndex, int serialId, int timeArrived) throws IllegalArgumentException{
+        if(wayIndex > 1 || wayIndex < 0 || laneIndex < 0 || laneIndex > 2){
+            throw new IllegalArgumentException("wayIndex or laneIndex is invalid");
+        }
+        lanes[wayIndex][laneIndex].enqueue(serialId, timeArrived);
+        addVehicles(1);
+    }
+
+    /**
+     * This method sets the most vehicles a lane of the road can hold and what happens to vehicles arriving at a full lane.
+     * Lanes are unbounded until it is called. Arrivals which respect the capacity go through offerVehicle.
+     * @param maxLaneLength
+     *  the most vehicles on one lane, or Integer.MAX_VALUE for no limit
+     * @param overflowPolicy
+     *  the policy for vehicles arriving at a full lane
+     * @throws IllegalArgumentException
+     *  if maxLaneLength &lt; 1 or overflowPolicy is null
+     */
+    public void setLaneCapacity(int maxLaneLength, OverflowPolicy overflowPolicy) throws IllegalArgumentException{
+        if(maxLaneLength < 1 || overflowPolicy == null){
+            throw new IllegalArgumentException("maxLaneLength must be at least 1 and overflowPolicy cannot be null");
+        }
+        this.maxLaneLength = maxLaneLength;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * This method returns the most vehicles a lane of the road can hold.
+     * @return
+     *  int
+     */
+    public int getMaxLaneLength(){
+        return maxLaneLength;
+    }
+
+    /**
+     * This method returns the policy for vehicles arriving at a full lane.
+     * @return
+     *  OverflowPolicy
+     */
+    public OverflowPolicy getOverflowPolicy(){
+        return overflowPolicy;
+    }
+
+    /**
+     * Checks if a lane has room for one more vehicle.
+     * @param wayIndex
+     *  The direction of the lane.
+     * @param laneIndex
+     *  The index of the lane.
+     * @return
+     *  true if the lane holds fewer than the maximum lane length.
+     */
+    public boolean hasRoom(int wayIndex, int laneIndex){
+        return lanes[wayIndex][laneIndex].size() < maxLaneLength;
+    }
+
+    /**
+     * Enqueues a vehicle into the specified lane if it has room, or into an adjacent lane with the DIVERT policy.
+     * The middle lane diverts to the shorter of the left and right lanes, the left and right lanes to the middle lane.
+     * @param wayIndex
+     *  The direction the car is going in.
+     * @param laneIndex
+     *  The lane the car arrives in.
+     * @param serialId
+     *  The serial ID of the vehicle.
+     * @param timeArrived
+     *  The time step the vehicle arrived at.
+     * @return
+     *  The lane the vehicle entered, or -1 if it was rejected.
+     * @throws IllegalArgumentException
+     *  If wayIndex > 1 || wayIndex < 0 || laneIndex < 0 || laneIndex > 2
+     */
+    public int offerVehicle(int wayIndex, int laneIndex, int serialId, int timeArrived) throws IllegalArgumentException{
+        if(wayIndex > 1 || wayIndex < 0 || laneIndex < 0 || laneIndex > 2){
+            throw new IllegalArgumentException("wayIndex or laneIndex is invalid");
+        }
+        int target = laneIndex;
+        if(!hasRoom(wayIndex, laneIndex)){
+            target = -1;
+            if(overflowPolicy == OverflowPolicy.DIVERT){
+                if(laneIndex != MIDDLE_LANE){
+                    target = hasRoom(wayIndex, MIDDLE_LANE) ? MIDDLE_LANE : -1;
+                }
+                else if(hasRoom(wayIndex, LEFT_LANE) || hasRoom(wayIndex, RIGHT_LANE)){
+                    target = lanes[wayIndex][LEFT_LANE].size() <= lanes[wayIndex][RIGHT_LANE].size() ? LEFT_LANE : RIGHT_LANE;
+                }
+            }
+            if(target < 0){
+                return -1;
+            }
+        }
+        lanes[wayIndex][target].enqueue(serialId, timeArrived);
+        addVehicles(1);
+        return target;
+    }
+
+    /**
+     * Puts a vehicle which proceeded in this time step back at the front of its lane, when it cannot leave
+     * because the lane it would join is full.
+     * @param wayIndex
+     *  The direction of the lane.
+     * @param laneIndex
+     *  The index of the lane.
+     * @param serialId
+     *  The serial ID of the vehicle.
+     * @param timeArrived
+     *  The time step the vehicle arrived at.
+     */
+    void returnVehicle(int wayIndex, int laneIndex, int serialId, int timeArrived){
+        lanes[wayIndex][laneIndex].pushFront(serialId, timeArrived);
+        addVehicles(1);
+    }
+
+    /**
+     * Removes the first vehicle of a lane outside of proceed, for the fast-forwarded drain of Simulation, which
+     * computes the departure time of every waiting vehicle itself, and for BinaryTrace, which rebuilds a road from
+     * recorded departures. The light is left as it is.
+     * @param wayIndex
+     *  The direction of the lane.
+     * @param laneIndex
+     *  The index of the lane.
+     * @return
+     *  The serial ID of the removed vehicle.
+     * @throws java.util.NoSuchElementException
+     *  If the lane is empty.
+     */
+    int removeFirstVehicle(int wayIndex, int laneIndex){
+        VehicleQueue lane = lanes[wayIndex][laneIndex];
+        int serialId = lane.peekSerialId();
+        lane.remove();
+        addVehicles(-1);
+        return serialId;
     }
 
     /**
@@ -203,16 +705,65 @@ public class TwoWayRoad {
         return lanes[wayIndex][laneIndex].isEmpty();
     }
 
+    /**
+     * Checks if every lane of the road is empty, without scanning the lanes.
+     * @return
+     *  true if no vehicle is waiting on the road, else false.
+     */
     public boolean isAllLanesEmpty(){
-        boolean flag = true;
+        return vehicleCount == 0;
+    }
+
+    /**
+     * This method returns the number of vehicles waiting on a lane.
+     * @param wayIndex
+     *  The direction of the lane.
+     * @param laneIndex
+     *  The index of the lane.
+     * @return
+     *  int
+     */
+    public int getLaneLength(int wayIndex, int laneIndex){
+        return lanes[wayIndex][laneIndex].size();
+    }
+
+    /**
+     * This method returns the number of vehicles waiting on every lane of the road, kept up to date
+     * by enqueueVehicle and proceed.
+     * @return
+     *  int
+     */
+    public int getVehicleCount(){
+        return vehicleCount;
+    }
+
+    /**
+     * Attaches the road to the intersection whose vehicle count includes the road's vehicles.
+     */
+    void setIntersection(Intersection intersection){
+        this.intersection = intersection;
+    }
+
+    /**
+     * Counts the vehicles on the lanes again, after the lanes were changed directly, e.g. restored from a checkpoint.
+     */
+    void recountVehicles(){
+        int count = 0;
         for(int wayIndex = 0; wayIndex < NUM_WAYS; wayIndex++){
             for(int laneIndex = 0; laneIndex < NUM_LANES; laneIndex++){
-                if(!isLaneEmpty(wayIndex, laneIndex)){
-                    flag = false;
-                    return false;
-                }
+                count += lanes[wayIndex][laneIndex].size();
             }
         }
-        return flag;
+        addVehicles(count - vehicleCount);
+    }
+
+    /**
+     * Updates the vehicle count of the road and of its intersection.
+     */
+    private void addVehicles(int delta){
+        vehicleCount += delta;
+        if(intersection != null){
+            intersection.addVehicles(delta);
+        }
     }
 }
@@ -18,11 +18,43 @@ public class Vehicle {
         if(initTimeArrived <= 0){
             throw new IllegalArgumentException("initTimeArrived must be greater than 0.");
         }
-        serialCounter++;
-        serialId = serialCounter;
+        serialId = nextSerialId();
         timeArrived = initTimeArrived;
     }
 
+    /**
+     * Recreates a vehicle which was stored in a lane by its serial ID and arrival time.
+     * Does not take a new serial ID.
+     * @param serialId
+     *  serial ID of the stored vehicle
+     * @param initTimeArrived
+     *  arrival time of the stored vehicle
+     */
+    Vehicle(int serialId, int initTimeArrived){
+        this.serialId = serialId;
+        this.timeArrived = initTimeArrived;
+    }
+
+    /**
+     * Takes the next serial ID without creating a Vehicle, for callers which enqueue
+     * vehicles by serial ID and arrival time.
+     * @return
+     *  the next serial ID
+     */
+    public static int nextSerialId(){
+        serialCounter++;
+        return serialCounter;
+    }
+
+    /**
+     * Restarts the serial IDs taken by the Vehicle constructor and nextSerialId at 1, so a run which numbers its
+     * vehicles through this class can be repeated with the same IDs. Simulation numbers its own vehicles and does not
+     * depend on it.
+     */
+    public static void resetSerialCounter(){
+        serialCounter = 0;
+    }
+
     /**
      * This is a getter method for the serialId.
      * @return
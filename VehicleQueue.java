@@ -1,15 +1,23 @@
 /**
- * Lanes in our simulator will be modelled as a Queue of Vehicles
+ * Lanes in our simulator will be modelled as a Queue of Vehicles.
+ * The queue is a growable ring buffer which only stores the serial ID and arrival time of each vehicle
+ * in parallel int arrays, so enqueue and dequeue do not allocate once the buffer has grown to fit the lane.
 */
 
-import java.util.LinkedList;
-public class VehicleQueue extends LinkedList{
-    LinkedList<Vehicle> vehicleQueue = new LinkedList<Vehicle>();
+public class VehicleQueue {
+    private static final int INITIAL_CAPACITY = 16;
+    private int[] serialIds;
+    private int[] timesArrived;
+    private int head;
+    private int size;
 
     /**
      * This is the constructor for the VehicleQueue class
      */
-    public VehicleQueue(){}
+    public VehicleQueue(){
+        serialIds = new int[INITIAL_CAPACITY];
+        timesArrived = new int[INITIAL_CAPACITY];
+    }
 
     /**
      * This method adds a vehicle to the queue
@@ -17,29 +25,204 @@ public class VehicleQueue extends LinkedList{
      *  adds a vehicle to the queue
      */
     public void enqueue(Vehicle v){
-        vehicleQueue.add(v);
+        enqueue(v.getSerialID(), v.getTimeArrived());
+    }
+
+    /**
+     * This method adds a vehicle to the queue without needing a Vehicle object.
+     * @param serialId
+     *  serial ID of the vehicle
+     * @param timeArrived
+     *  time step the vehicle arrived at
+     */
+    public void enqueue(int serialId, int timeArrived){
+        if(size == serialIds.length){
+            grow();
+        }
+        int tail = (head + size) & (serialIds.length - 1);
+        serialIds[tail] = serialId;
+        timesArrived[tail] = timeArrived;
+        size++;
     }
 
     /**
      * this method returns the first vehicle in the queue
      * @return
      *  the first vehicle in the queue
+     * @throws java.util.NoSuchElementException
+     *  if the queue is empty
      */
     public Vehicle dequeue(){
-        return vehicleQueue.remove();
+        Vehicle v = new Vehicle(peekSerialId(), timesArrived[head]);
+        remove();
+        return v;
+    }
+
+    /**
+     * This method removes the first vehicle in the queue without creating a Vehicle for it.
+     * @throws java.util.NoSuchElementException
+     *  if the queue is empty
+     */
+    public void remove(){
+        if(size == 0){
+            throw new java.util.NoSuchElementException();
+        }
+        head = (head + 1) & (serialIds.length - 1);
+        size--;
+    }
+
+    /**
+     * This method puts a vehicle back at the front of the queue, undoing remove.
+     * @param serialId
+     *  serial ID of the vehicle
+     * @param timeArrived
+     *  time step the vehicle arrived at
+     */
+    public void pushFront(int serialId, int timeArrived){
+        if(size == serialIds.length){
+            grow();
+        }
+        head = (head - 1) & (serialIds.length - 1);
+        serialIds[head] = serialId;
+        timesArrived[head] = timeArrived;
+        size++;
+    }
+
+    /**
+     * This method removes every vehicle from the queue, keeping the buffer it has grown to.
+     */
+    public void clear(){
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * This method returns the serial ID of the first vehicle in the queue.
+     * @return
+     *  serial ID of the first vehicle
+     * @throws java.util.NoSuchElementException
+     *  if the queue is empty
+     */
+    public int peekSerialId(){
+        if(size == 0){
+            throw new java.util.NoSuchElementException();
+        }
+        return serialIds[head];
+    }
+
+    /**
+     * This method returns the arrival time of the first vehicle in the queue.
+     * @return
+     *  arrival time of the first vehicle
+     * @throws java.util.NoSuchElementException
+     *  if the queue is empty
+     */
+    public int peekTimeArrived(){
+        if(size == 0){
+            throw new java.util.NoSuchElementException();
+        }
+        return timesArrived[head];
+    }
+
+    /**
+     * This method returns the serial ID of a vehicle without removing it.
+     * @param index
+     *  position in the queue, 0 being the first vehicle
+     * @return
+     *  serial ID of the vehicle at index
+     * @throws IndexOutOfBoundsException
+     *  if index &lt; 0 or index &gt;= size()
+     */
+    public int getSerialId(int index){
+        return serialIds[slot(index)];
+    }
+
+    /**
+     * This method returns the arrival time of a vehicle without removing it.
+     * @param index
+     *  position in the queue, 0 being the first vehicle
+     * @return
+     *  arrival time of the vehicle at index
+     * @throws IndexOutOfBoundsException
+     *  if index &lt; 0 or index &gt;= size()
+     */
+    public int getTimeArrived(int index){
+        return timesArrived[slot(index)];
     }
 
     /**
      * This method returns the number of vehicles in the queue
      */
     public int size(){
-        return vehicleQueue.size();
+        return size;
     }
 
     /**
      * This method checks if the queue is empty
      */
     public boolean isEmpty(){
-        return vehicleQueue.isEmpty();
+        return size == 0;
+    }
+
+    /**
+     * Writes the contents of the queue to a checkpoint.
+     * @param out
+     *  the checkpoint being written
+     * @throws java.io.IOException
+     *  if the checkpoint cannot be written
+     */
+    public void writeTo(java.io.DataOutput out) throws java.io.IOException{
+        out.writeInt(size);
+        for(int i = 0; i < size; i++){
+            int slot = (head + i) & (serialIds.length - 1);
+            out.writeInt(serialIds[slot]);
+            out.writeInt(timesArrived[slot]);
+        }
+    }
+
+    /**
+     * Replaces the contents of the queue with those written by writeTo.
+     * @param in
+     *  the checkpoint being read
+     * @throws java.io.IOException
+     *  if the checkpoint cannot be read
+     */
+    public void readFrom(java.io.DataInput in) throws java.io.IOException{
+        head = 0;
+        size = 0;
+        int count = in.readInt();
+        if(count < 0){
+            throw new java.io.IOException("invalid queue size " + count);
+        }
+        for(int i = 0; i < count; i++){
+            enqueue(in.readInt(), in.readInt());
+        }
+    }
+
+    /**
+     * Maps a position in the queue to its index in the ring buffer.
+     */
+    private int slot(int index){
+        if(index < 0 || index >= size){
+            throw new IndexOutOfBoundsException("index " + index + " out of range for size " + size);
+        }
+        return (head + index) & (serialIds.length - 1);
+    }
+
+    /**
+     * Doubles the capacity of the ring buffer, unwrapping the contents to start at index 0.
+     */
+    private void grow(){
+        int capacity = serialIds.length;
+        int[] newSerialIds = new int[capacity * 2];
+        int[] newTimesArrived = new int[capacity * 2];
+        int firstPart = capacity - head;
+        System.arraycopy(serialIds, head, newSerialIds, 0, firstPart);
+        System.arraycopy(serialIds, 0, newSerialIds, firstPart, head);
+        System.arraycopy(timesArrived, head, newTimesArrived, 0, firstPart);
+        System.arraycopy(timesArrived, 0, newTimesArrived, firstPart, head);
+        serialIds = newSerialIds;
+        timesArrived = newTimesArrived;
+        head = 0;
     }
 }
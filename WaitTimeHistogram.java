@@ -0,0 +1,246 @@
+/**
+ * This class is a bounded-memory streaming histogram of wait times, bucketed like an HDR histogram:
+ * values below 2^precisionBits have their own bucket, and every power of two above that is split into
+ * 2^precisionBits buckets, so any non-negative int is recorded with a relative error below 2^-precisionBits.
+ * Memory does not depend on the number of values recorded: the buckets are allocated up to the largest value
+ * recorded so far, so a histogram which is never used costs nothing, and never exceed those of the whole int range.
+*/
+
+public class WaitTimeHistogram {
+    public static final int DEFAULT_PRECISION_BITS = 7;
+    private final int precisionBits;
+    private final int subBucketMask;
+    private static final long[] NO_COUNTS = new long[0];
+    private final int maxBuckets;
+    private long[] counts = NO_COUNTS;
+    private long totalCount;
+    private long totalValue;
+    private int maxValue;
+
+    /**
+     * Constructor with the default precision, below 1% relative error in at most about 25KB.
+     */
+    public WaitTimeHistogram(){
+        this(DEFAULT_PRECISION_BITS);
+    }
+
+    /**
+     * This is the constructor of the class.
+     * @param precisionBits
+     *  number of bits of each value kept exactly, between 1 and 16
+     * @throws IllegalArgumentException
+     *  if precisionBits is out of range
+     */
+    public WaitTimeHistogram(int precisionBits) throws IllegalArgumentException{
+        if(precisionBits < 1 || precisionBits > 16){
+            throw new IllegalArgumentException("precisionBits must be between 1 and 16");
+        }
+        this.precisionBits = precisionBits;
+        this.subBucketMask = (1 << precisionBits) - 1;
+        this.maxBuckets = (32 - precisionBits) << precisionBits;
+    }
+
+    /**
+     * Records a value.
+     * @param value
+     *  the wait time
+     * @throws IllegalArgumentException
+     *  if value is negative
+     */
+    public void record(int value) throws IllegalArgumentException{
+        if(value < 0){
+            throw new IllegalArgumentException("value cannot be negative");
+        }
+        int index = indexOf(value);
+        if(index >= counts.length){
+            grow(index + 1);
+        }
+        counts[index]++;
+        totalCount++;
+        totalValue += value;
+        if(value > maxValue){
+            maxValue = value;
+        }
+    }
+
+    /**
+     * Adds every value of another histogram of the same precision.
+     * @param other
+     *  the histogram to add
+     * @throws IllegalArgumentException
+     *  if the precisions differ
+     */
+    public void merge(WaitTimeHistogram other) throws IllegalArgumentException{
+        if(other.precisionBits != precisionBits){
+            throw new IllegalArgumentException("histograms must have the same precision");
+        }
+        if(other.counts.length > counts.length){
+            grow(other.counts.length);
+        }
+        for(int i = 0; i < other.counts.length; i++){
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        totalValue += other.totalValue;
+        maxValue = Math.max(maxValue, other.maxValue);
+    }
+
+    /**
+     * Removes every value.
+     */
+    public void clear(){
+        java.util.Arrays.fill(counts, 0);
+        totalCount = 0;
+        totalValue = 0;
+        maxValue = 0;
+    }
+
+    /**
+     * This method returns the number of values recorded.
+     * @return
+     *  long
+     */
+    public long getTotalCount(){
+        return totalCount;
+    }
+
+    /**
+     * This method returns the exact sum of the values recorded.
+     * @return
+     *  long
+     */
+    public long getTotalValue(){
+        return totalValue;
+    }
+
+    /**
+     * This method returns the exact largest value recorded, 0 if there is none.
+     * @return
+     *  int
+     */
+    public int getMaxValue(){
+        return maxValue;
+    }
+
+    /**
+     * This method returns the exact mean of the values recorded, 0.0 if there is none.
+     * @return
+     *  double
+     */
+    public double getMean(){
+        return totalCount == 0 ? 0.0 : (double)totalValue / totalCount;
+    }
+
+    /**
+     * This method returns the value at a percentile: the top of the bucket holding the value that at least
+     * that fraction of all values do not exceed, and never more than the largest value.
+     * @param percentile
+     *  between 0.0 and 100.0, e.g. 95.0
+     * @return
+     *  int, 0 if no value is recorded
+     * @throws IllegalArgumentException
+     *  if percentile is out of range
+     */
+    public int getValueAtPercentile(double percentile) throws IllegalArgumentException{
+        if(percentile < 0.0 || percentile > 100.0){
+            throw new IllegalArgumentException("percentile must be between 0.0 and 100.0");
+        }
+        long target = Math.max(1, (long)Math.ceil(percentile / 100.0 * totalCount));
+        long seen = 0;
+        for(int i = 0; i < counts.length && totalCount > 0; i++){
+            seen += counts[i];
+            if(seen >= target){
+                return (int)Math.min(maxValue, highestValueOf(i));
+            }
+        }
+        return maxValue;
+    }
+
+    /**
+     * Writes the histogram to a checkpoint, skipping empty buckets.
+     * @param out
+     *  the checkpoint being written
+     * @throws java.io.IOException
+     *  if the checkpoint cannot be written
+     */
+    public void writeTo(java.io.DataOutput out) throws java.io.IOException{
+        int used = 0;
+        for(long count : counts){
+            if(count != 0){
+                used++;
+            }
+        }
+        out.writeInt(precisionBits);
+        out.writeLong(totalCount);
+        out.writeLong(totalValue);
+        out.writeInt(maxValue);
+        out.writeInt(used);
+        for(int i = 0; i < counts.length; i++){
+            if(counts[i] != 0){
+                out.writeInt(i);
+                out.writeLong(counts[i]);
+            }
+        }
+    }
+
+    /**
+     * Replaces the contents of the histogram with those written by writeTo.
+     * @param in
+     *  the checkpoint being read
+     * @throws java.io.IOException
+     *  if the checkpoint cannot be read or has a different precision
+     */
+    public void readFrom(java.io.DataInput in) throws java.io.IOException{
+        if(in.readInt() != precisionBits){
+            throw new java.io.IOException("histogram precision does not match");
+        }
+        clear();
+        totalCount = in.readLong();
+        totalValue = in.readLong();
+        maxValue = in.readInt();
+        int used = in.readInt();
+        for(int i = 0; i < used; i++){
+            int index = in.readInt();
+            if(index < 0 || index >= maxBuckets){
+                throw new java.io.IOException("invalid histogram bucket " + index);
+            }
+            if(index >= counts.length){
+                grow(index + 1);
+            }
+            counts[index] = in.readLong();
+        }
+    }
+
+    /**
+     * Makes room for at least the given number of buckets, at least doubling them to keep growth rare.
+     */
+    private void grow(int buckets){
+        int length = Math.max(buckets, Math.max(counts.length * 2, 1 << precisionBits));
+        counts = java.util.Arrays.copyOf(counts, Math.min(length, maxBuckets));
+    }
+
+    /**
+     * Maps a value to its bucket.
+     */
+    private int indexOf(int value){
+        if(value <= subBucketMask){
+            return value;
+        }
+        int exponent = 31 - Integer.numberOfLeadingZeros(value);
+        int bucket = exponent - precisionBits + 1;
+        return (bucket << precisionBits) + ((value >>> (exponent - precisionBits)) & subBucketMask);
+    }
+
+    /**
+     * This method returns the largest value which maps to a bucket.
+     */
+    private long highestValueOf(int index){
+        int bucket = index >>> precisionBits;
+        long subBucket = index & subBucketMask;
+        if(bucket == 0){
+            return subBucket;
+        }
+        int shift = bucket - 1;
+        return (((1L << precisionBits) + subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,63 @@
+import simbench.Workload;
+
+/**
+ * This class hands the workloads of SimulationBenchmark to the JMH benchmarks of the simbench package.
+ * JMH only runs benchmarks declared in a named package, which cannot refer to the classes of the default package,
+ * so the benchmarks look these methods up by name once per trial and then call the workload through Workload,
+ * which this class can refer to.
+*/
+
+public class BenchmarkWorkloads {
+    public static Workload queueEnqueueDequeue(int depth){
+        return adapt(SimulationBenchmark.queueEnqueueDequeue(depth));
+    }
+
+    public static Workload roadProceed(int depth){
+        return adapt(SimulationBenchmark.roadProceed(depth));
+    }
+
+    public static Workload roadProceedBuffer(int depth){
+        return adapt(SimulationBenchmark.roadProceedBuffer(depth));
+    }
+
+    public static Workload roadGetVehicles(int depth){
+        return adapt(SimulationBenchmark.roadGetVehicles(depth));
+    }
+
+    public static Workload intersectionTimeStep(int numRoads, int depth){
+        return adapt(SimulationBenchmark.intersectionTimeStep(numRoads, depth));
+    }
+
+    public static Workload intersectionTimeStepBuffer(int numRoads, int depth){
+        return adapt(SimulationBenchmark.intersectionTimeStepBuffer(numRoads, depth));
+    }
+
+    public static Workload headlessStep(int numRoads){
+        return adapt(SimulationBenchmark.headlessStep(numRoads));
+    }
+
+    public static Workload coldRun(int numRoads){
+        return adapt(SimulationBenchmark.coldRun(numRoads));
+    }
+
+    public static Workload warmRun(int numRoads){
+        return adapt(SimulationBenchmark.warmRun(numRoads));
+    }
+
+    /**
+     * Wraps an operation of SimulationBenchmark.
+     */
+    private static Workload adapt(SimulationBenchmark.Operation operation){
+        return new Workload(){
+            @Override
+            public void run(int ops){
+                operation.run(ops);
+            }
+
+            @Override
+            public void verify(){
+                operation.verify();
+            }
+        };
+    }
+}
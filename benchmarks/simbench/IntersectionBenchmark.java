@@ -0,0 +1,60 @@
+package simbench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class benchmarks one time step of an Intersection of 1 to 4 roads with lanes of depth vehicles: timeStep
+ * returning a Vehicle array and timeStep into a reused DepartureBuffer, each followed by timeStepPtTwo. The passed
+ * vehicles are put back, so the depth stays the same. Run with -prof gc, timeStepBuffer should report 0 bytes per
+ * operation.
+*/
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntersectionBenchmark {
+    @Param({"1", "2", "4"})
+    public int roads;
+    @Param({"16", "256", "4096"})
+    public int depth;
+    private Workload timeStep;
+    private Workload timeStepBuffer;
+
+    @Setup
+    public void setup(){
+        timeStep = Workloads.get("intersectionTimeStep", roads, depth);
+        timeStepBuffer = Workloads.get("intersectionTimeStepBuffer", roads, depth);
+    }
+
+    @TearDown(Level.Iteration)
+    public void verify(){
+        timeStep.verify();
+        timeStepBuffer.verify();
+    }
+
+    @Benchmark
+    public void timeStep(){
+        timeStep.run(1);
+    }
+
+    @Benchmark
+    public void timeStepBuffer(){
+        timeStepBuffer.run(1);
+    }
+}
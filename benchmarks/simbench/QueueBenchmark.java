@@ -0,0 +1,48 @@
+package simbench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class benchmarks VehicleQueue: one operation dequeues the first vehicle of a queue holding depth vehicles
+ * and enqueues it again at the back. Run with -prof gc, it should report 0 bytes per operation.
+*/
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueueBenchmark {
+    @Param({"16", "256", "4096"})
+    public int depth;
+    private Workload enqueueDequeue;
+
+    @Setup
+    public void setup(){
+        enqueueDequeue = Workloads.get("queueEnqueueDequeue", depth);
+    }
+
+    @TearDown(Level.Iteration)
+    public void verify(){
+        enqueueDequeue.verify();
+    }
+
+    @Benchmark
+    public void enqueueDequeue(){
+        enqueueDequeue.run(1);
+    }
+}
@@ -0,0 +1,65 @@
+package simbench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class benchmarks TwoWayRoad on lanes of depth vehicles: proceed returning a Vehicle array, proceed into a
+ * reused DepartureBuffer, and getVehicles rendering every lane. The passed vehicles are put back, so the depth
+ * stays the same. Run with -prof gc, proceedBuffer should report 0 bytes per operation.
+*/
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoadBenchmark {
+    @Param({"16", "256", "4096"})
+    public int depth;
+    private Workload proceed;
+    private Workload proceedBuffer;
+    private Workload getVehicles;
+
+    @Setup
+    public void setup(){
+        proceed = Workloads.get("roadProceed", depth);
+        proceedBuffer = Workloads.get("roadProceedBuffer", depth);
+        getVehicles = Workloads.get("roadGetVehicles", depth);
+    }
+
+    @TearDown(Level.Iteration)
+    public void verify(){
+        proceed.verify();
+        proceedBuffer.verify();
+        getVehicles.verify();
+    }
+
+    @Benchmark
+    public void proceed(){
+        proceed.run(1);
+    }
+
+    @Benchmark
+    public void proceedBuffer(){
+        proceedBuffer.run(1);
+    }
+
+    @Benchmark
+    public void getVehicles(){
+        getVehicles.run(1);
+    }
+}
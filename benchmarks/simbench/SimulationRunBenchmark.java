@@ -0,0 +1,65 @@
+package simbench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class benchmarks headless simulations of 1 to 4 roads: step is one time step of a run which never ends,
+ * coldRun is a whole short run built from scratch and warmRun the same run of one Simulation rewound by reset.
+ * Run with -prof gc, step should report 0 bytes per operation and warmRun far fewer than coldRun.
+*/
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimulationRunBenchmark {
+    @Param({"1", "2", "4"})
+    public int roads;
+    private Workload step;
+    private Workload coldRun;
+    private Workload warmRun;
+
+    @Setup
+    public void setup(){
+        step = Workloads.get("headlessStep", roads);
+        coldRun = Workloads.get("coldRun", roads);
+        warmRun = Workloads.get("warmRun", roads);
+    }
+
+    @TearDown(Level.Iteration)
+    public void verify(){
+        step.verify();
+        coldRun.verify();
+        warmRun.verify();
+    }
+
+    @Benchmark
+    public void step(){
+        step.run(1);
+    }
+
+    @Benchmark
+    public void coldRun(){
+        coldRun.run(1);
+    }
+
+    @Benchmark
+    public void warmRun(){
+        warmRun.run(1);
+    }
+}
@@ -0,0 +1,21 @@
+package simbench;
+
+/**
+ * This interface is a workload of BenchmarkWorkloads as the benchmarks of this package see it.
+*/
+
+public interface Workload {
+    /**
+     * Runs a number of operations.
+     * @param ops
+     *  number of operations
+     */
+    void run(int ops);
+
+    /**
+     * Checks that the workload still measures the state it was built for, such as the depth of its lanes.
+     * @throws IllegalStateException
+     *  if the state has drifted
+     */
+    void verify() throws IllegalStateException;
+}
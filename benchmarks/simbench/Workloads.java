@@ -0,0 +1,36 @@
+package simbench;
+
+/**
+ * This class looks up a workload of BenchmarkWorkloads, in the default package, by the name of its method.
+*/
+
+final class Workloads {
+    private Workloads(){
+    }
+
+    /**
+     * Builds a workload.
+     * @param name
+     *  name of the BenchmarkWorkloads method
+     * @param args
+     *  the int arguments of the method
+     * @return
+     *  Workload
+     * @throws IllegalStateException
+     *  if the method cannot be found or throws
+     */
+    static Workload get(String name, int... args) throws IllegalStateException{
+        Class<?>[] types = new Class<?>[args.length];
+        Object[] values = new Object[args.length];
+        for(int i = 0; i < args.length; i++){
+            types[i] = int.class;
+            values[i] = args[i];
+        }
+        try{
+            return (Workload)Class.forName("BenchmarkWorkloads").getMethod(name, types).invoke(null, values);
+        }
+        catch(ReflectiveOperationException e){
+            throw new IllegalStateException("cannot build workload " + name, e);
+        }
+    }
+}